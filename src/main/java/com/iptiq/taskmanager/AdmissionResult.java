@@ -0,0 +1,67 @@
+package com.iptiq.taskmanager;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.List;
+import java.util.OptionalInt;
+
+/**
+ * The outcome of admitting a single process via {@link TaskManager#addProcesses(java.util.Collection)}.
+ */
+@Getter
+@ToString
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class AdmissionResult {
+
+    public enum Status {
+        /** The process has been started in a free slot. */
+        ADMITTED,
+        /** The process has been started in place of one or more replaced processes. */
+        REPLACED,
+        /** The process has not been started. */
+        REJECTED;
+    }
+
+    private final int pid;
+    private final Status status;
+
+    /**
+     * The processes that have been killed to make room, in the order they have been chosen.
+     */
+    private final List<Integer> replacedPids;
+
+    /**
+     * Describes why the process has been rejected, null otherwise.
+     */
+    private final String reason;
+
+    static AdmissionResult admitted(int pid) {
+        return new AdmissionResult(pid, Status.ADMITTED, List.of(), null);
+    }
+
+    static AdmissionResult replaced(int pid, int replacedPid) {
+        return new AdmissionResult(pid, Status.REPLACED, List.of(replacedPid), null);
+    }
+
+    static AdmissionResult replaced(int pid, List<Integer> replacedPids) {
+        return new AdmissionResult(pid, Status.REPLACED, replacedPids, null);
+    }
+
+    static AdmissionResult rejected(int pid, String reason) {
+        return new AdmissionResult(pid, Status.REJECTED, List.of(), reason);
+    }
+
+    public boolean isAdmitted() {
+        return status != Status.REJECTED;
+    }
+
+    /**
+     * @return the pid of the (first) process that has been killed to make room, if any
+     */
+    public OptionalInt getReplacedPid() {
+        return replacedPids.isEmpty() ? OptionalInt.empty() : OptionalInt.of(replacedPids.get(0));
+    }
+}
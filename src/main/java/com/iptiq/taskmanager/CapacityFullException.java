@@ -8,10 +8,14 @@ package com.iptiq.taskmanager;
  *     <li>1) The capacity is full</li>
  *     <li>2) The configured {@link ReplacementStrategy} cannot find any process that can be killed.</li>
  * </ul>
+ *
+ * Rejections are an expected outcome under load, rather than a bug to debug. Thus the exception does not
+ * capture a stack trace, which would otherwise dominate the cost of a rejection. Callers that expect many
+ * rejections are better off with {@link TaskManager#tryAddProcess(Process)}, which does not throw at all.
  */
 public class CapacityFullException extends RuntimeException {
 
-    CapacityFullException(String message) {
-        super(message);
+    public CapacityFullException(String message) {
+        super(message, null, false, false);
     }
 }
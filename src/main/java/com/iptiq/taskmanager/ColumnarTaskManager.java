@@ -0,0 +1,212 @@
+package com.iptiq.taskmanager;
+
+import com.iptiq.taskmanager.event.EventPipeline;
+import com.iptiq.taskmanager.event.LoggingEventListener;
+import com.iptiq.taskmanager.event.ProcessEvent;
+import com.iptiq.taskmanager.replacement.DefaultReplacementStrategy;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * A {@link TaskManager} variant for capacities of millions of processes.
+ *
+ * The task manager keeps no {@link Process} objects. It copies the pid, priority, start time and state of each
+ * admitted process into {@link ProcessColumns}, i.e. into primitive arrays, which are allocated once for the
+ * capacity. This takes about 50 bytes per process, including the indexes, and leaves the garbage collector
+ * nothing to trace, however many processes there are.
+ *
+ * Comparators run over the columns via flyweight processes, which read one row at a time:
+ * <ul>
+ *     <li>the processes are kept in a {@link RowHeap} in the {@link ReplacementStrategy#getReplacementOrder()
+ *     replacement order} of the strategy, so choosing a victim costs O(log n), as with the index of
+ *     {@link com.iptiq.taskmanager.replacement.FifoReplacementStrategy}. Strategies without such an order are
+ *     asked via {@link ReplacementStrategy#choose}, with processes created on demand. As there are no process
+ *     objects, strategies are not notified about added or removed processes.</li>
+ *     <li>listing picks the rows up to the end of the requested page via a bounded heap, ordered by the comparator
+ *     of the {@link ListOrder}, and creates processes only for the page.</li>
+ *     <li>selectors by pid are answered from the index of pids. Any other selector is tested against a flyweight,
+ *     and thus must neither keep nor kill the process it is given.</li>
+ * </ul>
+ *
+ * Hence the processes handed out by {@link #listProcesses(ListOrder)} are copies: they do not change once the
+ * process is killed, and killing them has no effect. Likewise, {@link #addProcess(Process)} copies the process it
+ * is given, and leaves it as it is, i.e. it is neither started nor killed. Like the concurrent and sharded
+ * variants, the task manager counts processes. It rejects processes with a weight, a time to live, a deadline or
+ * a task, as it has no columns for them.
+ */
+public class ColumnarTaskManager {
+
+    private static final int DEFAULT_CAPACITY = 10;
+
+    private final ReplacementStrategy replacementStrategy;
+    private final ProcessColumns columns;
+    private final ProcessColumns.Cursor cursor;
+    private final RowHeap victims;
+    private final Map<ListOrder, ProcessColumns.RowComparator> listOrders = new EnumMap<>(ListOrder.class);
+    private final EventPipeline events;
+    private final Clock clock;
+    private final MonotonicClock startClock;
+    private final int capacity;
+
+    public ColumnarTaskManager() {
+        this(new DefaultReplacementStrategy());
+    }
+
+    public ColumnarTaskManager(ReplacementStrategy replacementStrategy) {
+        this(replacementStrategy, DEFAULT_CAPACITY);
+    }
+
+    public ColumnarTaskManager(ReplacementStrategy replacementStrategy, int capacity) {
+        this(replacementStrategy, capacity, Clock.systemDefaultZone());
+    }
+
+    /**
+     * For testing purposes only, see {@link TaskManager#TaskManager(ReplacementStrategy, int, Clock)}.
+     */
+    ColumnarTaskManager(ReplacementStrategy replacementStrategy, int capacity, Clock clock) {
+        validate(replacementStrategy == null, "replacementStrategy cannot be null");
+        validate(capacity <= 0, "capacity must be a positive number");
+
+        this.replacementStrategy = replacementStrategy;
+        this.capacity = capacity;
+        this.clock = clock;
+        this.events = EventPipeline.forCapacity(capacity);
+        this.startClock = new MonotonicClock(clock);
+        this.columns = new ProcessColumns(capacity, clock.getZone());
+        events.addListener(new LoggingEventListener());
+        this.cursor = columns.new Cursor();
+        this.victims = replacementStrategy.getReplacementOrder()
+                .map(order -> new RowHeap(capacity, columns.comparing(order)))
+                .orElse(null);
+        for (var listOrder : ListOrder.values()) {
+            var order = listOrder.getComparator().thenComparing(ListOrder.BY_PID.getComparator());
+            listOrders.put(listOrder, columns.comparing(order));
+        }
+    }
+
+    /**
+     * Admits a copy of the process, see the note on copies above.
+     */
+    public synchronized void addProcess(Process process) throws CapacityFullException {
+        validate(process == null, "Process cannot be null");
+        validate(process.hasStarted(), "Cannot add an already started process");
+        validate(process.getWeight() != 1, "Process weight is not supported, every process counts as 1");
+        validate(process.getTtl() != null || process.getDeadline() != null, "Process expiry is not supported");
+        validate(process.getTask() != null, "Process tasks are not supported");
+        validate(columns.rowOf(process.getPid()) >= 0, "Process with the same pid is already active");
+
+        if (columns.size() >= capacity) {
+            int victim = chooseVictim(process);
+            if (victim < 0) {
+                events.publish(ProcessEvent.Type.REJECTED, process, clock);
+                throw new CapacityFullException("No free capacity to accept new processes.");
+            }
+            remove(victim, ProcessEvent.Type.EVICTED);
+        }
+
+        int row = columns.add(process, startClock.nanos(), startClock.nextSequence());
+        if (victims != null) {
+            victims.add(row);
+        }
+        events.publish(ProcessEvent.Type.STARTED, cursor.moveTo(row), clock);
+    }
+
+    /**
+     * @return the row of the process to replace, or -1 if the new process is to be rejected
+     */
+    private int chooseVictim(Process newProcess) {
+        if (victims != null) {
+            int candidate = victims.peek();
+            return candidate >= 0 && replacementStrategy.canReplace(cursor.moveTo(candidate), newProcess)
+                    ? candidate
+                    : -1;
+        }
+
+        return replacementStrategy.choose(columns.values(), newProcess)
+                .map(victim -> columns.rowOf(victim.getPid()))
+                .orElse(-1);
+    }
+
+    /**
+     * @return the pipeline, which delivers the lifecycle events of this task manager to its listeners
+     */
+    public EventPipeline getEventPipeline() {
+        return events;
+    }
+
+    public List<Process> listProcesses(ListOrder listOrder) {
+        return listProcesses(listOrder, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Lists a single page of the processes. Processes of the same priority are listed by pid.
+     */
+    public synchronized List<Process> listProcesses(ListOrder listOrder, int offset, int limit) {
+        validate(listOrder == null, "listOrder cannot be null");
+        validate(offset < 0, "offset cannot be negative");
+        validate(limit < 0, "limit cannot be negative");
+
+        int to = (int) Math.min(columns.size(), (long) offset + limit);
+        if (offset >= to) {
+            return new ArrayList<>();
+        }
+        var rows = columns.sortedRows(listOrders.get(listOrder), to);
+        var page = new ArrayList<Process>(to - offset);
+        for (int i = offset; i < to; i++) {
+            page.add(columns.materialize(rows[i]));
+        }
+        return page;
+    }
+
+    /**
+     * Kills all processes that match a specified selector. Selectors by pid look up their rows, any other selector
+     * is tested in a single pass over the columns.
+     * @param selector a predicate that selects which processes to kill. Please, see {@link Selectors} for possible
+     * @return a list of pid-s for all killed processes
+     */
+    public synchronized List<Integer> kill(Predicate<Process> selector) {
+        validate(selector == null, "selector cannot be null");
+
+        var killedPids = new ArrayList<Integer>();
+        var pids = Selectors.pidsOf(selector);
+        if (pids != null) {
+            for (int pid : pids) {
+                int row = columns.rowOf(pid);
+                if (row >= 0) {
+                    killedPids.add(pid);
+                    remove(row, ProcessEvent.Type.KILLED);
+                }
+            }
+            return killedPids;
+        }
+
+        for (int row = 0; row < columns.rowLimit(); row++) {
+            if (columns.isRunning(row) && selector.test(cursor.moveTo(row))) {
+                killedPids.add(cursor.getPid());
+                remove(row, ProcessEvent.Type.KILLED);
+            }
+        }
+        return killedPids;
+    }
+
+    private void remove(int row, ProcessEvent.Type type) {
+        // events copy what the flyweight reads from the row, and the constants of its other fields, so it needs no copy
+        events.publish(type, cursor.moveTo(row), clock);
+        if (victims != null) {
+            victims.remove(row);
+        }
+        columns.remove(row);
+    }
+
+    private static void validate(boolean condition, String message) {
+        if (condition) {
+            throw new IllegalArgumentException(message);
+        }
+    }
+
+}
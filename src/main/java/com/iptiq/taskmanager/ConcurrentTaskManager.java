@@ -0,0 +1,183 @@
+package com.iptiq.taskmanager;
+
+import com.iptiq.taskmanager.event.EventPipeline;
+import com.iptiq.taskmanager.event.LoggingEventListener;
+import com.iptiq.taskmanager.event.ProcessEvent;
+import com.iptiq.taskmanager.replacement.DefaultReplacementStrategy;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * A {@link TaskManager} variant for callers that add and kill processes from many threads.
+ *
+ * There is no global lock. The processes are kept in a {@link ConcurrentHashMap}, and the number of
+ * occupied slots is tracked by an atomic counter, which a new process increments before it is added.
+ * When the counter has reached the capacity, the new process has to take over the slot of a victim chosen
+ * by the {@link ReplacementStrategy}. Only the thread that manages to remove the victim from the map may
+ * take over its slot. The others retry with a new victim.
+ *
+ * A new process reserves its pid before it acquires a slot, so that two threads adding the same pid never
+ * both evict a victim, only for one of them to find the pid taken afterwards.
+ *
+ * The configured {@link ReplacementStrategy} must be thread-safe, which holds for all strategies
+ * in {@link com.iptiq.taskmanager.replacement}.
+ *
+ * The task manager counts processes, and neither expires them nor runs their tasks. Thus it rejects processes
+ * with a weight, a time to live, a deadline or a task.
+ */
+public class ConcurrentTaskManager {
+
+    private static final int DEFAULT_CAPACITY = 10;
+
+    private final ReplacementStrategy replacementStrategy;
+    private final ConcurrentMap<Integer, Process> processes;
+    // pids of the processes that are being added, which are reserved until the process is in the map
+    private final Set<Integer> reservedPids = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger occupiedSlots = new AtomicInteger();
+    private final EventPipeline events;
+    private final Clock clock;
+    private final MonotonicClock startClock;
+    private final int capacity;
+
+    public ConcurrentTaskManager() {
+        this(new DefaultReplacementStrategy());
+    }
+
+    public ConcurrentTaskManager(ReplacementStrategy replacementStrategy) {
+        this(replacementStrategy, DEFAULT_CAPACITY, Clock.systemDefaultZone());
+    }
+
+    /**
+     * For testing purposes only, see {@link TaskManager#TaskManager(ReplacementStrategy, int, Clock)}.
+     */
+    ConcurrentTaskManager(ReplacementStrategy replacementStrategy, int capacity, Clock clock) {
+        validate(replacementStrategy == null, "replacementStrategy cannot be null");
+        validate(capacity <= 0, "capacity must be a positive number");
+
+        this.replacementStrategy = replacementStrategy;
+        this.capacity = capacity;
+        this.clock = clock;
+        this.events = EventPipeline.forCapacity(capacity);
+        this.startClock = new MonotonicClock(clock);
+        this.processes = new ConcurrentHashMap<>(capacity);
+        events.addListener(new LoggingEventListener());
+    }
+
+    public void addProcess(Process process) throws CapacityFullException {
+        validate(process == null, "Process cannot be null");
+        validate(process.hasStarted(), "Cannot add an already started process");
+        validate(process.getWeight() != 1, "Process weight is not supported, every process counts as 1");
+        validate(process.getTtl() != null || process.getDeadline() != null, "Process expiry is not supported");
+        validate(process.getTask() != null, "Process tasks are not supported");
+        validate(!reservedPids.add(process.getPid()), "Process with the same pid is already active");
+
+        try {
+            // only the thread holding the reservation may add the pid, so it cannot be taken after this check
+            validate(processes.containsKey(process.getPid()), "Process with the same pid is already active");
+
+            acquireSlot(process);
+
+            startInternal(process);
+            processes.put(process.getPid(), process);
+        } finally {
+            reservedPids.remove(process.getPid());
+        }
+
+        replacementStrategy.onProcessAdded(process);
+        if (processes.get(process.getPid()) != process) {
+            // The process got killed before the strategy has been notified about it
+            replacementStrategy.onProcessRemoved(process);
+        }
+    }
+
+    /**
+     * Makes sure there is a free slot for the new process, by either occupying an unused one,
+     * or by taking over the slot of a replaced process.
+     */
+    private void acquireSlot(Process newProcess) {
+        while (true) {
+            int occupied = occupiedSlots.get();
+            if (occupied < capacity) {
+                if (occupiedSlots.compareAndSet(occupied, occupied + 1)) {
+                    return;
+                }
+                continue;
+            }
+
+            var replacedOptional = replacementStrategy.choose(processes.values(), newProcess);
+            if (replacedOptional.isEmpty()) {
+                events.publish(ProcessEvent.Type.REJECTED, newProcess, clock);
+                throw new CapacityFullException("No free capacity to accept new processes.");
+            }
+
+            var replacedProcess = replacedOptional.get();
+            if (processes.remove(replacedProcess.getPid(), replacedProcess)) {
+                replacementStrategy.onProcessRemoved(replacedProcess);
+                killInternal(replacedProcess, ProcessEvent.Type.EVICTED);
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return the pipeline, which delivers the lifecycle events of this task manager to its listeners
+     */
+    public EventPipeline getEventPipeline() {
+        return events;
+    }
+
+    public List<Process> listProcesses(ListOrder listOrder) {
+        validate(listOrder == null, "listOrder cannot be null");
+
+        return processes.values().stream()
+                .sorted(listOrder.getComparator())
+                .collect(toList());
+    }
+
+    /**
+     * Kills all processes that match a specified selector.
+     * @param selector a predicate that selects which processes to kill. Please, see {@link Selectors} for possible
+     * @return a list of pid-s for all killed processes
+     */
+    public List<Integer> kill(Predicate<Process> selector) {
+        validate(selector == null, "selector cannot be null");
+
+        var killedPids = new ArrayList<Integer>();
+        for (var process : processes.values()) {
+            if (selector.test(process) && processes.remove(process.getPid(), process)) {
+                occupiedSlots.decrementAndGet();
+                replacementStrategy.onProcessRemoved(process);
+                killInternal(process, ProcessEvent.Type.KILLED);
+                killedPids.add(process.getPid());
+            }
+        }
+
+        return killedPids;
+    }
+
+    private void startInternal(Process process) {
+        process.start(startClock);
+        events.publish(ProcessEvent.Type.STARTED, process, clock);
+    }
+
+    private void killInternal(Process process, ProcessEvent.Type type) {
+        process.kill();
+        events.publish(type, process, clock);
+    }
+
+    private static void validate(boolean condition, String message) {
+        if (condition) {
+            throw new IllegalArgumentException(message);
+        }
+    }
+
+}
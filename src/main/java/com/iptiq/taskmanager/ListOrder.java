@@ -2,16 +2,16 @@ package com.iptiq.taskmanager;
 
 import java.util.Comparator;
 
-import static java.util.Comparator.comparing;
+import static java.util.Comparator.comparingInt;
 
 /**
  * An enum helping callers to specify their sorting preferences in
  * {@link TaskManager#listProcesses(ListOrder)}.
  */
 public enum ListOrder {
-    BY_PID(comparing(Process::getPid)),
-    BY_PRIORITY(comparing(Process::getPriority)),
-    BY_TIME_STARTED(comparing(Process::getTimeStarted));
+    BY_PID(comparingInt(Process::getPid)),
+    BY_PRIORITY(comparingInt(Process::getPriority)),
+    BY_TIME_STARTED(Process.START_ORDER);
 
     private final Comparator<Process> comparator;
 
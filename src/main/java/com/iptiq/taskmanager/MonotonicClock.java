@@ -0,0 +1,70 @@
+package com.iptiq.taskmanager;
+
+import java.time.Clock;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The source of the start timestamps and admission sequence numbers of a task manager.
+ *
+ * Timestamps are nanoseconds since the epoch, which never go backwards. For the system clock, they are
+ * taken from {@link System#nanoTime()}, and anchored to the wall clock once, when the task manager is created.
+ * Thus adjusting the wall clock later on does not affect the order of processes. Any other clock (e.g. a
+ * fixed clock in tests) is followed as it is, except that it is not allowed to go backwards.
+ *
+ * Neither reading the time nor drawing a sequence number allocates.
+ */
+class MonotonicClock {
+
+    private final Clock clock;
+    private final boolean system;
+    private final long originEpochNanos;
+    private final long originNanoTime;
+    private long floorNanos = Long.MIN_VALUE;
+
+    private final AtomicLong latest = new AtomicLong(Long.MIN_VALUE);
+    private final AtomicLong sequence = new AtomicLong();
+
+    MonotonicClock(Clock clock) {
+        this.clock = clock;
+        this.system = clock.withZone(ZoneOffset.UTC).equals(Clock.systemUTC());
+        this.originEpochNanos = system ? clock.millis() * 1_000_000 : 0;
+        this.originNanoTime = system ? System.nanoTime() : 0;
+    }
+
+    /**
+     * @return the current time in nanoseconds since the epoch, which is never less than a previous result
+     */
+    long nanos() {
+        if (system) {
+            return Math.max(originEpochNanos + (System.nanoTime() - originNanoTime), floorNanos);
+        }
+        return latest.accumulateAndGet(clock.millis() * 1_000_000, Math::max);
+    }
+
+    /**
+     * Continues after a process restored from before a restart, i.e. later timestamps and sequence numbers
+     * are not less than its ones, even if the wall clock has gone backwards in the meantime. Must be called
+     * before the clock is shared with other threads.
+     */
+    void restore(long startNanos, long startSequence) {
+        floorNanos = Math.max(floorNanos, startNanos);
+        latest.accumulateAndGet(startNanos, Math::max);
+        sequence.accumulateAndGet(startSequence, Math::max);
+    }
+
+    /**
+     * @return the time zone of the clock, in which start times are shown
+     */
+    ZoneId getZone() {
+        return clock.getZone();
+    }
+
+    /**
+     * @return the next admission sequence number, starting with 1
+     */
+    long nextSequence() {
+        return sequence.incrementAndGet();
+    }
+}
@@ -1,23 +1,56 @@
 package com.iptiq.taskmanager;
 
 import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
+import lombok.Setter;
 import lombok.ToString;
-import lombok.extern.slf4j.Slf4j;
 
 import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Comparator;
 
 /**
  * Represents a managed process.
+ *
+ * The start of a process is recorded as two primitives: a monotonic timestamp in nanoseconds since the epoch,
+ * and the admission sequence number assigned by the task manager. The wall clock time is only derived from
+ * them, when asked for via {@link #getTimeStarted()}, in the time zone of the clock the process has been started on.
+ *
+ * A process may carry a task, which the {@link TaskManager} runs from the moment it admits the process. Killing
+ * the process interrupts the task, and once the task completes, the process is removed on its own. A process
+ * without a task runs until it is killed.
+ *
+ * The weight of a process is its share of the capacity of the task manager, e.g. its memory footprint in some
+ * unit. It is 1 unless declared otherwise, i.e. by default the capacity counts processes.
+ *
+ * A process may expire after a time to live, counted from its admission, or at an absolute deadline, whichever
+ * comes first. The {@link TaskManager} then kills it on its own. On admission, both are resolved into a single
+ * point in time, {@link #getExpiresAt()}, which is what gets persisted.
  */
 @Getter
 @Builder
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
 @ToString
-@Slf4j
 public class Process {
 
+    /**
+     * Orders processes by the time they have been started. Processes started within the same nanosecond
+     * are ordered by admission.
+     */
+    public static final Comparator<Process> START_ORDER = Comparator
+            .comparingLong(Process::getStartNanos)
+            .thenComparingLong(Process::getStartSequence);
+
+    /**
+     * The value of {@link #getExpiresAt()} for processes that never expire.
+     */
+    public static final long NEVER = Long.MAX_VALUE;
+
     static enum State {
         INIT,
         RUNNING,
@@ -26,11 +59,68 @@ public class Process {
 
     private final int pid;
     private final int priority;
-    private LocalDateTime timeStarted;
+
+    @Builder.Default
+    private final int weight = 1;
+    private long startNanos;
+    private long startSequence;
+
+    /**
+     * The body of the process, or null if it has none. Restored processes never have one.
+     */
+    @ToString.Exclude
+    private final Runnable task;
+
+    /**
+     * How long the process may run from its admission, or null if it may run forever.
+     */
+    private final Duration ttl;
+
+    /**
+     * The time, at which the process expires at the latest, or null if there is none.
+     */
+    private final Instant deadline;
+
+    /**
+     * The time in milliseconds since the epoch, at which the process expires, or {@link #NEVER}. Set on admission.
+     */
+    @Builder.Default
+    private long expiresAt = NEVER;
+
+    /**
+     * The pending expiry in the timing wheel of the task manager, or null if there is none.
+     */
+    @Getter(value=AccessLevel.PACKAGE)
+    @Setter(value=AccessLevel.PACKAGE)
+    @ToString.Exclude
+    private TimingWheel.Timeout<Process> expiry;
+
+    /**
+     * The time zone of the clock the process has been started on, or null if it has not been started.
+     */
+    @Getter(value=AccessLevel.NONE)
+    @ToString.Exclude
+    private ZoneId zone;
 
     @Getter(value=AccessLevel.NONE)
     @Builder.Default
-    private State state = State.INIT;
+    private volatile State state = State.INIT;
+
+    /**
+     * Creates a flyweight, i.e. a subclass that reads its pid, priority and start from elsewhere, see
+     * {@link ProcessColumns}. Its own fields are those of a running process of weight 1, without a task and
+     * without an expiry, which are what it reports unless it overrides their getters.
+     */
+    Process() {
+        this.pid = 0;
+        this.priority = 0;
+        this.weight = 1;
+        this.task = null;
+        this.ttl = null;
+        this.deadline = null;
+        this.expiresAt = NEVER;
+        this.state = State.RUNNING;
+    }
 
     public boolean hasStarted() {
         return state != State.INIT;
@@ -40,17 +130,68 @@ public class Process {
         return state == State.DEAD;
     }
 
+    /**
+     * @return the time the process has been started, in the time zone of the clock it has been started on, or null
+     *         if it has not been started
+     */
+    public LocalDateTime getTimeStarted() {
+        if (!hasStarted()) {
+            return null;
+        }
+        return LocalDateTime.ofInstant(Instant.ofEpochSecond(0, startNanos), zone);
+    }
+
+    /**
+     * Starts the process at the current time of the clock. Task managers use their own monotonic
+     * timeline instead, and assign an admission sequence number.
+     */
     public void start(Clock clock) {
+        start(clock.millis() * 1_000_000, 0, NEVER, clock.getZone());
+    }
+
+    void start(MonotonicClock clock) {
+        start(clock.nanos(), clock.nextSequence(), NEVER, clock.getZone());
+    }
+
+    /**
+     * @param expiresAt the time in milliseconds since the epoch, at which the process expires
+     */
+    void start(MonotonicClock clock, long expiresAt) {
+        start(clock.nanos(), clock.nextSequence(), expiresAt, clock.getZone());
+    }
+
+    private void start(long nanos, long sequence, long expiresAt, ZoneId zone) {
         if (hasStarted()) {
             throw new IllegalStateException("Process was already started");
         }
 
+        // the volatile write of the state publishes the start time to other threads
+        startNanos = nanos;
+        startSequence = sequence;
+        this.expiresAt = expiresAt;
+        this.zone = zone;
         state = State.RUNNING;
-        timeStarted = LocalDateTime.now(clock);
+    }
+
+    /**
+     * Recreates a process that has been running before a restart.
+     * @param zone the time zone of the clock of the task manager it is restored into
+     */
+    static Process restore(int pid, int priority, int weight, long startNanos, long startSequence, long expiresAt,
+                           ZoneId zone) {
+        return Process.builder()
+                .pid(pid)
+                .priority(priority)
+                .weight(weight)
+                .startNanos(startNanos)
+                .startSequence(startSequence)
+                .expiresAt(expiresAt)
+                .zone(zone)
+                .state(State.RUNNING)
+                .build();
     }
 
     public void kill() {
-        log.info("Killed process: " + toString());
         state = State.DEAD;
     }
 
@@ -0,0 +1,28 @@
+package com.iptiq.taskmanager;
+
+import com.iptiq.taskmanager.event.ProcessEvent;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * A process that has been added to, or removed from, the process table of a task manager, as delivered by a
+ * {@link ProcessWatch}. The type is {@link ProcessEvent.Type#STARTED} for an added process, and
+ * {@link ProcessEvent.Type#KILLED}, {@link ProcessEvent.Type#EVICTED} or {@link ProcessEvent.Type#FINISHED}
+ * for a removed one.
+ */
+@Getter
+@ToString
+public class ProcessChange {
+
+    private final ProcessEvent.Type type;
+    private final Process process;
+
+    ProcessChange(ProcessEvent.Type type, Process process) {
+        this.type = type;
+        this.process = process;
+    }
+
+    public boolean isRemoval() {
+        return type != ProcessEvent.Type.STARTED;
+    }
+}
@@ -0,0 +1,402 @@
+package com.iptiq.taskmanager;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * The running processes of a {@link ColumnarTaskManager}, stored as columns of primitive arrays rather than
+ * as objects.
+ *
+ * Each process occupies a row: its pid, priority, start time, admission sequence number and state are the
+ * elements at the index of the row in the respective array. Rows of removed processes are reused, so the arrays
+ * are allocated once for the capacity, and the garbage collector has a handful of arrays to deal with, no matter
+ * how many processes there are. The row of a pid is found via an open-addressing index, like in
+ * {@link ProcessTable}.
+ *
+ * A {@link Cursor} is a {@link Process} that reads the row it is positioned on. Comparators of processes, e.g.
+ * those of {@link ListOrder} and {@link ReplacementStrategy#getReplacementOrder()}, thus run directly over the
+ * columns, without creating an object per process. Processes handed out to callers are created on demand.
+ *
+ * The columns are not thread-safe.
+ */
+class ProcessColumns {
+
+    private static final int GOLDEN_RATIO = 0x9E3779B9;
+    private static final int MAX_CAPACITY = 1 << 28;
+
+    private static final byte FREE = 0;
+    private static final byte RUNNING = 1;
+
+    private final int[] pids;
+    private final int[] priorities;
+    private final long[] startNanos;
+    private final long[] startSequences;
+    private final byte[] states;
+    // the time zone of the clock of the task manager, in which start times are shown
+    private final ZoneId zone;
+
+    // rows that are free for reuse, as a stack
+    private final int[] freeRows;
+    private int freeCount;
+    private int rowLimit;
+    private int size;
+
+    // the index from pid to row; a slot holds the row + 1, or 0 if it is empty
+    private final int[] slotPids;
+    private final int[] slotRows;
+    private final int shift;
+
+    ProcessColumns(int capacity, ZoneId zone) {
+        if (capacity <= 0 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("capacity must be between 1 and " + MAX_CAPACITY);
+        }
+
+        pids = new int[capacity];
+        priorities = new int[capacity];
+        startNanos = new long[capacity];
+        startSequences = new long[capacity];
+        states = new byte[capacity];
+        this.zone = zone;
+        freeRows = new int[capacity];
+        for (int row = 0; row < capacity; row++) {
+            freeRows[row] = capacity - 1 - row;
+        }
+        freeCount = capacity;
+
+        // a load factor of at most 1/2, as in ProcessTable
+        int length = Math.max(8, Integer.highestOneBit(capacity) << 2);
+        slotPids = new int[length];
+        slotRows = new int[length];
+        shift = Integer.SIZE - Integer.numberOfTrailingZeros(length);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the upper bound of the rows in use, i.e. a scan over the rows may stop there
+     */
+    int rowLimit() {
+        return rowLimit;
+    }
+
+    boolean isRunning(int row) {
+        return states[row] == RUNNING;
+    }
+
+    /**
+     * @return the row of the process with the given pid, or -1 if there is none
+     */
+    int rowOf(int pid) {
+        int mask = slotPids.length - 1;
+        for (int i = slot(pid); slotRows[i] != 0; i = (i + 1) & mask) {
+            if (slotPids[i] == pid) {
+                return slotRows[i] - 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Copies the pid and the priority of a process into a free row, and starts it there. The process itself is
+     * left as it is.
+     * @return the row
+     */
+    int add(Process process, long startNanos, long startSequence) {
+        if (freeCount == 0) {
+            throw new IllegalStateException("No free row left");
+        }
+
+        int row = freeRows[--freeCount];
+        pids[row] = process.getPid();
+        priorities[row] = process.getPriority();
+        this.startNanos[row] = startNanos;
+        startSequences[row] = startSequence;
+        states[row] = RUNNING;
+        rowLimit = Math.max(rowLimit, row + 1);
+        size++;
+
+        int mask = slotPids.length - 1;
+        int i = slot(process.getPid());
+        while (slotRows[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        slotPids[i] = process.getPid();
+        slotRows[i] = row + 1;
+        return row;
+    }
+
+    void remove(int row) {
+        int mask = slotPids.length - 1;
+        int i = slot(pids[row]);
+        while (slotRows[i] != row + 1) {
+            i = (i + 1) & mask;
+        }
+        delete(i);
+
+        states[row] = FREE;
+        freeRows[freeCount++] = row;
+        size--;
+    }
+
+    /**
+     * @return a new process with the contents of the row, which callers may keep
+     */
+    Process materialize(int row) {
+        return Process.restore(pids[row], priorities[row], 1, startNanos[row], startSequences[row],
+                Process.NEVER, zone);
+    }
+
+    /**
+     * @return a comparator of rows, which compares the processes in them by the given order
+     */
+    RowComparator comparing(Comparator<Process> order) {
+        var left = new Cursor();
+        var right = new Cursor();
+        return (leftRow, rightRow) -> order.compare(left.moveTo(leftRow), right.moveTo(rightRow));
+    }
+
+    /**
+     * @return the rows in use, sorted by the comparator
+     */
+    int[] sortedRows(RowComparator comparator) {
+        var rows = new int[size];
+        int count = 0;
+        for (int row = 0; row < rowLimit; row++) {
+            if (isRunning(row)) {
+                rows[count++] = row;
+            }
+        }
+        mergeSort(rows, new int[size], 0, size, comparator);
+        return rows;
+    }
+
+    /**
+     * @return the first rows in use, at most count of them, sorted by the comparator. Unless all rows are asked
+     *         for, they are picked via a bounded heap, which costs O(n log count) rather than a sort of all rows.
+     */
+    int[] sortedRows(RowComparator comparator, int count) {
+        if (count >= size) {
+            return sortedRows(comparator);
+        }
+
+        // a max-heap of the first rows seen so far, whose root is the first to make way
+        var heap = new int[count];
+        int heapSize = 0;
+        for (int row = 0; row < rowLimit && count > 0; row++) {
+            if (!isRunning(row)) {
+                continue;
+            }
+            if (heapSize < count) {
+                heap[heapSize] = row;
+                siftUp(heap, heapSize++, comparator);
+            } else if (comparator.compare(row, heap[0]) < 0) {
+                heap[0] = row;
+                siftDown(heap, count, comparator);
+            }
+        }
+        mergeSort(heap, new int[count], 0, count, comparator);
+        return heap;
+    }
+
+    private static void siftUp(int[] heap, int position, RowComparator comparator) {
+        int row = heap[position];
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (comparator.compare(heap[parent], row) >= 0) {
+                break;
+            }
+            heap[position] = heap[parent];
+            position = parent;
+        }
+        heap[position] = row;
+    }
+
+    private static void siftDown(int[] heap, int size, RowComparator comparator) {
+        int position = 0;
+        int row = heap[position];
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && comparator.compare(heap[child + 1], heap[child]) > 0) {
+                child++;
+            }
+            if (comparator.compare(row, heap[child]) >= 0) {
+                break;
+            }
+            heap[position] = heap[child];
+            position = child;
+        }
+        heap[position] = row;
+    }
+
+    /**
+     * @return a read-only view of the processes, which creates each process on demand
+     */
+    Collection<Process> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<Process> iterator() {
+                return new Iterator<>() {
+                    private int next = advance(0);
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < rowLimit;
+                    }
+
+                    @Override
+                    public Process next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        var process = materialize(next);
+                        next = advance(next + 1);
+                        return process;
+                    }
+
+                    private int advance(int row) {
+                        while (row < rowLimit && !isRunning(row)) {
+                            row++;
+                        }
+                        return row;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private static void mergeSort(int[] rows, int[] buffer, int from, int to, RowComparator comparator) {
+        if (to - from < 2) {
+            return;
+        }
+
+        int middle = (from + to) >>> 1;
+        mergeSort(rows, buffer, from, middle, comparator);
+        mergeSort(rows, buffer, middle, to, comparator);
+        if (comparator.compare(rows[middle - 1], rows[middle]) <= 0) {
+            return;
+        }
+
+        System.arraycopy(rows, from, buffer, from, to - from);
+        int left = from;
+        int right = middle;
+        for (int i = from; i < to; i++) {
+            if (right >= to || left < middle && comparator.compare(buffer[left], buffer[right]) <= 0) {
+                rows[i] = buffer[left++];
+            } else {
+                rows[i] = buffer[right++];
+            }
+        }
+    }
+
+    /**
+     * Empties slot i of the index, shifting subsequent entries backwards, as in {@link ProcessTable}.
+     */
+    private void delete(int i) {
+        int mask = slotPids.length - 1;
+        int gap = i;
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            if (slotRows[j] == 0) {
+                break;
+            }
+
+            int home = slot(slotPids[j]);
+            if (((gap - home) & mask) < ((j - home) & mask)) {
+                slotPids[gap] = slotPids[j];
+                slotRows[gap] = slotRows[j];
+                gap = j;
+            }
+        }
+        slotRows[gap] = 0;
+    }
+
+    private int slot(int pid) {
+        return (pid * GOLDEN_RATIO) >>> shift;
+    }
+
+    /**
+     * Compares two rows.
+     */
+    interface RowComparator {
+
+        int compare(int leftRow, int rightRow);
+    }
+
+    /**
+     * A flyweight process, which reads the row it has been moved to. It is only valid until it is moved, or the
+     * row is removed, and thus must never be kept. It cannot be killed, see
+     * {@link ReplacementStrategy#getReplacementOrder()}.
+     */
+    class Cursor extends Process {
+
+        private int row;
+
+        Cursor moveTo(int row) {
+            this.row = row;
+            return this;
+        }
+
+        @Override
+        public int getPid() {
+            return pids[row];
+        }
+
+        @Override
+        public int getPriority() {
+            return priorities[row];
+        }
+
+        @Override
+        public long getStartNanos() {
+            return startNanos[row];
+        }
+
+        @Override
+        public long getStartSequence() {
+            return startSequences[row];
+        }
+
+        @Override
+        public boolean hasStarted() {
+            return states[row] != FREE;
+        }
+
+        @Override
+        public boolean isFinished() {
+            return states[row] == FREE;
+        }
+
+        @Override
+        public LocalDateTime getTimeStarted() {
+            return LocalDateTime.ofInstant(Instant.ofEpochSecond(0, startNanos[row]), zone);
+        }
+
+        @Override
+        public void kill() {
+            throw new UnsupportedOperationException("Processes are killed via the task manager");
+        }
+
+        @Override
+        public String toString() {
+            return "Process(pid=" + getPid() + ", priority=" + getPriority() + ", startNanos=" + getStartNanos()
+                    + ", startSequence=" + getStartSequence() + ")";
+        }
+    }
+}
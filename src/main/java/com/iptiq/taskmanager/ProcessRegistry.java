@@ -0,0 +1,241 @@
+package com.iptiq.taskmanager;
+
+import com.iptiq.taskmanager.util.SortedLists;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+
+/**
+ * The running processes of a {@link TaskManager}, indexed by pid, and bucketed by priority.
+ *
+ * Selectors created by {@link Selectors} are answered from these indexes. Any other predicate
+ * has to be tested against every process.
+ *
+ * The registry also keeps the processes in each {@link ListOrder}, so that listing is a walk over
+ * an index rather than a sort. Each order is maintained in a sorted set, which costs O(log n) for every add and
+ * remove. Processes that tie in an order are listed by pid, whether the listing is filtered or not, i.e. the
+ * priority order is kept by (priority, pid), apart from the buckets, which answer selectors by priority.
+ *
+ * The registry is not thread-safe.
+ */
+class ProcessRegistry {
+
+    private final ProcessTable byPid;
+    private final NavigableMap<Integer, ProcessTable> byPriority = new TreeMap<>();
+    private NavigableSet<Process> inPidOrder = new TreeSet<>(ListOrder.BY_PID.getComparator());
+    private NavigableSet<Process> inStartOrder = new TreeSet<>(order(ListOrder.BY_TIME_STARTED));
+    private NavigableSet<Process> inPriorityOrder = new TreeSet<>(order(ListOrder.BY_PRIORITY));
+
+    ProcessRegistry(int expectedSize) {
+        this.byPid = new ProcessTable(expectedSize);
+    }
+
+    int size() {
+        return byPid.size();
+    }
+
+    boolean contains(int pid) {
+        return byPid.containsKey(pid);
+    }
+
+    Collection<Process> values() {
+        return byPid.values();
+    }
+
+    void add(Process process) {
+        byPid.put(process);
+        byPriority.computeIfAbsent(process.getPriority(), priority -> new ProcessTable())
+                .put(process);
+        inPidOrder.add(process);
+        inStartOrder.add(process);
+        inPriorityOrder.add(process);
+    }
+
+    /**
+     * Adds many processes to an empty registry. The sorted indexes are built in linear time, after the processes
+     * have been sorted, which is cheap if they are sorted already, e.g. in the order they have been started.
+     */
+    void addAll(List<Process> processes) {
+        if (size() > 0) {
+            processes.forEach(this::add);
+            return;
+        }
+
+        for (var process : processes) {
+            if (byPid.put(process) != null) {
+                throw new IllegalStateException("Cannot add process " + process.getPid() + " twice");
+            }
+            byPriority.computeIfAbsent(process.getPriority(), priority -> new ProcessTable())
+                    .put(process);
+        }
+
+        var sorted = new ArrayList<>(processes);
+        sorted.sort(inStartOrder.comparator());
+        inStartOrder = new TreeSet<>(SortedLists.asSortedSet(sorted, inStartOrder.comparator()));
+        sorted.sort(inPidOrder.comparator());
+        inPidOrder = new TreeSet<>(SortedLists.asSortedSet(sorted, inPidOrder.comparator()));
+        sorted.sort(inPriorityOrder.comparator());
+        inPriorityOrder = new TreeSet<>(SortedLists.asSortedSet(sorted, inPriorityOrder.comparator()));
+    }
+
+    void remove(Process process) {
+        byPid.remove(process.getPid());
+
+        var bucket = byPriority.get(process.getPriority());
+        bucket.remove(process.getPid());
+        if (bucket.isEmpty()) {
+            byPriority.remove(process.getPriority());
+        }
+        inPidOrder.remove(process);
+        inStartOrder.remove(process);
+        inPriorityOrder.remove(process);
+    }
+
+    /**
+     * @return at most limit processes in the given order, after skipping the first offset ones
+     */
+    List<Process> list(ListOrder listOrder, int offset, int limit) {
+        var page = new ArrayList<Process>(Math.max(0, Math.min(limit, size() - offset)));
+        if (page.size() == limit || offset >= size()) {
+            return page;
+        }
+
+        switch (listOrder) {
+            case BY_PID:
+                addPage(inPidOrder, offset, limit, page);
+                break;
+            case BY_TIME_STARTED:
+                addPage(inStartOrder, offset, limit, page);
+                break;
+            case BY_PRIORITY:
+                addPage(inPriorityOrder, offset, limit, page);
+                break;
+        }
+        return page;
+    }
+
+    /**
+     * @return true if the page is complete, i.e. the limit has been reached
+     */
+    private static boolean addPage(Collection<Process> processes, int offset, int limit, List<Process> page) {
+        int skip = offset;
+        int remaining = limit;
+        for (var process : processes) {
+            if (remaining == 0) {
+                return true;
+            }
+            if (skip > 0) {
+                skip--;
+                continue;
+            }
+            page.add(process);
+            remaining--;
+        }
+        return remaining == 0;
+    }
+
+    /**
+     * @return all processes matching the selector. The result is a copy, i.e. the caller may remove the
+     *         selected processes while iterating it.
+     */
+    List<Process> select(Predicate<Process> selector) {
+        if (selector instanceof Selectors.IndexedSelector) {
+            return ((Selectors.IndexedSelector) selector).select(this);
+        }
+        return scan(selector);
+    }
+
+    List<Process> all() {
+        return new ArrayList<>(byPid.values());
+    }
+
+    List<Process> byPid(int pid) {
+        var process = byPid.get(pid);
+        return process == null ? List.of() : List.of(process);
+    }
+
+    /**
+     * @return the processes with a priority within the inclusive range
+     */
+    List<Process> byPriority(int fromPriority, int toPriority) {
+        var selected = new ArrayList<Process>();
+        if (fromPriority <= toPriority) {
+            for (var bucket : byPriority.subMap(fromPriority, true, toPriority, true).values()) {
+                selected.addAll(bucket.values());
+            }
+        }
+        return selected;
+    }
+
+    int countByPriority(int fromPriority, int toPriority) {
+        int count = 0;
+        if (fromPriority <= toPriority) {
+            for (var bucket : byPriority.subMap(fromPriority, true, toPriority, true).values()) {
+                count += bucket.size();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @param fromNanos the inclusive lower bound of the start time
+     * @param toNanos the exclusive upper bound of the start time
+     * @return a view of the processes started within the range, in the order they have been started
+     */
+    NavigableSet<Process> startedBetween(long fromNanos, long toNanos) {
+        if (fromNanos >= toNanos) {
+            return Collections.emptyNavigableSet();
+        }
+        return inStartOrder.subSet(startedAt(fromNanos), true, startedAt(toNanos), false);
+    }
+
+    /**
+     * @return a stand-in that sorts before all processes started at the given time
+     */
+    private static Process startedAt(long nanos) {
+        return Process.builder()
+                .pid(Integer.MIN_VALUE)
+                .startNanos(nanos)
+                .startSequence(Long.MIN_VALUE)
+                .build();
+    }
+
+    /**
+     * Lists a single page of the processes matching the selector. The matching processes are looked up as for
+     * {@link #select(Predicate)}, and only they are sorted.
+     */
+    List<Process> list(ListOrder listOrder, Predicate<Process> selector, int offset, int limit) {
+        if (selector == Selectors.all()) {
+            return list(listOrder, offset, limit);
+        }
+
+        var selected = select(selector);
+        if (offset >= selected.size()) {
+            return new ArrayList<>();
+        }
+        selected.sort(order(listOrder));
+        return new ArrayList<>(selected.subList(offset, (int) Math.min(selected.size(), (long) offset + limit)));
+    }
+
+    private static Comparator<Process> order(ListOrder listOrder) {
+        return listOrder.getComparator().thenComparingInt(Process::getPid);
+    }
+
+    List<Process> scan(Predicate<Process> selector) {
+        var selected = new ArrayList<Process>();
+        for (var process : byPid.values()) {
+            if (selector.test(process)) {
+                selected.add(process);
+            }
+        }
+        return selected;
+    }
+}
@@ -0,0 +1,372 @@
+package com.iptiq.taskmanager;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
+
+/**
+ * A map from pid to {@link Process}, specialized for the registry of running processes.
+ *
+ * Unlike {@code HashMap<Integer, Process>} it neither boxes the pid, nor allocates a node per entry.
+ * The pids and the processes live in two parallel arrays, which are probed linearly starting at the
+ * (Fibonacci-)hashed pid. Removal shifts the subsequent entries of the probe sequence backwards,
+ * so there are no tombstones, and lookups never degrade after many removals.
+ *
+ * When the table grows, the entries are not rehashed all at once, which would stall the operation that happens
+ * to trigger it for O(n). Instead, the previous arrays are kept until each following put or remove has moved a
+ * few of their slots over to the new ones. Meanwhile, lookups probe both, and removals from the previous arrays
+ * leave a tombstone, so that their probe sequences stay intact while they are being drained.
+ *
+ * The table is not thread-safe.
+ */
+class ProcessTable {
+
+    private static final int MIN_CAPACITY = 8;
+    private static final int MAX_CAPACITY = 1 << 30;
+    private static final int GOLDEN_RATIO = 0x9E3779B9;
+    // the number of slots of the previous arrays moved over by each put or remove, while growing
+    private static final int MIGRATION_STEP = 8;
+    private static final Process TOMBSTONE = Process.builder().build();
+
+    private int[] pids;
+    private Process[] processes;
+    private int shift;
+    private int size;
+
+    // the arrays before the table has grown, or null if they have been drained
+    private int[] previousPids;
+    private Process[] previousProcesses;
+    private int previousShift;
+    private int migrated;
+
+    ProcessTable() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * @param expectedSize the number of processes the table can hold without resizing
+     */
+    ProcessTable(int expectedSize) {
+        allocate(tableLength(expectedSize));
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    boolean containsKey(int pid) {
+        return get(pid) != null;
+    }
+
+    /**
+     * @return the process with the given pid, or null if there is none
+     */
+    Process get(int pid) {
+        int mask = pids.length - 1;
+        for (int i = slot(pid); processes[i] != null; i = (i + 1) & mask) {
+            if (pids[i] == pid) {
+                return processes[i];
+            }
+        }
+
+        int previous = previousIndexOf(pid);
+        return previous < 0 ? null : previousProcesses[previous];
+    }
+
+    /**
+     * Adds the process with its pid as key.
+     * @return the process that was previously stored under the same pid, or null if there was none
+     */
+    Process put(Process process) {
+        migrate();
+        int pid = process.getPid();
+        int migrating = previousIndexOf(pid);
+        if (migrating >= 0) {
+            // the pid moves over right away, so that it is never in both arrays
+            var replaced = previousProcesses[migrating];
+            previousProcesses[migrating] = TOMBSTONE;
+            size--;
+            insert(process);
+            return replaced;
+        }
+
+        int mask = pids.length - 1;
+        int i = slot(pid);
+        for (; processes[i] != null; i = (i + 1) & mask) {
+            if (pids[i] == pid) {
+                var previous = processes[i];
+                processes[i] = process;
+                return previous;
+            }
+        }
+
+        pids[i] = pid;
+        processes[i] = process;
+        if (++size > maxSize(pids.length)) {
+            grow(tableLength(size));
+        }
+        return null;
+    }
+
+    /**
+     * @return the removed process, or null if there was no process with the given pid
+     */
+    Process remove(int pid) {
+        migrate();
+        int mask = pids.length - 1;
+        for (int i = slot(pid); processes[i] != null; i = (i + 1) & mask) {
+            if (pids[i] == pid) {
+                var removed = processes[i];
+                delete(i);
+                return removed;
+            }
+        }
+
+        int previous = previousIndexOf(pid);
+        if (previous < 0) {
+            return null;
+        }
+        var removed = previousProcesses[previous];
+        previousProcesses[previous] = TOMBSTONE;
+        size--;
+        return removed;
+    }
+
+    /**
+     * Removes all processes matching the predicate in a single pass over the table.
+     * @return the removed processes
+     */
+    List<Process> removeIf(Predicate<Process> predicate) {
+        var removed = new ArrayList<Process>();
+        if (previousProcesses != null) {
+            for (int i = migrated; i < previousProcesses.length; i++) {
+                var process = previousProcesses[i];
+                if (isEntry(process) && predicate.test(process)) {
+                    removed.add(process);
+                    previousProcesses[i] = TOMBSTONE;
+                    size--;
+                }
+            }
+        }
+
+        int i = 0;
+        while (i < processes.length) {
+            var process = processes[i];
+            if (process != null && predicate.test(process)) {
+                removed.add(process);
+                // another entry may have been shifted into this slot, so it needs to be tested again.
+                // Entries shifted from the start of the table to its end have been tested already,
+                // and will simply be tested once more.
+                delete(i);
+            } else {
+                i++;
+            }
+        }
+        return removed;
+    }
+
+    void clear() {
+        Arrays.fill(processes, null);
+        previousPids = null;
+        previousProcesses = null;
+        size = 0;
+    }
+
+    /**
+     * @return a read-only view of the processes in the table
+     */
+    Collection<Process> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<Process> iterator() {
+                return new ValueIterator();
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Empties slot i, and moves subsequent entries of the same cluster backwards, if slot i lies
+     * between their home slot and their current slot.
+     */
+    private void delete(int i) {
+        int mask = pids.length - 1;
+        int gap = i;
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            if (processes[j] == null) {
+                break;
+            }
+
+            int home = slot(pids[j]);
+            // distance from the home slot to the gap is smaller than the one to the current slot
+            if (((gap - home) & mask) < ((j - home) & mask)) {
+                pids[gap] = pids[j];
+                processes[gap] = processes[j];
+                gap = j;
+            }
+        }
+
+        processes[gap] = null;
+        size--;
+    }
+
+    /**
+     * Switches to larger arrays, and leaves the entries in the current ones to be moved over by the following
+     * operations. The previous arrays have long been drained by then: they hold at most half as many slots as the
+     * number of puts it takes to grow once more.
+     */
+    private void grow(int newLength) {
+        while (previousProcesses != null) {
+            migrate();
+        }
+
+        previousPids = pids;
+        previousProcesses = processes;
+        previousShift = shift;
+        migrated = 0;
+        allocate(newLength);
+    }
+
+    /**
+     * Moves the entries of the next few slots of the previous arrays over to the current ones.
+     */
+    private void migrate() {
+        if (previousProcesses == null) {
+            return;
+        }
+
+        int end = Math.min(migrated + MIGRATION_STEP, previousProcesses.length);
+        for (; migrated < end; migrated++) {
+            var process = previousProcesses[migrated];
+            if (isEntry(process)) {
+                // the slot stays occupied, so that the probe sequences of the remaining entries stay intact
+                previousProcesses[migrated] = TOMBSTONE;
+                size--;
+                insert(process);
+            }
+        }
+        if (migrated == previousProcesses.length) {
+            previousPids = null;
+            previousProcesses = null;
+        }
+    }
+
+    /**
+     * Adds a process, whose pid is in neither of the arrays.
+     */
+    private void insert(Process process) {
+        int mask = pids.length - 1;
+        int i = slot(process.getPid());
+        while (processes[i] != null) {
+            i = (i + 1) & mask;
+        }
+        pids[i] = process.getPid();
+        processes[i] = process;
+        size++;
+    }
+
+    /**
+     * @return the slot of the pid in the previous arrays, or -1 if it is not there
+     */
+    private int previousIndexOf(int pid) {
+        if (previousProcesses == null) {
+            return -1;
+        }
+
+        int mask = previousPids.length - 1;
+        for (int i = (pid * GOLDEN_RATIO) >>> previousShift; previousProcesses[i] != null; i = (i + 1) & mask) {
+            if (previousPids[i] == pid && previousProcesses[i] != TOMBSTONE) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isEntry(Process process) {
+        return process != null && process != TOMBSTONE;
+    }
+
+    private void allocate(int length) {
+        pids = new int[length];
+        processes = new Process[length];
+        shift = Integer.SIZE - Integer.numberOfTrailingZeros(length);
+    }
+
+    private int slot(int pid) {
+        return (pid * GOLDEN_RATIO) >>> shift;
+    }
+
+    /**
+     * The load factor is kept at 1/2, which keeps the linear probe sequences short.
+     */
+    private static int maxSize(int length) {
+        return length >>> 1;
+    }
+
+    private static int tableLength(int expectedSize) {
+        if (expectedSize > maxSize(MAX_CAPACITY)) {
+            throw new IllegalArgumentException("Cannot hold more than " + maxSize(MAX_CAPACITY) + " processes");
+        }
+
+        int length = MIN_CAPACITY;
+        while (maxSize(length) < expectedSize) {
+            length <<= 1;
+        }
+        return length;
+    }
+
+    /**
+     * Visits the current arrays, and then the previous ones, if they have not been drained yet.
+     */
+    private class ValueIterator implements Iterator<Process> {
+
+        private final Process[] previous = previousProcesses;
+        private int next = advance(0);
+
+        @Override
+        public boolean hasNext() {
+            return next < end();
+        }
+
+        @Override
+        public Process next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            var process = at(next);
+            next = advance(next + 1);
+            return process;
+        }
+
+        private int advance(int from) {
+            int i = from;
+            while (i < end() && !isEntry(at(i))) {
+                i++;
+            }
+            return i;
+        }
+
+        private Process at(int i) {
+            return i < processes.length ? processes[i] : previous[i - processes.length];
+        }
+
+        private int end() {
+            return processes.length + (previous == null ? 0 : previous.length);
+        }
+    }
+}
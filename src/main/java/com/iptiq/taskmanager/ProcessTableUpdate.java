@@ -0,0 +1,41 @@
+package com.iptiq.taskmanager;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.List;
+
+/**
+ * An item delivered by a {@link ProcessWatch}: either a snapshot of all running processes, or the changes since
+ * the previous item. Applying the changes in order to the previous state yields the current one.
+ */
+@Getter
+@ToString
+public class ProcessTableUpdate {
+
+    private final boolean snapshot;
+
+    /**
+     * All running processes in pid order, if this is a snapshot, otherwise empty.
+     */
+    private final List<Process> processes;
+
+    /**
+     * The removed processes first, then the added ones, if this is not a snapshot, otherwise empty.
+     */
+    private final List<ProcessChange> changes;
+
+    private ProcessTableUpdate(boolean snapshot, List<Process> processes, List<ProcessChange> changes) {
+        this.snapshot = snapshot;
+        this.processes = processes;
+        this.changes = changes;
+    }
+
+    static ProcessTableUpdate snapshot(List<Process> processes) {
+        return new ProcessTableUpdate(true, List.copyOf(processes), List.of());
+    }
+
+    static ProcessTableUpdate delta(List<ProcessChange> changes) {
+        return new ProcessTableUpdate(false, List.of(), List.copyOf(changes));
+    }
+}
@@ -0,0 +1,111 @@
+package com.iptiq.taskmanager;
+
+import com.iptiq.taskmanager.util.PersistentSortedSet;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * An immutable, point-in-time view of the running processes of a {@link TaskManager}, see
+ * {@link TaskManager#view()}.
+ *
+ * The view keeps the processes in a {@link PersistentSortedSet} for each {@link ListOrder}. The task manager
+ * derives the next view from the previous one, sharing all but O(log n) nodes with it, and publishes it once an
+ * operation is complete. Thus a view never shows half of an operation, and reading it needs no lock.
+ *
+ * Processes of the same priority are listed by pid.
+ */
+public final class ProcessView {
+
+    private static final Comparator<Process> PID_ORDER = ListOrder.BY_PID.getComparator();
+    private static final Comparator<Process> PRIORITY_ORDER = ListOrder.BY_PRIORITY.getComparator()
+            .thenComparing(PID_ORDER);
+    private static final Comparator<Process> START_ORDER = ListOrder.BY_TIME_STARTED.getComparator()
+            .thenComparing(PID_ORDER);
+
+    private final long version;
+    private final PersistentSortedSet<Process> inPidOrder;
+    private final PersistentSortedSet<Process> inPriorityOrder;
+    private final PersistentSortedSet<Process> inStartOrder;
+
+    private ProcessView(long version, PersistentSortedSet<Process> inPidOrder,
+                        PersistentSortedSet<Process> inPriorityOrder, PersistentSortedSet<Process> inStartOrder) {
+        this.version = version;
+        this.inPidOrder = inPidOrder;
+        this.inPriorityOrder = inPriorityOrder;
+        this.inStartOrder = inStartOrder;
+    }
+
+    /**
+     * Builds the first view of the processes, in O(n log n) for sorting them.
+     */
+    static ProcessView of(Collection<Process> processes) {
+        var sorted = new ArrayList<>(processes);
+        sorted.sort(PID_ORDER);
+        var inPidOrder = PersistentSortedSet.ofSorted(sorted, PID_ORDER);
+        sorted.sort(PRIORITY_ORDER);
+        var inPriorityOrder = PersistentSortedSet.ofSorted(sorted, PRIORITY_ORDER);
+        sorted.sort(START_ORDER);
+        var inStartOrder = PersistentSortedSet.ofSorted(sorted, START_ORDER);
+        return new ProcessView(0, inPidOrder, inPriorityOrder, inStartOrder);
+    }
+
+    ProcessView with(Process process) {
+        return new ProcessView(version, inPidOrder.with(process), inPriorityOrder.with(process),
+                inStartOrder.with(process));
+    }
+
+    ProcessView without(Process process) {
+        return new ProcessView(version, inPidOrder.without(process), inPriorityOrder.without(process),
+                inStartOrder.without(process));
+    }
+
+    /**
+     * @return the same processes under the next version
+     */
+    ProcessView next() {
+        return new ProcessView(version + 1, inPidOrder, inPriorityOrder, inStartOrder);
+    }
+
+    /**
+     * @return the number of operations that have changed the processes, since the first view has been taken
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public int size() {
+        return inPidOrder.size();
+    }
+
+    public List<Process> listProcesses(ListOrder listOrder) {
+        return listProcesses(listOrder, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Lists a single page of the processes, like {@link TaskManager#listProcesses(ListOrder, int, int)}, in
+     * O(log n) plus the size of the page.
+     */
+    public List<Process> listProcesses(ListOrder listOrder, int offset, int limit) {
+        validate(listOrder == null, "listOrder cannot be null");
+        validate(offset < 0, "offset cannot be negative");
+        validate(limit < 0, "limit cannot be negative");
+
+        switch (listOrder) {
+            case BY_PID:
+                return inPidOrder.slice(offset, limit);
+            case BY_PRIORITY:
+                return inPriorityOrder.slice(offset, limit);
+            default:
+                return inStartOrder.slice(offset, limit);
+        }
+    }
+
+    private static void validate(boolean condition, String message) {
+        if (condition) {
+            throw new IllegalArgumentException(message);
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package com.iptiq.taskmanager;
+
+import com.iptiq.taskmanager.event.ProcessEvent;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Supplier;
+
+/**
+ * Streams the changes of the process table of a task manager to subscribers, as {@link ProcessTableUpdate}s.
+ *
+ * A new subscriber first receives a snapshot of the running processes, and then only the changes. The task
+ * manager records its changes under its lock, and hands them over once an operation is complete. Thus the
+ * snapshot and the changes line up without gaps, and propagating a change costs O(1) per subscriber, rather than
+ * a copy of the whole table.
+ *
+ * Each subscriber has its own demand, and its own backlog of changes. While it has no demand, its changes are
+ * coalesced per pid, e.g. a process started and killed in the meantime does not show up at all, and the whole
+ * backlog goes out as a single update. If the backlog grows beyond the limit, it is dropped, and the subscriber
+ * receives a fresh snapshot instead, which costs no more than the backlog. A slow subscriber never holds up the
+ * task manager, nor any other subscriber.
+ *
+ * Updates are delivered on the executor, one at a time per subscriber. So are errors, e.g. of a request for a
+ * non-positive demand, which thus never overlap an update.
+ */
+class ProcessWatch implements Flow.Publisher<ProcessTableUpdate> {
+
+    private final Lock lock;
+    private final Supplier<List<Process>> snapshot;
+    private final Executor executor;
+    private final List<WatchSubscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    // guarded by the lock of the task manager
+    private final List<ProcessChange> recorded = new ArrayList<>();
+    private int maxBacklog;
+
+    /**
+     * @param lock the lock of the task manager, which guards the process table
+     * @param snapshot lists the running processes in pid order, while the lock is held
+     * @param maxBacklog the number of pids with pending changes, beyond which a subscriber gets a snapshot instead
+     */
+    ProcessWatch(Lock lock, Supplier<List<Process>> snapshot, Executor executor, int maxBacklog) {
+        if (lock == null || snapshot == null || executor == null) {
+            throw new IllegalArgumentException("lock, snapshot and executor cannot be null");
+        }
+        if (maxBacklog <= 0) {
+            throw new IllegalArgumentException("maxBacklog must be a positive number");
+        }
+
+        this.lock = lock;
+        this.snapshot = snapshot;
+        this.executor = executor;
+        this.maxBacklog = maxBacklog;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super ProcessTableUpdate> subscriber) {
+        if (subscriber == null) {
+            throw new NullPointerException("subscriber cannot be null");
+        }
+
+        var subscription = new WatchSubscription(subscriber);
+        lock.lock();
+        try {
+            subscription.snapshot = snapshot.get();
+            subscriptions.add(subscription);
+        } finally {
+            lock.unlock();
+        }
+        subscriber.onSubscribe(subscription);
+    }
+
+    /**
+     * Follows the capacity of the task manager. Called by the task manager, while it holds its lock.
+     */
+    void setMaxBacklog(int maxBacklog) {
+        if (maxBacklog <= 0) {
+            throw new IllegalArgumentException("maxBacklog must be a positive number");
+        }
+        this.maxBacklog = maxBacklog;
+    }
+
+    /**
+     * Records a change of the process table. Called by the task manager, while it holds its lock.
+     */
+    void record(ProcessEvent.Type type, Process process) {
+        if (!subscriptions.isEmpty()) {
+            recorded.add(new ProcessChange(type, process));
+        }
+    }
+
+    /**
+     * Hands the changes recorded by an operation to the subscribers. Called by the task manager, while it still
+     * holds its lock, once the operation is complete.
+     */
+    void publish() {
+        if (recorded.isEmpty()) {
+            return;
+        }
+        for (var subscription : subscriptions) {
+            subscription.offer(recorded);
+        }
+        recorded.clear();
+    }
+
+    /**
+     * Replaces the backlog of the subscription by a fresh snapshot. The lock of the task manager is taken first,
+     * so that no changes are published in between.
+     */
+    private void resync(WatchSubscription subscription) {
+        lock.lock();
+        try {
+            var processes = snapshot.get();
+            synchronized (subscription) {
+                subscription.snapshot = processes;
+                subscription.backlog.clear();
+                subscription.resync = false;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The changes of a pid since the last update: the process that has been removed, and the one that has been
+     * added, either of which may be missing.
+     */
+    private static class Backlog {
+
+        ProcessChange removed;
+        ProcessChange added;
+    }
+
+    private class WatchSubscription implements Flow.Subscription, Runnable {
+
+        private final Flow.Subscriber<? super ProcessTableUpdate> subscriber;
+
+        // guarded by this
+        private List<Process> snapshot;
+        private final LinkedHashMap<Integer, Backlog> backlog = new LinkedHashMap<>();
+        private boolean resync;
+        private long demand;
+        private boolean draining;
+        private boolean cancelled;
+        private Throwable error;
+
+        WatchSubscription(Flow.Subscriber<? super ProcessTableUpdate> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            synchronized (this) {
+                if (n <= 0) {
+                    // signalled by the drain loop, which may be delivering an update right now
+                    if (error == null) {
+                        error = new IllegalArgumentException("The demand must be positive, but was " + n);
+                    }
+                } else {
+                    demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+                }
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            synchronized (this) {
+                cancelled = true;
+                snapshot = null;
+                backlog.clear();
+            }
+            subscriptions.remove(this);
+        }
+
+        synchronized void offer(List<ProcessChange> changes) {
+            if (cancelled || resync) {
+                return;
+            }
+
+            for (var change : changes) {
+                var pending = backlog.computeIfAbsent(change.getProcess().getPid(), pid -> new Backlog());
+                if (!change.isRemoval()) {
+                    pending.added = change;
+                } else if (pending.added != null && pending.added.getProcess() == change.getProcess()) {
+                    // started and removed since the last update
+                    pending.added = null;
+                } else {
+                    pending.removed = change;
+                }
+            }
+
+            if (backlog.size() > maxBacklog) {
+                backlog.clear();
+                resync = true;
+            }
+            drain();
+        }
+
+        private void drain() {
+            synchronized (this) {
+                if (draining) {
+                    return;
+                }
+                draining = true;
+            }
+            executor.execute(this);
+        }
+
+        /**
+         * Delivers updates while there is demand, and anything to deliver.
+         */
+        @Override
+        public void run() {
+            while (true) {
+                boolean resyncing;
+                synchronized (this) {
+                    resyncing = resync && !cancelled && error == null && demand > 0;
+                }
+                if (resyncing) {
+                    resync(this);
+                }
+
+                ProcessTableUpdate update;
+                Throwable failure;
+                synchronized (this) {
+                    failure = cancelled ? null : error;
+                    update = failure != null || cancelled || demand == 0 || resync ? null : next();
+                    if (update == null && failure == null) {
+                        draining = false;
+                        return;
+                    }
+                    if (update != null) {
+                        demand--;
+                    }
+                }
+                if (failure != null) {
+                    cancel();
+                    subscriber.onError(failure);
+                    return;
+                }
+
+                try {
+                    subscriber.onNext(update);
+                } catch (RuntimeException e) {
+                    cancel();
+                    subscriber.onError(e);
+                    return;
+                }
+            }
+        }
+
+        /**
+         * @return the snapshot, or the coalesced backlog, or null if there is nothing to deliver
+         */
+        private ProcessTableUpdate next() {
+            if (snapshot != null) {
+                var update = ProcessTableUpdate.snapshot(snapshot);
+                snapshot = null;
+                return update;
+            }
+
+            var removals = new ArrayList<ProcessChange>();
+            var additions = new ArrayList<ProcessChange>();
+            for (var pending : backlog.values()) {
+                if (pending.removed != null) {
+                    removals.add(pending.removed);
+                }
+                if (pending.added != null) {
+                    additions.add(pending.added);
+                }
+            }
+            backlog.clear();
+            if (removals.isEmpty() && additions.isEmpty()) {
+                return null;
+            }
+            removals.addAll(additions);
+            return ProcessTableUpdate.delta(removals);
+        }
+    }
+}
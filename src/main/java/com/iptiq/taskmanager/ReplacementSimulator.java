@@ -0,0 +1,158 @@
+package com.iptiq.taskmanager;
+
+import com.iptiq.taskmanager.metrics.LatencyHistogram;
+import com.iptiq.taskmanager.trace.Trace;
+
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Supplier;
+
+/**
+ * Replays the additions and kills of a {@link Trace} against several replacement strategies and capacities, so
+ * that both can be tuned offline, against traces recorded in production.
+ *
+ * Each pair of strategy and capacity is simulated by a task of its own on a {@link ForkJoinPool}, all of them
+ * reading the same trace. A single simulation is sequential, as every decision of a strategy depends on the ones
+ * before it. It admits, replaces and kills processes the way {@link TaskManager} does, with a fresh instance
+ * of the strategy, but without locks, events or tasks, so it runs through millions of operations per second.
+ * Processes are started at the time of their record, in the order of the trace, with the weight of their
+ * record. Listings are skipped, and so are time to live and deadlines, as the simulation has no clock.
+ *
+ * E.g. comparing FIFO and priority-based replacement at three capacities:
+ * <pre>
+ * var simulator = new ReplacementSimulator(Map.of(
+ *         "FIFO", FifoReplacementStrategy::new,
+ *         "PRIO", PrioBasedReplacementStrategy::new), ForkJoinPool.commonPool());
+ * var results = simulator.simulate(Trace.read(file), 1_000, 10_000, 100_000);
+ * </pre>
+ */
+public class ReplacementSimulator {
+
+    private final Map<String, Supplier<ReplacementStrategy>> strategies;
+    private final ForkJoinPool pool;
+
+    /**
+     * @param strategies factories of the strategies to simulate, by name. Each simulation gets a new instance.
+     */
+    public ReplacementSimulator(Map<String, Supplier<ReplacementStrategy>> strategies, ForkJoinPool pool) {
+        validate(strategies == null || strategies.isEmpty(), "strategies cannot be empty");
+        validate(pool == null, "pool cannot be null");
+
+        this.strategies = new LinkedHashMap<>(strategies);
+        this.pool = pool;
+    }
+
+    /**
+     * @return the results for each strategy, and for each capacity within it
+     */
+    public List<SimulationResult> simulate(Trace trace, int... capacities) {
+        validate(trace == null, "trace cannot be null");
+        validate(capacities.length == 0, "capacities cannot be empty");
+        for (int capacity : capacities) {
+            validate(capacity <= 0, "capacity must be a positive number");
+        }
+
+        var simulations = new ArrayList<ForkJoinTask<SimulationResult>>();
+        for (var strategy : strategies.entrySet()) {
+            for (int capacity : capacities) {
+                simulations.add(pool.submit(() -> simulate(trace, strategy.getKey(), strategy.getValue().get(),
+                        capacity)));
+            }
+        }
+
+        var results = new ArrayList<SimulationResult>(simulations.size());
+        for (var simulation : simulations) {
+            results.add(simulation.join());
+        }
+        return results;
+    }
+
+    static SimulationResult simulate(Trace trace, String name, ReplacementStrategy strategy, int capacity) {
+        var processes = new ProcessTable(capacity);
+        var evictionsByPriority = new TreeMap<Integer, Long>();
+        var decisionCost = new LatencyHistogram();
+        long additions = 0;
+        long replacements = 0;
+        long rejections = 0;
+        long duplicates = 0;
+        long kills = 0;
+        long evictions = 0;
+        long usedWeight = 0;
+
+        for (int i = 0; i < trace.size(); i++) {
+            switch (trace.getOperation(i)) {
+                case ADD:
+                    if (processes.containsKey(trace.getPid(i))) {
+                        duplicates++;
+                        break;
+                    }
+                    additions++;
+                    var process = Process.restore(trace.getPid(i), trace.getPriority(i), trace.getWeight(i),
+                            trace.getNanos(i), i, Process.NEVER, ZoneOffset.UTC);
+                    if (process.getWeight() > capacity) {
+                        rejections++;
+                        break;
+                    }
+                    long needed = usedWeight + process.getWeight() - capacity;
+                    if (needed > 0) {
+                        long start = System.nanoTime();
+                        var victims = strategy.chooseVictims(processes.values(), process, needed);
+                        decisionCost.record(System.nanoTime() - start);
+                        if (victims.isEmpty()) {
+                            rejections++;
+                            break;
+                        }
+
+                        replacements++;
+                        for (var victim : victims) {
+                            processes.remove(victim.getPid());
+                            usedWeight -= victim.getWeight();
+                            strategy.onProcessRemoved(victim);
+                            evictionsByPriority.merge(victim.getPriority(), 1L, Long::sum);
+                            evictions++;
+                        }
+                    }
+                    processes.put(process);
+                    usedWeight += process.getWeight();
+                    strategy.onProcessAdded(process);
+                    break;
+                case KILL:
+                    var killed = processes.remove(trace.getPid(i));
+                    if (killed != null) {
+                        usedWeight -= killed.getWeight();
+                        strategy.onProcessRemoved(killed);
+                        kills++;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        return SimulationResult.builder()
+                .strategy(name)
+                .capacity(capacity)
+                .additions(additions)
+                .admissions(additions - rejections)
+                .replacements(replacements)
+                .rejections(rejections)
+                .duplicates(duplicates)
+                .kills(kills)
+                .evictions(evictions)
+                .evictionsByPriority(evictionsByPriority)
+                .decisionCost(decisionCost.snapshot())
+                .build();
+    }
+
+    private static void validate(boolean condition, String message) {
+        if (condition) {
+            throw new IllegalArgumentException(message);
+        }
+    }
+}
@@ -1,11 +1,23 @@
 package com.iptiq.taskmanager;
 
+import java.util.AbstractCollection;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * When its buffer capacity is reached, {@link TaskManager#addProcess(Process)} delegates
  * the decision what process to replace (n.b. by killing it) to implementations of this interface.
+ *
+ * The {@link TaskManager} notifies its strategy whenever a process is added or removed. This allows
+ * implementations to maintain their own index, instead of scanning all processes on every decision.
+ * Such implementations keep state, and thus an instance must not be shared between task managers.
  */
 public interface ReplacementStrategy {
 
@@ -17,4 +29,131 @@ public interface ReplacementStrategy {
      */
     Optional<Process> choose(Collection<Process> processes, Process newProcess);
 
+    /**
+     * Chooses the processes to replace for a whole batch of new processes at once, see
+     * {@link TaskManager#addProcesses(Collection)}.
+     *
+     * The result must be the same as if {@link #choose(Collection, Process)} was called for each new process in
+     * turn, with the already chosen processes removed from the collection. New processes never replace each other.
+     *
+     * The default implementation does exactly that. Strategies with an index should override it, so that all
+     * victims are found within a single pass.
+     *
+     * @param processes a collection of all currently running processes
+     * @param newProcesses the new processes, which we are looking to add
+     * @return a list with one element for each new process: the process to replace, or an empty Optional if
+     *         the new process is to be rejected
+     */
+    default List<Optional<Process>> chooseAll(Collection<Process> processes, List<Process> newProcesses) {
+        Set<Process> chosen = Collections.newSetFromMap(new IdentityHashMap<>());
+        var remaining = without(processes, chosen);
+
+        var victims = new ArrayList<Optional<Process>>(newProcesses.size());
+        for (var newProcess : newProcesses) {
+            var victim = remaining.isEmpty() ? Optional.<Process>empty() : choose(remaining, newProcess);
+            victim.ifPresent(chosen::add);
+            victims.add(victim);
+        }
+        return victims;
+    }
+
+    /**
+     * Chooses the processes to replace, so that a new process of the given weight fits in, see
+     * {@link Process#getWeight()}. The combined weight of the chosen processes must be at least the given weight.
+     *
+     * The default implementation calls {@link #choose(Collection, Process)} repeatedly, with the already chosen
+     * processes removed from the collection. Strategies with an index should override it, so that the victims
+     * are taken from the index in order, rather than by a scan for each one.
+     *
+     * @param processes a collection of all currently running processes
+     * @param newProcess the new process, which we are looking to add
+     * @param weight the weight to free, which is at most the weight of the new process
+     * @return the processes to replace, or an empty list if the new process is to be rejected
+     */
+    default List<Process> chooseVictims(Collection<Process> processes, Process newProcess, long weight) {
+        Set<Process> chosen = Collections.newSetFromMap(new IdentityHashMap<>());
+        var remaining = without(processes, chosen);
+
+        var victims = new ArrayList<Process>();
+        long freed = 0;
+        while (freed < weight && !remaining.isEmpty()) {
+            var victim = choose(remaining, newProcess);
+            if (victim.isEmpty()) {
+                break;
+            }
+            chosen.add(victim.get());
+            victims.add(victim.get());
+            freed += victim.get().getWeight();
+        }
+        return freed >= weight ? victims : List.of();
+    }
+
+    /**
+     * The order, in which the strategy replaces processes, if it always replaces the first process in some order,
+     * provided that {@link #canReplace(Process, Process)} agrees. Storage engines without process objects, such as
+     * {@link ColumnarTaskManager}, keep the processes in this order on their own, rather than calling
+     * {@link #choose(Collection, Process)}.
+     *
+     * Such engines pass flyweight processes to the comparator and to {@link #canReplace(Process, Process)}, which
+     * are only valid during the call. Neither may keep them, nor kill them, which throws an
+     * {@link UnsupportedOperationException}.
+     *
+     * @return the order, in which no two distinct processes compare as equal, or an empty Optional if the strategy
+     *         chooses its victims in some other way
+     */
+    default Optional<Comparator<Process>> getReplacementOrder() {
+        return Optional.empty();
+    }
+
+    /**
+     * Only called for strategies with a {@link #getReplacementOrder()}.
+     * @return true if the candidate, which is the first one in order, may be replaced by the new process
+     */
+    default boolean canReplace(Process candidate, Process newProcess) {
+        return false;
+    }
+
+    /**
+     * @return a view of the processes, which leaves out the excluded ones
+     */
+    private static Collection<Process> without(Collection<Process> processes, Set<Process> excluded) {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<Process> iterator() {
+                return processes.stream()
+                        .filter(p -> !excluded.contains(p))
+                        .iterator();
+            }
+
+            @Override
+            public int size() {
+                return processes.size() - excluded.size();
+            }
+        };
+    }
+
+    /**
+     * Invoked after a process has been started and added to the running processes.
+     */
+    default void onProcessAdded(Process process) {
+    }
+
+    /**
+     * Invoked after many processes have been added at once, when a task manager is restored. The strategy has not
+     * been notified about any other process yet, and it is not used concurrently during this call.
+     *
+     * The default implementation calls {@link #onProcessAdded(Process)} for each process. Strategies with an index
+     * should override it, so that the index is built in one go.
+     */
+    default void onProcessesRestored(List<Process> processes) {
+        processes.forEach(this::onProcessAdded);
+    }
+
+    /**
+     * Invoked after a process has been removed from the running processes, either because it was
+     * killed, or because it was replaced.
+     */
+    default void onProcessRemoved(Process process) {
+    }
+
 }
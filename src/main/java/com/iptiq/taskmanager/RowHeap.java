@@ -0,0 +1,103 @@
+package com.iptiq.taskmanager;
+
+import java.util.Arrays;
+
+/**
+ * A binary min-heap of the rows of {@link ProcessColumns}, e.g. in the order in which they are replaced.
+ *
+ * The heap remembers the position of each row, so that any row, not only the first one, is removed in
+ * O(log n). Being made of two int arrays, it takes 8 bytes per row, and no object per process.
+ *
+ * The heap is not thread-safe.
+ */
+class RowHeap {
+
+    private final ProcessColumns.RowComparator comparator;
+    private final int[] heap;
+    private final int[] positions;
+    private int size;
+
+    RowHeap(int capacity, ProcessColumns.RowComparator comparator) {
+        this.comparator = comparator;
+        this.heap = new int[capacity];
+        this.positions = new int[capacity];
+        Arrays.fill(positions, -1);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the first row, or -1 if the heap is empty
+     */
+    int peek() {
+        return size == 0 ? -1 : heap[0];
+    }
+
+    void add(int row) {
+        heap[size] = row;
+        positions[row] = size;
+        siftUp(size++);
+    }
+
+    /**
+     * Removes the row, if it is in the heap.
+     */
+    void remove(int row) {
+        int position = positions[row];
+        if (position < 0) {
+            return;
+        }
+
+        positions[row] = -1;
+        int last = heap[--size];
+        if (position == size) {
+            return;
+        }
+        heap[position] = last;
+        positions[last] = position;
+        siftDown(siftUp(position));
+    }
+
+    /**
+     * @return the position at which the row has come to rest
+     */
+    private int siftUp(int position) {
+        int row = heap[position];
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (comparator.compare(heap[parent], row) <= 0) {
+                break;
+            }
+            place(heap[parent], position);
+            position = parent;
+        }
+        place(row, position);
+        return position;
+    }
+
+    private void siftDown(int position) {
+        int row = heap[position];
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && comparator.compare(heap[child + 1], heap[child]) < 0) {
+                child++;
+            }
+            if (comparator.compare(row, heap[child]) <= 0) {
+                break;
+            }
+            place(heap[child], position);
+            position = child;
+        }
+        place(row, position);
+    }
+
+    private void place(int row, int position) {
+        heap[position] = row;
+        positions[row] = position;
+    }
+}
@@ -1,31 +1,457 @@
 package com.iptiq.taskmanager;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.function.Predicate;
 
 /**
- * A collection of predicates, that can be used when calling {@link TaskManager#kill(Predicate)}.
+ * A collection of predicates, that can be used when calling {@link TaskManager#kill(Predicate)}, or
+ * {@link TaskManager#listProcesses(ListOrder, Predicate, int, int)}.
+ *
+ * The {@link TaskManager} recognizes the predicates created here, and answers them from its indexes
+ * instead of testing every process, e.g. killing by pid is a single hash lookup.
+ *
+ * The predicates compose via {@link #and}, {@link #or} and {@link #not} into queries, which are planned against
+ * the indexes as well. A conjunction is answered from the index of its most selective part, e.g.
+ * {@code and(byPriorityRange(0, 2), startedBefore(t))} visits either the matching priority buckets or the
+ * processes started before t, whichever are fewer, and tests only those against the rest. A disjunction of
+ * indexed parts is the union of their answers. Any other predicate, or its negation, is tested against every
+ * process.
  */
 public class Selectors {
 
+    /**
+     * A predicate that knows how to look up the matching processes in a {@link ProcessRegistry}.
+     */
+    interface IndexedSelector extends Predicate<Process> {
+
+        /**
+         * @return exactly the processes in the registry, for which {@link #test(Object)} returns true
+         */
+        List<Process> select(ProcessRegistry registry);
+
+        /**
+         * Estimates the cost of {@link #select(ProcessRegistry)}, i.e. the number of processes it would visit.
+         * Planning compares the estimates of alternatives, thus an estimate may stop counting at the bound, which
+         * is the cost of the best alternative found so far.
+         * @return the number of processes to visit, or any number at least as large as the bound
+         */
+        int estimate(ProcessRegistry registry, int bound);
+
+        /**
+         * @return the kind of the selector, under which kills are counted in the metrics
+         */
+        String name();
+
+        /**
+         * @return the pids the selector is limited to, in ascending order, or null if it is not limited by pid.
+         *         Lets task managers without a {@link ProcessRegistry} look up the processes by pid.
+         */
+        default int[] pids() {
+            return null;
+        }
+    }
+
+    /**
+     * A selector that tests every process, for queries that no index can answer.
+     */
+    private abstract static class ScanningSelector implements IndexedSelector {
+
+        @Override
+        public List<Process> select(ProcessRegistry registry) {
+            return registry.scan(this);
+        }
+
+        @Override
+        public int estimate(ProcessRegistry registry, int bound) {
+            return registry.size();
+        }
+
+        @Override
+        public String name() {
+            return "query";
+        }
+    }
+
+    /**
+     * @return the name of an {@link IndexedSelector}, or "custom" for any other predicate
+     */
+    static String nameOf(Predicate<Process> selector) {
+        return selector instanceof IndexedSelector ? ((IndexedSelector) selector).name() : "custom";
+    }
+
+    /**
+     * @return the pids of an {@link IndexedSelector} limited to them, or null for any other predicate
+     */
+    static int[] pidsOf(Predicate<Process> selector) {
+        return selector instanceof IndexedSelector ? ((IndexedSelector) selector).pids() : null;
+    }
+
+    private static final IndexedSelector ALL = new IndexedSelector() {
+        @Override
+        public boolean test(Process process) {
+            return true;
+        }
+
+        @Override
+        public List<Process> select(ProcessRegistry registry) {
+            return registry.all();
+        }
+
+        @Override
+        public int estimate(ProcessRegistry registry, int bound) {
+            return registry.size();
+        }
+
+        @Override
+        public String name() {
+            return "all";
+        }
+    };
+
     /**
      * @return a predicate that matches all processes
      */
     public static Predicate<Process> all() {
-        return process -> true;
+        return ALL;
     }
 
     /**
      * @return a predicate that matches a process with specific pid
      */
     public static Predicate<Process> byPID(final int pid) {
-        return process -> process.getPid() == pid;
+        return new IndexedSelector() {
+            @Override
+            public boolean test(Process process) {
+                return process.getPid() == pid;
+            }
+
+            @Override
+            public List<Process> select(ProcessRegistry registry) {
+                return registry.byPid(pid);
+            }
+
+            @Override
+            public int estimate(ProcessRegistry registry, int bound) {
+                return 1;
+            }
+
+            @Override
+            public String name() {
+                return "pid";
+            }
+
+            @Override
+            public int[] pids() {
+                return new int[] {pid};
+            }
+        };
     }
 
     /**
      * @return a predicate that matches all processes with specific priority
      */
     public static Predicate<Process> byPriority(final int priority) {
-        return process -> process.getPriority() == priority;
+        return byPriorityRange(priority, priority);
+    }
+
+    /**
+     * @return a predicate that matches all processes with a priority between the two bounds (both inclusive)
+     */
+    public static Predicate<Process> byPriorityRange(final int fromPriority, final int toPriority) {
+        return new IndexedSelector() {
+            @Override
+            public boolean test(Process process) {
+                return fromPriority <= process.getPriority() && process.getPriority() <= toPriority;
+            }
+
+            @Override
+            public List<Process> select(ProcessRegistry registry) {
+                return registry.byPriority(fromPriority, toPriority);
+            }
+
+            @Override
+            public int estimate(ProcessRegistry registry, int bound) {
+                return registry.countByPriority(fromPriority, toPriority);
+            }
+
+            @Override
+            public String name() {
+                return "priority";
+            }
+        };
     }
 
+    /**
+     * @return a predicate that matches the processes with any of the pids
+     */
+    public static Predicate<Process> byPIDs(final int... pids) {
+        validate(pids == null, "pids cannot be null");
+        final int[] sorted = Arrays.stream(pids).sorted().distinct().toArray();
+        return new IndexedSelector() {
+            @Override
+            public boolean test(Process process) {
+                return Arrays.binarySearch(sorted, process.getPid()) >= 0;
+            }
+
+            @Override
+            public List<Process> select(ProcessRegistry registry) {
+                var selected = new ArrayList<Process>(Math.min(sorted.length, registry.size()));
+                for (int pid : sorted) {
+                    selected.addAll(registry.byPid(pid));
+                }
+                return selected;
+            }
+
+            @Override
+            public int estimate(ProcessRegistry registry, int bound) {
+                return sorted.length;
+            }
+
+            @Override
+            public String name() {
+                return "pids";
+            }
+
+            @Override
+            public int[] pids() {
+                return sorted.clone();
+            }
+        };
+    }
+
+    /**
+     * @return a predicate that matches all processes started before the instant
+     */
+    public static Predicate<Process> startedBefore(final Instant before) {
+        validate(before == null, "before cannot be null");
+        return startedBetween(Instant.MIN, before);
+    }
+
+    /**
+     * @return a predicate that matches all processes started at, or after, the instant
+     */
+    public static Predicate<Process> startedAfter(final Instant from) {
+        validate(from == null, "from cannot be null");
+        return startedBetween(from, Instant.MAX);
+    }
+
+    /**
+     * @param from the inclusive lower bound of the start time
+     * @param to the exclusive upper bound of the start time
+     * @return a predicate that matches all processes started within the range
+     */
+    public static Predicate<Process> startedBetween(final Instant from, final Instant to) {
+        validate(from == null || to == null, "from and to cannot be null");
+        final long fromNanos = toEpochNanos(from);
+        final long toNanos = toEpochNanos(to);
+        return new IndexedSelector() {
+            @Override
+            public boolean test(Process process) {
+                return process.hasStarted() && fromNanos <= process.getStartNanos() && process.getStartNanos() < toNanos;
+            }
+
+            @Override
+            public List<Process> select(ProcessRegistry registry) {
+                return new ArrayList<>(registry.startedBetween(fromNanos, toNanos));
+            }
+
+            @Override
+            public int estimate(ProcessRegistry registry, int bound) {
+                int count = 0;
+                var iterator = registry.startedBetween(fromNanos, toNanos).iterator();
+                while (count < bound && iterator.hasNext()) {
+                    iterator.next();
+                    count++;
+                }
+                return count;
+            }
+
+            @Override
+            public String name() {
+                return "started";
+            }
+        };
+    }
+
+    private static long toEpochNanos(Instant instant) {
+        if (instant.getEpochSecond() >= Long.MAX_VALUE / 1_000_000_000L) {
+            return Long.MAX_VALUE;
+        }
+        if (instant.getEpochSecond() <= Long.MIN_VALUE / 1_000_000_000L) {
+            return Long.MIN_VALUE;
+        }
+        return instant.getEpochSecond() * 1_000_000_000L + instant.getNano();
+    }
+
+    /**
+     * @return a predicate that matches the processes, which match all of the selectors. It is answered from the
+     *         index of the selector with the fewest candidates, and the other selectors test these candidates.
+     */
+    @SafeVarargs
+    public static Predicate<Process> and(final Predicate<Process>... selectors) {
+        validate(selectors == null || selectors.length == 0, "selectors cannot be empty");
+        final var parts = new ArrayList<Predicate<Process>>(selectors.length);
+        for (var selector : selectors) {
+            parts.add(part(selector));
+        }
+        return new IndexedSelector() {
+            @Override
+            public boolean test(Process process) {
+                for (var part : parts) {
+                    if (!part.test(process)) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+
+            @Override
+            public List<Process> select(ProcessRegistry registry) {
+                var driver = plan(registry);
+                var candidates = driver == null ? registry.all() : ((IndexedSelector) driver).select(registry);
+                var selected = new ArrayList<Process>(candidates.size());
+                for (var process : candidates) {
+                    if (matchesAllBut(driver, process)) {
+                        selected.add(process);
+                    }
+                }
+                return selected;
+            }
+
+            /**
+             * @return the indexed part with the fewest candidates, or null if no part is indexed
+             */
+            private Predicate<Process> plan(ProcessRegistry registry) {
+                Predicate<Process> driver = null;
+                int cost = registry.size();
+                for (var part : parts) {
+                    if (part instanceof IndexedSelector) {
+                        int estimate = ((IndexedSelector) part).estimate(registry, cost);
+                        if (estimate < cost || driver == null && estimate <= cost) {
+                            driver = part;
+                            cost = estimate;
+                        }
+                    }
+                }
+                return driver;
+            }
+
+            private boolean matchesAllBut(Predicate<Process> driver, Process process) {
+                for (var part : parts) {
+                    if (part != driver && !part.test(process)) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+
+            @Override
+            public int estimate(ProcessRegistry registry, int bound) {
+                int cost = Math.min(bound, registry.size());
+                for (var part : parts) {
+                    if (part instanceof IndexedSelector) {
+                        cost = Math.min(cost, ((IndexedSelector) part).estimate(registry, cost));
+                    }
+                }
+                return cost;
+            }
+
+            @Override
+            public String name() {
+                return "query";
+            }
+        };
+    }
+
+    /**
+     * @return a predicate that matches the processes, which match any of the selectors. If all of them are
+     *         indexed, it is answered by the union of their answers, otherwise by testing every process.
+     */
+    @SafeVarargs
+    public static Predicate<Process> or(final Predicate<Process>... selectors) {
+        validate(selectors == null || selectors.length == 0, "selectors cannot be empty");
+        final var parts = new ArrayList<Predicate<Process>>(selectors.length);
+        for (var selector : selectors) {
+            parts.add(part(selector));
+        }
+        final boolean indexed = parts.stream().allMatch(part -> part instanceof IndexedSelector);
+        return new IndexedSelector() {
+            @Override
+            public boolean test(Process process) {
+                for (var part : parts) {
+                    if (part.test(process)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+
+            @Override
+            public List<Process> select(ProcessRegistry registry) {
+                if (!indexed || estimate(registry, registry.size()) >= registry.size()) {
+                    return registry.scan(this);
+                }
+
+                var union = new ProcessTable();
+                for (var part : parts) {
+                    for (var process : ((IndexedSelector) part).select(registry)) {
+                        union.put(process);
+                    }
+                }
+                return new ArrayList<>(union.values());
+            }
+
+            @Override
+            public int estimate(ProcessRegistry registry, int bound) {
+                if (!indexed) {
+                    return registry.size();
+                }
+                long cost = 0;
+                for (var part : parts) {
+                    cost += ((IndexedSelector) part).estimate(registry, (int) Math.max(0, bound - cost));
+                    if (cost >= bound) {
+                        break;
+                    }
+                }
+                return (int) Math.min(cost, registry.size());
+            }
+
+            @Override
+            public String name() {
+                return "query";
+            }
+        };
+    }
+
+    /**
+     * @return a predicate that matches the processes, which do not match the selector. It is answered by testing
+     *         every process, but may narrow down a conjunction, e.g. {@code and(byPriority(1), not(byPID(5)))}.
+     */
+    public static Predicate<Process> not(final Predicate<Process> selector) {
+        validate(selector == null, "selector cannot be null");
+        return new ScanningSelector() {
+            @Override
+            public boolean test(Process process) {
+                return !selector.test(process);
+            }
+        };
+    }
+
+    /**
+     * The selectors are copied element by element, so that the varargs array never leaves {@link #and} or
+     * {@link #or}, which is what makes them safe.
+     */
+    private static Predicate<Process> part(Predicate<Process> selector) {
+        validate(selector == null, "selector cannot be null");
+        return selector;
+    }
+
+    private static void validate(boolean condition, String message) {
+        if (condition) {
+            throw new IllegalArgumentException(message);
+        }
+    }
 }
@@ -0,0 +1,384 @@
+package com.iptiq.taskmanager;
+
+import com.iptiq.taskmanager.event.EventPipeline;
+import com.iptiq.taskmanager.event.LoggingEventListener;
+import com.iptiq.taskmanager.event.ProcessEvent;
+import com.iptiq.taskmanager.metrics.TaskManagerMetrics;
+import com.iptiq.taskmanager.replacement.DefaultReplacementStrategy;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * A {@link TaskManager} variant that spreads its processes over several shards, so that threads working on
+ * different processes rarely wait for each other.
+ *
+ * Processes are assigned to shards by a hash of their pid. Each shard has its own lock, its own indexes, and its
+ * own instance of the {@link ReplacementStrategy}. The capacity is global: free slots are accounted with an atomic
+ * counter, like in {@link ConcurrentTaskManager}. When it is full, each shard proposes the process its strategy
+ * would replace, and another instance of the strategy picks among these candidates. For FIFO, this is the globally
+ * oldest process, as the oldest process overall is the oldest one of its shard.
+ *
+ * This holds for every strategy that replaces the first process in some order, if that process qualifies at all,
+ * which includes all strategies in {@link com.iptiq.taskmanager.replacement}. The instance that picks among the
+ * candidates is never notified about any process, and is called concurrently.
+ *
+ * A thread never holds more than one shard lock at a time. Thus listing and killing visit the shards one after
+ * the other, and do not see a consistent state of all shards at once.
+ *
+ * Like {@link ConcurrentTaskManager}, the task manager counts processes, and rejects processes with a weight,
+ * a time to live, a deadline or a task.
+ */
+public class ShardedTaskManager {
+
+    private static final int DEFAULT_CAPACITY = 10;
+
+    private final Shard[] shards;
+    private final ReplacementStrategy globalStrategy;
+    private final AtomicInteger occupiedSlots = new AtomicInteger();
+    private final EventPipeline events;
+    private final TaskManagerMetrics metrics;
+    private final Clock clock;
+    private final MonotonicClock startClock;
+    private final int capacity;
+
+    public ShardedTaskManager() {
+        this(DefaultReplacementStrategy::new);
+    }
+
+    /**
+     * @param replacementStrategy creates a new instance of the strategy for each shard
+     */
+    public ShardedTaskManager(Supplier<ReplacementStrategy> replacementStrategy) {
+        this(replacementStrategy, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param replacementStrategy creates a new instance of the strategy for each shard
+     * @param shards the number of shards, rounded up to a power of two
+     */
+    public ShardedTaskManager(Supplier<ReplacementStrategy> replacementStrategy, int shards) {
+        this(replacementStrategy, shards, DEFAULT_CAPACITY, Clock.systemDefaultZone());
+    }
+
+    /**
+     * For testing purposes only, see {@link TaskManager#TaskManager(ReplacementStrategy, int, Clock)}.
+     */
+    ShardedTaskManager(Supplier<ReplacementStrategy> replacementStrategy, int shards, int capacity, Clock clock) {
+        validate(replacementStrategy == null, "replacementStrategy cannot be null");
+        validate(shards <= 0 || shards > (1 << 16), "shards must be between 1 and 65536");
+        validate(capacity <= 0, "capacity must be a positive number");
+
+        int shardCount = Integer.highestOneBit(shards - 1) << 1;
+        this.shards = new Shard[Math.max(shardCount, 1)];
+        for (int i = 0; i < this.shards.length; i++) {
+            this.shards[i] = new Shard(strategy(replacementStrategy), capacity / this.shards.length + 1);
+        }
+        this.globalStrategy = strategy(replacementStrategy);
+        this.capacity = capacity;
+        this.clock = clock;
+        this.events = EventPipeline.forCapacity(capacity);
+        this.startClock = new MonotonicClock(clock);
+        this.metrics = new TaskManagerMetrics(globalStrategy.getClass().getSimpleName(),
+                () -> this.capacity, occupiedSlots::get);
+        events.addListener(new LoggingEventListener());
+    }
+
+    private static ReplacementStrategy strategy(Supplier<ReplacementStrategy> factory) {
+        var strategy = factory.get();
+        validate(strategy == null, "replacementStrategy cannot create null");
+        return strategy;
+    }
+
+    public void addProcess(Process process) throws CapacityFullException {
+        long start = System.nanoTime();
+        try {
+            validate(process == null, "Process cannot be null");
+            validate(process.hasStarted(), "Cannot add an already started process");
+            validate(process.getWeight() != 1, "Process weight is not supported, every process counts as 1");
+            validate(process.getTtl() != null || process.getDeadline() != null, "Process expiry is not supported");
+            validate(process.getTask() != null, "Process tasks are not supported");
+            var shard = shardOf(process.getPid());
+            reserve(shard, process);
+
+            try {
+                acquireSlot(process);
+            } catch (RuntimeException e) {
+                release(shard, process);
+                throw e;
+            }
+
+            lock(shard);
+            try {
+                shard.reserved.remove(process.getPid());
+                process.start(startClock);
+                shard.processes.add(process);
+                shard.strategy.onProcessAdded(process);
+            } finally {
+                shard.lock.unlock();
+            }
+
+            metrics.recordAdmission();
+            events.publish(ProcessEvent.Type.STARTED, process, clock);
+        } finally {
+            metrics.recordAddProcess(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Makes sure there is a free slot for the new process, by either occupying an unused one,
+     * or by taking over the slot of a replaced process.
+     */
+    private void acquireSlot(Process newProcess) {
+        while (true) {
+            int occupied = occupiedSlots.get();
+            if (occupied < capacity) {
+                if (occupiedSlots.compareAndSet(occupied, occupied + 1)) {
+                    return;
+                }
+                continue;
+            }
+
+            var victim = chooseVictim(newProcess);
+            if (victim.isEmpty()) {
+                metrics.recordRejection();
+                events.publish(ProcessEvent.Type.REJECTED, newProcess, clock);
+                throw new CapacityFullException("No free capacity to accept new processes.");
+            }
+            if (evict(victim.get())) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Collects the candidate of each shard, and lets the global strategy pick one of them.
+     */
+    private Optional<Process> chooseVictim(Process newProcess) {
+        long start = System.nanoTime();
+        var candidates = new ArrayList<Process>(shards.length);
+        for (var shard : shards) {
+            lock(shard);
+            try {
+                if (shard.processes.size() > 0) {
+                    shard.strategy.choose(shard.processes.values(), newProcess).ifPresent(candidates::add);
+                }
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+
+        var victim = candidates.isEmpty() ? Optional.<Process>empty() : globalStrategy.choose(candidates, newProcess);
+        metrics.recordChoose(System.nanoTime() - start);
+        return victim;
+    }
+
+    /**
+     * @return false if the victim is no longer running, e.g. because another thread has replaced it already
+     */
+    private boolean evict(Process victim) {
+        var shard = shardOf(victim.getPid());
+        lock(shard);
+        try {
+            var running = shard.processes.byPid(victim.getPid());
+            if (running.isEmpty() || running.get(0) != victim) {
+                return false;
+            }
+            remove(shard, victim);
+        } finally {
+            shard.lock.unlock();
+        }
+
+        metrics.recordEviction();
+        events.publish(ProcessEvent.Type.EVICTED, victim, clock);
+        return true;
+    }
+
+    /**
+     * @return the pipeline, which delivers the lifecycle events of this task manager to its listeners
+     */
+    public EventPipeline getEventPipeline() {
+        return events;
+    }
+
+    /**
+     * @return the metrics of this task manager, where the lock wait covers the locks of all shards
+     */
+    public TaskManagerMetrics getMetrics() {
+        return metrics;
+    }
+
+    public List<Process> listProcesses(ListOrder listOrder) {
+        return listProcesses(listOrder, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Lists a single page of the processes, see {@link TaskManager#listProcesses(ListOrder, int, int)}.
+     * Each shard lists its first offset + limit processes, which are then merged in order. Processes that tie in
+     * the order are merged by pid, as each shard lists them.
+     */
+    public List<Process> listProcesses(ListOrder listOrder, int offset, int limit) {
+        validate(listOrder == null, "listOrder cannot be null");
+        validate(offset < 0, "offset cannot be negative");
+        validate(limit < 0, "limit cannot be negative");
+
+        long start = System.nanoTime();
+        int wanted = (int) Math.min((long) offset + limit, Integer.MAX_VALUE);
+        var order = listOrder.getComparator().thenComparingInt(Process::getPid);
+        var cursors = new PriorityQueue<Cursor>(shards.length, (a, b) -> order.compare(a.current(), b.current()));
+        for (var shard : shards) {
+            List<Process> listed;
+            lock(shard);
+            try {
+                listed = shard.processes.list(listOrder, 0, wanted);
+            } finally {
+                shard.lock.unlock();
+            }
+            if (!listed.isEmpty()) {
+                cursors.add(new Cursor(listed));
+            }
+        }
+
+        var page = new ArrayList<Process>();
+        int skipped = 0;
+        while (!cursors.isEmpty() && page.size() < limit) {
+            var cursor = cursors.poll();
+            if (skipped < offset) {
+                skipped++;
+            } else {
+                page.add(cursor.current());
+            }
+            if (cursor.advance()) {
+                cursors.add(cursor);
+            }
+        }
+
+        metrics.recordListProcesses(System.nanoTime() - start);
+        return page;
+    }
+
+    /**
+     * Kills all processes that match a specified selector.
+     * @param selector a predicate that selects which processes to kill. Please, see {@link Selectors} for possible
+     * @return a list of pid-s for all killed processes
+     */
+    public List<Integer> kill(Predicate<Process> selector) {
+        validate(selector == null, "selector cannot be null");
+
+        long start = System.nanoTime();
+        var killed = new ArrayList<Process>();
+        for (var shard : shards) {
+            lock(shard);
+            try {
+                for (var process : shard.processes.select(selector)) {
+                    remove(shard, process);
+                    killed.add(process);
+                }
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+
+        var killedPids = new ArrayList<Integer>(killed.size());
+        for (var process : killed) {
+            events.publish(ProcessEvent.Type.KILLED, process, clock);
+            killedPids.add(process.getPid());
+        }
+        occupiedSlots.addAndGet(-killed.size());
+        metrics.recordKills(Selectors.nameOf(selector), killed.size());
+        metrics.recordKill(System.nanoTime() - start);
+        return killedPids;
+    }
+
+    /**
+     * Removes and kills the process, while the lock of its shard is held.
+     */
+    private static void remove(Shard shard, Process process) {
+        shard.processes.remove(process);
+        shard.strategy.onProcessRemoved(process);
+        process.kill();
+    }
+
+    /**
+     * Reserves the pid of a new process in its shard, before a slot is acquired for it. Thus no victim is evicted
+     * for a process, which turns out to be a duplicate afterwards.
+     */
+    private void reserve(Shard shard, Process process) {
+        lock(shard);
+        try {
+            validate(shard.processes.contains(process.getPid()) || shard.reserved.put(process) != null,
+                    "Process with the same pid is already active");
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+    private void release(Shard shard, Process process) {
+        lock(shard);
+        try {
+            shard.reserved.remove(process.getPid());
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+    private void lock(Shard shard) {
+        long start = System.nanoTime();
+        shard.lock.lock();
+        metrics.recordLockWait(System.nanoTime() - start);
+    }
+
+    private Shard shardOf(int pid) {
+        // spread the bits, so that pids that differ only in their high bits do not end up in the same shard
+        int hash = pid * 0x9E3779B9;
+        return shards[(hash ^ (hash >>> 16)) & (shards.length - 1)];
+    }
+
+    private static void validate(boolean condition, String message) {
+        if (condition) {
+            throw new IllegalArgumentException(message);
+        }
+    }
+
+    private static class Shard {
+
+        final ReentrantLock lock = new ReentrantLock();
+        final ProcessRegistry processes;
+        // the processes that are being added, until they have acquired a slot or have been rejected
+        final ProcessTable reserved = new ProcessTable();
+        final ReplacementStrategy strategy;
+
+        Shard(ReplacementStrategy strategy, int expectedSize) {
+            this.strategy = strategy;
+            this.processes = new ProcessRegistry(expectedSize);
+        }
+    }
+
+    /**
+     * The position within the sorted processes of a shard, while merging the shards.
+     */
+    private static class Cursor {
+
+        private final List<Process> processes;
+        private int index;
+
+        Cursor(List<Process> processes) {
+            this.processes = processes;
+        }
+
+        Process current() {
+            return processes.get(index);
+        }
+
+        boolean advance() {
+            return ++index < processes.size();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.iptiq.taskmanager;
+
+import com.iptiq.taskmanager.metrics.LatencyHistogram;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.SortedMap;
+
+/**
+ * The outcome of replaying a trace against one replacement strategy and capacity, see
+ * {@link ReplacementSimulator}.
+ */
+@Getter
+@Builder
+@ToString
+public class SimulationResult {
+
+    private final String strategy;
+    private final int capacity;
+
+    /**
+     * Attempts to add a process, whose pid was not running at the time.
+     */
+    private final long additions;
+    private final long admissions;
+
+    /**
+     * Admissions, which have replaced running processes.
+     */
+    private final long replacements;
+    private final long rejections;
+
+    /**
+     * Attempts to add a process, whose pid was running already. They are neither admitted nor rejected.
+     */
+    private final long duplicates;
+    private final long kills;
+    private final long evictions;
+    private final SortedMap<Integer, Long> evictionsByPriority;
+
+    /**
+     * The time the strategy has taken for each decision about replacing processes.
+     */
+    private final LatencyHistogram.Snapshot decisionCost;
+
+    public double getRejectionRate() {
+        return additions == 0 ? 0 : (double) rejections / additions;
+    }
+}
@@ -1,16 +1,39 @@
 package com.iptiq.taskmanager;
 
+import com.iptiq.taskmanager.event.EventPipeline;
+import com.iptiq.taskmanager.event.LoggingEventListener;
+import com.iptiq.taskmanager.event.ProcessEvent;
+import com.iptiq.taskmanager.metrics.TaskManagerMetrics;
+import com.iptiq.taskmanager.persistence.Journal;
+import com.iptiq.taskmanager.persistence.ProcessRecord;
+import com.iptiq.taskmanager.persistence.Snapshot;
 import com.iptiq.taskmanager.replacement.DefaultReplacementStrategy;
-import lombok.extern.slf4j.Slf4j;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Predicate;
 
-import static java.util.stream.Collectors.toList;
+import static java.util.Comparator.comparingInt;
 
 /**
  * TaskManager manages running processes, by allowing adding, killing or listing.
@@ -20,16 +43,49 @@ import static java.util.stream.Collectors.toList;
  * and allows easier evolution.
  *
  * For more on the characteristics of a good API, please see https://youtu.be/aAb7hSCtvGw?t=367
+ *
+ * All operations are serialized on a single lock. Please, see {@link ConcurrentTaskManager}
+ * for a variant that lets many threads add and kill processes in parallel.
+ *
+ * The tasks of the processes run on an {@link ExecutorService}, by default one virtual thread per task.
+ * Thus thousands of tasks that mostly block can run at the same time, without a platform thread each.
+ *
+ * Processes with a time to live, or a deadline, are scheduled in a {@link TimingWheel} on the clock of the task
+ * manager. Every operation first kills the processes that have expired by then, see {@link #expireProcesses()}.
+ *
+ * Callers that poll the processes often can read them from an immutable {@link ProcessView} instead, see
+ * {@link #view()}, which needs no lock at all, or subscribe to the changes, see {@link #watch()}.
  */
-@Slf4j
 public class TaskManager {
 
     private static final int DEFAULT_CAPACITY = 10;
+    private static final String NO_CAPACITY = "No free capacity to accept new processes.";
+    private static final Duration MAX_TTL = Duration.ofMillis(Long.MAX_VALUE);
+    private static final Instant MAX_DEADLINE = Instant.ofEpochMilli(Long.MAX_VALUE);
 
     private final ReplacementStrategy replacementStrategy;
-    private final Map<Integer, Process> processes;
+    private final ProcessRegistry processes;
+    private final EventPipeline events;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final TaskManagerMetrics metrics;
     private final Clock clock;
-    private final int capacity;
+    private final MonotonicClock startClock;
+    private final Journal journal;
+    private final ExecutorService executor;
+    private final Map<Integer, Future<?>> executions = new HashMap<>();
+    private final TreeSet<PendingAdmission> waiting = new TreeSet<>(comparingInt(PendingAdmission::getPriority)
+            .reversed().thenComparingLong(admission -> admission.sequence));
+    private final Map<Integer, PendingAdmission> waitingByPid = new HashMap<>();
+    // admissions decided while holding the lock, which are completed once it is released
+    private final List<PendingAdmission> decided = new ArrayList<>();
+    private final TimingWheel<Process> expiries;
+    // null until the first call to view(); the draft is updated under the lock, and published on unlock
+    private ProcessView draftView;
+    private volatile ProcessView view;
+    private final ProcessWatch watch;
+    private long waitingSequence;
+    private volatile int capacity;
+    private int usedWeight;
 
     public TaskManager() {
         this(new DefaultReplacementStrategy());
@@ -39,50 +95,573 @@ public class TaskManager {
         this(replacementStrategy, DEFAULT_CAPACITY, Clock.systemDefaultZone());
     }
 
+    /**
+     * Creates a task manager that persists its processes in the journal. The processes that have been running
+     * according to the journal are restored, along with their start times, and their order in the replacement
+     * strategy, as well as the capacity set last by {@link #setCapacity(int)}. Every operation returns only once
+     * its changes are durable.
+     *
+     * The journal remains owned by the caller, who closes it once the task manager is no longer used.
+     */
+    public TaskManager(ReplacementStrategy replacementStrategy, Journal journal) {
+        this(replacementStrategy, DEFAULT_CAPACITY, Clock.systemDefaultZone(), journal);
+    }
+
+    /**
+     * Creates a task manager that runs the tasks of its processes on the given executor, e.g. a fixed pool of
+     * platform threads for tasks that mostly compute. The executor remains owned by the caller, and must accept
+     * tasks as long as the task manager is used.
+     */
+    public TaskManager(ReplacementStrategy replacementStrategy, ExecutorService executor) {
+        this(replacementStrategy, DEFAULT_CAPACITY, Clock.systemDefaultZone(), null, executor);
+    }
+
     /**
      * For testing purposes only. As per specification, the {@link #capacity} parameter
      * will be defined at build time via the {@link #DEFAULT_CAPACITY} constant.
      */
     TaskManager(ReplacementStrategy replacementStrategy, int capacity, Clock clock) {
+        this(replacementStrategy, capacity, clock, null);
+    }
+
+    TaskManager(ReplacementStrategy replacementStrategy, int capacity, Clock clock, Journal journal) {
+        this(replacementStrategy, capacity, clock, journal, Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    TaskManager(ReplacementStrategy replacementStrategy, int capacity, Clock clock, Journal journal,
+                ExecutorService executor) {
         validate(replacementStrategy == null, "replacementStrategy cannot be null");
         validate(capacity <= 0, "capacity must be a positive number");
+        validate(executor == null, "executor cannot be null");
+
+        if (journal != null) {
+            capacity = journal.getRecordedCapacity().orElse(capacity);
+        }
 
         this.replacementStrategy = replacementStrategy;
         this.capacity = capacity;
         this.clock = clock;
-        this.processes = new HashMap<>(capacity);
+        this.events = EventPipeline.forCapacity(capacity);
+        this.startClock = new MonotonicClock(clock);
+        this.processes = new ProcessRegistry(capacity);
+        this.metrics = new TaskManagerMetrics(replacementStrategy.getClass().getSimpleName(),
+                () -> this.capacity, processes::size, () -> usedWeight);
+        this.journal = journal;
+        this.executor = executor;
+        this.watch = new ProcessWatch(lock, () -> processes.list(ListOrder.BY_PID, 0, Integer.MAX_VALUE),
+                ForkJoinPool.commonPool(), capacity);
+        this.expiries = new TimingWheel<>(0);
+        events.addListener(new LoggingEventListener());
+
+        if (journal != null) {
+            restore(journal.replay());
+        }
+    }
+
+    private void restore(List<ProcessRecord> records) {
+        var restored = new ArrayList<Process>(records.size());
+        for (var record : records) {
+            restored.add(Process.restore(record.getPid(), record.getPriority(), record.getWeight(),
+                    record.getStartNanos(), record.getStartSequence(), record.getExpiresAt(), clock.getZone()));
+        }
+        restoreProcesses(restored);
+    }
+
+    /**
+     * Creates a task manager from a snapshot written by {@link #snapshot(Path)}, with the capacity and the
+     * processes of the snapshot. The processes are restored in the order they have been started, which
+     * is the order the indexes of the task manager and of the replacement strategy are sorted by.
+     */
+    public static TaskManager restore(Path file, ReplacementStrategy replacementStrategy) throws IOException {
+        return restore(Snapshot.read(file), replacementStrategy, Clock.systemDefaultZone());
+    }
+
+    static TaskManager restore(Snapshot snapshot, ReplacementStrategy replacementStrategy, Clock clock) {
+        var restored = new ArrayList<Process>(snapshot.size());
+        for (int i = 0; i < snapshot.size(); i++) {
+            if (snapshot.isRunning(i)) {
+                restored.add(Process.restore(snapshot.getPid(i), snapshot.getPriority(i), snapshot.getWeight(i),
+                        snapshot.getStartNanos(i), snapshot.getStartSequence(i), snapshot.getExpiresAt(i),
+                        clock.getZone()));
+            }
+        }
+
+        var taskManager = new TaskManager(replacementStrategy, snapshot.getCapacity(), clock);
+        taskManager.restoreProcesses(restored);
+        return taskManager;
+    }
+
+    /**
+     * Adds the processes in bulk, so that the indexes are built in linear time rather than one process at a time.
+     * Processes that have expired while the task manager was down are killed by the next operation.
+     */
+    private void restoreProcesses(List<Process> restored) {
+        long weight = restored.stream().mapToLong(Process::getWeight).sum();
+        if (weight > capacity) {
+            throw new IllegalStateException("Cannot restore processes of weight " + weight + ", the capacity is " + capacity);
+        }
+
+        processes.addAll(restored);
+        usedWeight = (int) weight;
+        replacementStrategy.onProcessesRestored(restored);
+        for (var process : restored) {
+            startClock.restore(process.getStartNanos(), process.getStartSequence());
+            scheduleExpiry(process);
+        }
+    }
+
+    /**
+     * Writes a snapshot of the running processes to the file, see {@link #restore(Path, ReplacementStrategy)}.
+     * The processes are copied while holding the lock, the file is written after releasing it.
+     */
+    public void snapshot(Path file) throws IOException {
+        Snapshot snapshot;
+        lock();
+        try {
+            expire();
+            snapshot = new Snapshot(capacity, processes.size());
+            int index = 0;
+            for (var process : processes.list(ListOrder.BY_TIME_STARTED, 0, Integer.MAX_VALUE)) {
+                snapshot.set(index++, process);
+            }
+        } finally {
+            unlock();
+        }
+        snapshot.write(file);
+    }
+
+    public void addProcess(Process process) throws CapacityFullException {
+        long start = lock();
+        try {
+            expire();
+            validateNew(process);
+
+            reserveJournal(1 + Math.min(process.getWeight(), processes.size()));
+            if (admit(process).isEmpty()) {
+                reject(process);
+                throw new CapacityFullException(NO_CAPACITY);
+            }
+        } finally {
+            unlock();
+            metrics.recordAddProcess(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Like {@link #addProcess(Process)}, except that a process without room is reported as a rejected result,
+     * rather than thrown as a {@link CapacityFullException}.
+     */
+    public AdmissionResult tryAddProcess(Process process) {
+        long start = lock();
+        try {
+            expire();
+            validateNew(process);
+
+            reserveJournal(1 + Math.min(process.getWeight(), processes.size()));
+            return admit(process).orElseGet(() -> reject(process));
+        } finally {
+            unlock();
+            metrics.recordAddProcess(System.nanoTime() - start);
+        }
     }
 
-    public synchronized void addProcess(Process process) throws CapacityFullException {
+    public CompletableFuture<AdmissionResult> addProcessAsync(Process process) {
+        return addProcessAsync(process, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Adds the process right away if there is room for it, like {@link #addProcess(Process)}. Otherwise, the
+     * process waits until a kill (or a finished task) frees a slot, and is then admitted ahead of all processes
+     * with a lower priority. Processes of the same priority are admitted in the order they have arrived.
+     *
+     * At most as many processes wait, as the capacity of the task manager. When the queue is full, a new process
+     * takes the place of the waiting process with the lowest priority, if that is lower than its own. The process
+     * that loses its place, or that does not get one, is completed as rejected.
+     *
+     * Cancelling the future, or completing it exceptionally (e.g. via {@link CompletableFuture#orTimeout}),
+     * withdraws the process, unless it has been admitted already.
+     *
+     * Waiting processes only advance when some operation runs on the task manager. In particular, the slots of
+     * processes whose time to live or deadline has passed are only freed by the next operation, or by
+     * {@link #expireProcesses()}, as there is no timer. While the task manager is otherwise idle, callers that
+     * wait for expiring processes to make room should thus call {@link #expireProcesses()} periodically.
+     *
+     * @param timeout how long the process may wait, or 0 to wait as long as it takes
+     * @return the outcome of the admission, which fails with a {@link java.util.concurrent.TimeoutException}
+     *         once the timeout has elapsed
+     */
+    public CompletableFuture<AdmissionResult> addProcessAsync(Process process, long timeout, TimeUnit unit) {
+        validate(timeout < 0, "timeout cannot be negative");
+        validate(unit == null, "unit cannot be null");
+
+        PendingAdmission admission;
+        long start = lock();
+        try {
+            expire();
+            validateNew(process);
+            validate(waitingByPid.containsKey(process.getPid()), "Process with the same pid is already waiting");
+
+            reserveJournal(1 + Math.min(process.getWeight(), processes.size()));
+            var result = admit(process);
+            if (result.isPresent()) {
+                return CompletableFuture.completedFuture(result.get());
+            }
+
+            admission = new PendingAdmission(process, waitingSequence++);
+            if (waiting.size() >= capacity) {
+                if (waiting.comparator().compare(admission, waiting.last()) > 0) {
+                    return CompletableFuture.completedFuture(reject(process));
+                }
+                rejectWaiting(waiting.last());
+            }
+            waiting.add(admission);
+            waitingByPid.put(process.getPid(), admission);
+        } finally {
+            unlock();
+            metrics.recordAddProcess(System.nanoTime() - start);
+        }
+
+        return timeout == 0 ? admission : admission.orTimeout(timeout, unit);
+    }
+
+    private void validateNew(Process process) {
         validate(process == null, "Process cannot be null");
         validate(process.hasStarted(), "Cannot add an already started process");
-        validate(processes.containsKey(process.getPid()), "Process with the same pid is already active");
+        validate(processes.contains(process.getPid()), "Process with the same pid is already active");
+        validate(process.getWeight() <= 0, "Process weight must be a positive number");
+        validate(process.getWeight() > capacity, "Process weight cannot exceed the capacity");
+        validate(exceedsJournal(process), "Process weight cannot exceed " + Journal.MAX_WEIGHT + " with a journal");
+        validate(hasInvalidTtl(process), "Process ttl must be positive");
+    }
 
-        ensureCapacity(process);
+    /**
+     * The journal has room for weights up to {@link Journal#MAX_WEIGHT}. This is checked before anything is
+     * replaced or started, rather than when the start is journaled.
+     */
+    private boolean exceedsJournal(Process process) {
+        return journal != null && process.getWeight() > Journal.MAX_WEIGHT;
+    }
+
+    private static boolean hasInvalidTtl(Process process) {
+        return process.getTtl() != null && (process.getTtl().isNegative() || process.getTtl().isZero());
+    }
+
+    /**
+     * Starts the process, if there is enough free weight, or if the strategy finds processes to replace.
+     * @return the outcome, or empty if there is no room for the process
+     */
+    private Optional<AdmissionResult> admit(Process process) {
+        var result = makeRoom(process);
+        if (result.isPresent()) {
+            startInternal(process);
+            register(process);
+        }
+        return result;
+    }
+
+    /**
+     * Replaces as many processes as the strategy chooses, unless the new process fits in already.
+     * @return the outcome, or empty if the strategy finds no processes to replace
+     */
+    private Optional<AdmissionResult> makeRoom(Process process) {
+        long needed = (long) usedWeight + process.getWeight() - capacity;
+        if (needed <= 0) {
+            return Optional.of(AdmissionResult.admitted(process.getPid()));
+        }
+
+        long start = System.nanoTime();
+        var victims = replacementStrategy.chooseVictims(processes.values(), process, needed);
+        metrics.recordChoose(System.nanoTime() - start);
+        if (victims.isEmpty()) {
+            return Optional.empty();
+        }
+
+        var replacedPids = new ArrayList<Integer>(victims.size());
+        for (var victim : victims) {
+            remove(victim, ProcessEvent.Type.EVICTED);
+            metrics.recordEviction();
+            replacedPids.add(victim.getPid());
+        }
+        return Optional.of(AdmissionResult.replaced(process.getPid(), replacedPids));
+    }
+
+    /**
+     * Adds a started process to the indexes, and submits its task.
+     */
+    private void register(Process process) {
+        processes.add(process);
+        if (draftView != null) {
+            draftView = draftView.with(process);
+        }
+        watch.record(ProcessEvent.Type.STARTED, process);
+        usedWeight += process.getWeight();
+        replacementStrategy.onProcessAdded(process);
+        scheduleExpiry(process);
+        execute(process);
+        metrics.recordAdmission();
+    }
 
-        startInternal(process);
-        processes.put(process.getPid(), process);
+    private AdmissionResult reject(Process process) {
+        metrics.recordRejection();
+        events.publish(ProcessEvent.Type.REJECTED, process, clock);
+        return AdmissionResult.rejected(process.getPid(), NO_CAPACITY);
     }
 
-    private void ensureCapacity(Process newProcess) {
-        if (capacity == processes.size()) {
-            var replacedOptional = replacementStrategy.choose(processes.values(), newProcess);
-            if (replacedOptional.isPresent()) {
-                var replacedProcess = replacedOptional.get();
-                processes.remove(replacedProcess.getPid());
-                killInternal(replacedProcess);
+    /**
+     * Adds a whole batch of processes, while holding the lock only once. Unlike {@link #addProcess(Process)}, this
+     * method does not throw when a process cannot be added, but reports the outcome for each process instead.
+     *
+     * The processes are admitted in the iteration order of the collection. Once the capacity is full, the
+     * {@link ReplacementStrategy} picks the processes to replace for all remaining ones in one go. Processes of
+     * the same batch never replace each other, i.e. at most as many processes can be replaced, as there are
+     * running before the call.
+     *
+     * Processes that weigh more than 1 are admitted one after the other, each replacing as many processes as
+     * it needs. They are registered with the strategy only once the whole batch is admitted, so that they never
+     * replace each other either.
+     *
+     * @return one result for each process, in the iteration order of the collection
+     */
+    public List<AdmissionResult> addProcesses(Collection<Process> newProcesses) {
+        long start = lock();
+        try {
+            expire();
+            return addProcessesLocked(newProcesses);
+        } finally {
+            unlock();
+            metrics.recordAddProcess(System.nanoTime() - start);
+        }
+    }
+
+    private List<AdmissionResult> addProcessesLocked(Collection<Process> newProcesses) {
+        validate(newProcesses == null, "processes cannot be null");
+        for (var process : newProcesses) {
+            validate(process == null, "Process cannot be null");
+        }
+
+        var results = new AdmissionResult[newProcesses.size()];
+        var valid = new ArrayList<Process>(newProcesses.size());
+        var validPositions = new ArrayList<Integer>(newProcesses.size());
+        var batch = new ProcessTable(newProcesses.size());
+
+        long weight = 0;
+        int position = 0;
+        for (var process : newProcesses) {
+            if (process.hasStarted()) {
+                results[position] = AdmissionResult.rejected(process.getPid(), "Cannot add an already started process");
+            } else if (process.getWeight() <= 0 || process.getWeight() > capacity) {
+                results[position] = AdmissionResult.rejected(process.getPid(),
+                        "Process weight must be between 1 and the capacity");
+            } else if (exceedsJournal(process)) {
+                results[position] = AdmissionResult.rejected(process.getPid(),
+                        "Process weight cannot exceed " + Journal.MAX_WEIGHT + " with a journal");
+            } else if (hasInvalidTtl(process)) {
+                results[position] = AdmissionResult.rejected(process.getPid(), "Process ttl must be positive");
+            } else if (processes.contains(process.getPid()) || batch.put(process) != null) {
+                results[position] = AdmissionResult.rejected(process.getPid(), "Process with the same pid is already active");
             } else {
-                throw new CapacityFullException("No free capacity to accept new processes.");
+                valid.add(process);
+                validPositions.add(position);
+                weight += process.getWeight();
+            }
+            position++;
+        }
+
+        reserveJournal(valid.size() + (int) Math.min(processes.size(), weight));
+        if (weight != valid.size() || usedWeight != processes.size()) {
+            addWeighted(valid, validPositions, results);
+            return Arrays.asList(results);
+        }
+
+        int free = Math.min(capacity - processes.size(), valid.size());
+        long chooseStart = System.nanoTime();
+        var victims = replacementStrategy.chooseAll(processes.values(), valid.subList(free, valid.size()));
+        metrics.recordChoose(System.nanoTime() - chooseStart);
+
+        for (int i = 0; i < valid.size(); i++) {
+            var process = valid.get(i);
+            AdmissionResult result;
+            if (i < free) {
+                result = AdmissionResult.admitted(process.getPid());
+            } else {
+                var victim = victims.get(i - free);
+                if (victim.isEmpty()) {
+                    results[validPositions.get(i)] = reject(process);
+                    continue;
+                }
+                remove(victim.get(), ProcessEvent.Type.EVICTED);
+                metrics.recordEviction();
+                result = AdmissionResult.replaced(process.getPid(), victim.get().getPid());
+            }
+
+            startInternal(process);
+            register(process);
+            results[validPositions.get(i)] = result;
+        }
+
+        return Arrays.asList(results);
+    }
+
+    private void addWeighted(List<Process> valid, List<Integer> validPositions, AdmissionResult[] results) {
+        var admitted = new ArrayList<Process>(valid.size());
+        for (int i = 0; i < valid.size(); i++) {
+            var process = valid.get(i);
+            var result = makeRoom(process);
+            if (result.isEmpty()) {
+                results[validPositions.get(i)] = reject(process);
+                continue;
+            }
+
+            startInternal(process);
+            // reserved right away, registered once the whole batch is in
+            usedWeight += process.getWeight();
+            admitted.add(process);
+            results[validPositions.get(i)] = result.get();
+        }
+
+        for (var process : admitted) {
+            usedWeight -= process.getWeight();
+            register(process);
+        }
+    }
+
+    /**
+     * Asks the {@link ReplacementStrategy} which process it would replace, if the new process was added now and
+     * the capacity was full. Nothing is replaced, i.e. by the time the process is added, the answer might differ.
+     *
+     * @return the process that would be replaced, or empty if the strategy would reject the new process
+     */
+    public Optional<Process> findReplacement(Process newProcess) {
+        validate(newProcess == null, "Process cannot be null");
+
+        lock();
+        try {
+            expire();
+            return processes.size() == 0 ? Optional.empty() : choose(newProcess);
+        } finally {
+            unlock();
+        }
+    }
+
+    private Optional<Process> choose(Process newProcess) {
+        long start = System.nanoTime();
+        try {
+            return replacementStrategy.choose(processes.values(), newProcess);
+        } finally {
+            metrics.recordChoose(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * The lifecycle events of this task manager (started, killed, evicted and rejected processes) are
+     * delivered to listeners on a separate thread. A {@link LoggingEventListener} is registered by default, and
+     * can be removed via {@code taskManager.getEventPipeline().removeListener(new LoggingEventListener())}.
+     *
+     * @return the pipeline, which delivers the lifecycle events of this task manager to its listeners
+     */
+    public EventPipeline getEventPipeline() {
+        return events;
+    }
+
+    /**
+     * Streams the changes of the running processes: each subscriber first receives a snapshot, and then only
+     * the processes that have been added or removed since, rather than polling {@link #listProcesses(ListOrder)}
+     * and comparing the results. Slow subscribers get the changes coalesced, see {@link ProcessWatch}.
+     *
+     * @return the publisher of the changes, which delivers them on the common fork-join pool
+     */
+    public Flow.Publisher<ProcessTableUpdate> watch() {
+        return watch;
+    }
+
+    /**
+     * The metrics count admissions, rejections, evictions and kills, and record the latencies of the operations,
+     * of the {@link ReplacementStrategy}, and of waiting for the lock. They can be exposed via JMX, e.g.
+     * {@code taskManager.getMetrics().registerMBean("main")}.
+     *
+     * @return the metrics of this task manager
+     */
+    public TaskManagerMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the latest view of the running processes, without taking the lock. The view is immutable, i.e. it
+     * keeps showing the processes as they have been after some operation, while the task manager goes on. Take a
+     * new view to see later operations.
+     *
+     * The first call builds the view in O(n log n). From then on, every operation that changes the processes
+     * updates the view in O(log n) per process, and publishes a new version once it is complete. Processes whose
+     * time to live has passed remain in the view until the next operation on the task manager.
+     */
+    public ProcessView view() {
+        var current = view;
+        if (current != null) {
+            return current;
+        }
+
+        lock();
+        try {
+            if (view == null) {
+                draftView = ProcessView.of(processes.values());
+                view = draftView;
             }
+            return view;
+        } finally {
+            lock.unlock();
         }
     }
 
     public List<Process> listProcesses(ListOrder listOrder) {
+        return listProcesses(listOrder, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Lists a single page of the processes, e.g. {@code listProcesses(BY_PID, 20, 10)} returns the processes
+     * with the 21st to the 30th smallest pid. The processes are kept sorted, thus there is no need
+     * to fetch all of them in order to display a page.
+     * @param offset the number of processes to skip
+     * @param limit the maximum number of processes to return
+     */
+    public List<Process> listProcesses(ListOrder listOrder, int offset, int limit) {
+        validate(listOrder == null, "listOrder cannot be null");
+        validate(offset < 0, "offset cannot be negative");
+        validate(limit < 0, "limit cannot be negative");
+
+        long start = lock();
+        try {
+            expire();
+            return processes.list(listOrder, offset, limit);
+        } finally {
+            unlock();
+            metrics.recordListProcesses(System.nanoTime() - start);
+        }
+    }
+
+    public List<Process> listProcesses(ListOrder listOrder, Predicate<Process> selector) {
+        return listProcesses(listOrder, selector, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Lists a single page of the processes that match the selector. The selectors created by {@link Selectors},
+     * and queries composed of them, are answered from the indexes, e.g.
+     * {@code listProcesses(BY_PID, and(byPriorityRange(0, 2), startedBefore(t)), 0, 10)} visits only processes
+     * of a low priority, or only processes started before t. Only the matching processes are sorted.
+     */
+    public List<Process> listProcesses(ListOrder listOrder, Predicate<Process> selector, int offset, int limit) {
         validate(listOrder == null, "listOrder cannot be null");
+        validate(selector == null, "selector cannot be null");
+        validate(offset < 0, "offset cannot be negative");
+        validate(limit < 0, "limit cannot be negative");
 
-        return processes.values().stream()
-                .sorted(listOrder.getComparator())
-                .collect(toList());
+        long start = lock();
+        try {
+            expire();
+            return processes.list(listOrder, selector, offset, limit);
+        } finally {
+            unlock();
+            metrics.recordListProcesses(System.nanoTime() - start);
+        }
     }
 
     /**
@@ -90,23 +669,308 @@ public class TaskManager {
      * @param selector a predicate that selects which processes to kill. Please, see {@link Selectors} for possible
      * @return a list of pid-s for all killed processes
      */
-    public synchronized List<Integer> kill(Predicate<Process> selector) {
+    public List<Integer> kill(Predicate<Process> selector) {
         validate(selector == null, "selector cannot be null");
 
-        var iterator = processes.entrySet().iterator();
-
-        var killedPids = new ArrayList<Integer>();
-        while (iterator.hasNext()) {
-            var entry = iterator.next();
-            var process = entry.getValue();
-            if (selector.test(process)) {
-                iterator.remove();
-                killInternal(process);
+        long start = lock();
+        try {
+            expire();
+            var selected = processes.select(selector);
+            // the freed weight may admit any number of lighter waiting processes, each with a record of its own
+            reserveJournal(selected.size() + waiting.size());
+            var killedPids = new ArrayList<Integer>();
+            for (var process : selected) {
+                remove(process, ProcessEvent.Type.KILLED);
                 killedPids.add(process.getPid());
             }
+
+            metrics.recordKills(Selectors.nameOf(selector), killedPids.size());
+            admitWaiting();
+            return killedPids;
+        } finally {
+            unlock();
+            metrics.recordKill(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Kills the processes, whose time to live or deadline has passed as per the clock of the task manager. Every
+     * operation does so before anything else, thus this method only needs to be called (e.g. periodically) to free
+     * the slots of expired processes while the task manager is otherwise idle.
+     *
+     * Expired processes are killed like by {@link #kill(Predicate)}, i.e. they are reported as killed, counted
+     * as kills of the kind "expired", and free their slots for waiting processes.
+     *
+     * @return a list of pid-s for all expired processes
+     */
+    public List<Integer> expireProcesses() {
+        long start = lock();
+        try {
+            return expire();
+        } finally {
+            unlock();
+            metrics.recordKill(System.nanoTime() - start);
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Changes the capacity at runtime, e.g. as the host scales.
+     *
+     * Growing admits waiting processes right away. The indexes grow incrementally as processes are added, so no
+     * admission waits for them to be rehashed as a whole.
+     *
+     * Shrinking below the weight in use evicts the surplus in a single batch: the strategy chooses all victims at
+     * once via {@link ReplacementStrategy#chooseVictims}, as if a process of the highest priority and of the
+     * surplus weight was to be added, i.e. the indexed strategies take them from the front of their index. If the
+     * strategy does not free enough weight, e.g. the {@link DefaultReplacementStrategy}, which never replaces a
+     * process, nothing is evicted and the capacity stays as it is. Waiting processes that no longer fit, or no
+     * longer find a place in the queue, are completed as rejected. The evictions are counted as kills of the
+     * "capacity" selector, and the admitted waiters as admissions.
+     *
+     * @return a list of pid-s for all evicted processes
+     * @throws IllegalStateException if the surplus cannot be evicted
+     */
+    public List<Integer> setCapacity(int capacity) {
+        validate(capacity <= 0, "capacity must be a positive number");
+
+        long start = lock();
+        try {
+            expire();
+            reserveJournal(processes.size() + waiting.size() + 1);
+            var evictedPids = new ArrayList<Integer>();
+            long surplus = (long) usedWeight - capacity;
+            if (surplus > 0) {
+                var standIn = Process.builder()
+                        .priority(Integer.MAX_VALUE)
+                        .weight((int) surplus)
+                        .build();
+                long chooseStart = System.nanoTime();
+                var victims = replacementStrategy.chooseVictims(processes.values(), standIn, surplus);
+                metrics.recordChoose(System.nanoTime() - chooseStart);
+                if (victims.isEmpty()) {
+                    throw new IllegalStateException("The strategy cannot evict processes of weight " + surplus
+                            + " to shrink the capacity to " + capacity);
+                }
+
+                for (var victim : victims) {
+                    remove(victim, ProcessEvent.Type.EVICTED);
+                    metrics.recordEviction();
+                    evictedPids.add(victim.getPid());
+                }
+                metrics.recordKills("capacity", evictedPids.size());
+            }
+
+            this.capacity = capacity;
+            watch.setMaxBacklog(capacity);
+            if (journal != null) {
+                journal.appendCapacity(capacity);
+            }
+            for (var admission : new ArrayList<>(waiting)) {
+                if (admission.process.getWeight() > capacity) {
+                    rejectWaiting(admission);
+                }
+            }
+            while (waiting.size() > capacity) {
+                rejectWaiting(waiting.last());
+            }
+            admitWaiting();
+            return evictedPids;
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * Kills the expired processes in one batch. Costs next to nothing unless processes are due, as the timing
+     * wheel jumps over idle time.
+     */
+    private List<Integer> expire() {
+        if (expiries.isEmpty()) {
+            return List.of();
+        }
+        var expired = expiries.advance(clock.millis());
+        if (expired.isEmpty()) {
+            return List.of();
         }
 
-        return killedPids;
+        // every waiting process may be admitted once the expired ones are gone, each with a record of its own
+        reserveJournal(expired.size() + waiting.size());
+        var expiredPids = new ArrayList<Integer>(expired.size());
+        for (var process : expired) {
+            remove(process, ProcessEvent.Type.KILLED);
+            expiredPids.add(process.getPid());
+        }
+
+        metrics.recordKills("expired", expiredPids.size());
+        admitWaiting();
+        return expiredPids;
+    }
+
+    /**
+     * Schedules the expiry of a process that expires at all. An expiry that has passed already lets the process
+     * expire with the next operation.
+     */
+    private void scheduleExpiry(Process process) {
+        if (process.getExpiresAt() != Process.NEVER) {
+            process.setExpiry(expiries.schedule(process.getExpiresAt(), process));
+        }
+    }
+
+    /**
+     * @return the time a process expires at, if it is admitted now. The time to live counts from now.
+     */
+    private long expiresAt(Process process) {
+        long expiresAt = Process.NEVER;
+        if (process.getTtl() != null) {
+            long ttl = process.getTtl().compareTo(MAX_TTL) > 0 ? Long.MAX_VALUE : process.getTtl().toMillis();
+            expiresAt = Math.min(expiresAt, saturatedAdd(clock.millis(), ttl));
+        }
+        if (process.getDeadline() != null) {
+            var deadline = process.getDeadline();
+            long deadlineMillis = deadline.isBefore(Instant.EPOCH) ? 0
+                    : deadline.isAfter(MAX_DEADLINE) ? Long.MAX_VALUE : deadline.toEpochMilli();
+            expiresAt = Math.min(expiresAt, deadlineMillis);
+        }
+        return expiresAt;
+    }
+
+    private static long saturatedAdd(long a, long b) {
+        long sum = a + b;
+        return ((a ^ sum) & (b ^ sum)) < 0 ? Long.MAX_VALUE : sum;
+    }
+
+    /**
+     * Admits waiting processes in order of priority, as long as the next one fits in. A heavy process at the
+     * head of the queue thus holds back lighter ones behind it, rather than being overtaken. The admissions
+     * are completed once the lock has been released and the journal is durable.
+     */
+    private void admitWaiting() {
+        while (!waiting.isEmpty() && fits(waiting.first().process)) {
+            var admission = dequeue(waiting.first());
+            var process = admission.process;
+            if (process.hasStarted() || processes.contains(process.getPid())) {
+                // the same process, or another one with its pid, has been added while it was waiting
+                admission.result = AdmissionResult.rejected(process.getPid(),
+                        "Process with the same pid is already active");
+            } else {
+                admission.result = admit(process).orElseThrow();
+            }
+            decided.add(admission);
+        }
+    }
+
+    private boolean fits(Process process) {
+        return usedWeight + process.getWeight() <= capacity;
+    }
+
+    private PendingAdmission dequeue(PendingAdmission admission) {
+        waiting.remove(admission);
+        waitingByPid.remove(admission.process.getPid());
+        admission.queued = false;
+        return admission;
+    }
+
+
+    private void rejectWaiting(PendingAdmission admission) {
+        var rejected = dequeue(admission);
+        rejected.result = reject(rejected.process);
+        decided.add(rejected);
+    }
+
+    /**
+     * Removes the admission from the queue, unless it has left the queue already.
+     * @return true if the admission has been waiting, and has been withdrawn
+     */
+    private boolean withdraw(PendingAdmission admission) {
+        lock();
+        try {
+            if (!admission.queued) {
+                return false;
+            }
+            dequeue(admission);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Acquires the lock, and records how long it took.
+     * @return the time of the call, as per {@link System#nanoTime()}
+     */
+    private long lock() {
+        long start = System.nanoTime();
+        lock.lock();
+        metrics.recordLockWait(System.nanoTime() - start);
+        return start;
+    }
+
+    /**
+     * Releases the lock, waits until the changes are durable, and then completes the admissions that have been
+     * decided meanwhile. Thus a caller never observes its admission before it is durable, nor while the lock is held.
+     * The view and the changes for watchers are published before, so that a completed admission is visible in them.
+     */
+    private void unlock() {
+        List<PendingAdmission> admissions = List.of();
+        // a task that an executor runs right away finishes within the operation, which completes them instead
+        if (lock.getHoldCount() == 1) {
+            if (!decided.isEmpty()) {
+                admissions = new ArrayList<>(decided);
+                decided.clear();
+            }
+            if (draftView != view) {
+                draftView = draftView.next();
+                view = draftView;
+            }
+            watch.publish();
+        }
+        lock.unlock();
+        syncJournal();
+        for (var admission : admissions) {
+            admission.resolve(admission.result);
+        }
+    }
+
+    private void remove(Process process, ProcessEvent.Type type) {
+        processes.remove(process);
+        if (draftView != null) {
+            draftView = draftView.without(process);
+        }
+        watch.record(type, process);
+        usedWeight -= process.getWeight();
+        if (process.getExpiry() != null) {
+            process.getExpiry().cancel();
+            process.setExpiry(null);
+        }
+        replacementStrategy.onProcessRemoved(process);
+        killInternal(process, type);
+        if (journal != null) {
+            journal.append(type, process);
+        }
+    }
+
+    /**
+     * Makes room for the records an operation is about to append, before the operation changes anything.
+     * Thus a compaction always writes the processes as they have been running before the operation.
+     */
+    private void reserveJournal(int records) {
+        if (journal != null) {
+            journal.reserve(records, processes.values());
+        }
+    }
+
+    /**
+     * Waits until the changes are durable. Called after the lock has been released, so that concurrent
+     * operations share the cost of flushing the journal.
+     */
+    private void syncJournal() {
+        if (journal != null) {
+            journal.sync();
+        }
     }
 
     /**
@@ -116,8 +980,72 @@ public class TaskManager {
      * This is the reason we decide to place it in a single private method.
      */
     private void startInternal(Process process) {
-        log.info("About to start process " + process);
-        process.start(clock);
+        process.start(startClock, expiresAt(process));
+        if (journal != null) {
+            journal.append(ProcessEvent.Type.STARTED, process);
+        }
+        events.publish(ProcessEvent.Type.STARTED, process, clock);
+    }
+
+    /**
+     * Submits the task of a process, once the process has been added. The task is tracked until the process
+     * is removed, so that killing or evicting the process can interrupt it. A task that the executor does not
+     * accept ends the process again.
+     *
+     * A task that throws, other than after its process has been killed, is counted as a failure in the metrics,
+     * as nobody reads the future it has been submitted as.
+     */
+    private void execute(Process process) {
+        var task = process.getTask();
+        if (task == null) {
+            return;
+        }
+
+        try {
+            var execution = executor.submit(() -> {
+                try {
+                    task.run();
+                } catch (Throwable e) {
+                    if (!process.isFinished()) {
+                        metrics.recordTaskFailure();
+                    }
+                    throw e;
+                } finally {
+                    finish(process);
+                }
+            });
+            // the task finishes the process under the lock, thus it cannot do so between the check and the put,
+            // while an executor that runs the task right away has finished the process already
+            lock.lock();
+            try {
+                if (!process.isFinished()) {
+                    executions.put(process.getPid(), execution);
+                }
+            } finally {
+                lock.unlock();
+            }
+        } catch (RejectedExecutionException e) {
+            remove(process, ProcessEvent.Type.KILLED);
+            throw e;
+        }
+    }
+
+    /**
+     * Frees the slot of a process, whose task has completed, either normally or by throwing. Nothing happens,
+     * if the process has been killed or evicted in the meantime. Runs on the thread of the task, whose future
+     * is thus only forgotten rather than cancelled, see {@link #killInternal}.
+     */
+    private void finish(Process process) {
+        lock();
+        try {
+            if (!process.isFinished() && processes.byPid(process.getPid()).contains(process)) {
+                reserveJournal(1 + waiting.size());
+                remove(process, ProcessEvent.Type.FINISHED);
+                admitWaiting();
+            }
+        } finally {
+            unlock();
+        }
     }
 
     /**
@@ -126,9 +1054,14 @@ public class TaskManager {
      *
      * This is the reason we decide to place it in a single private method.
      */
-    private void killInternal(Process process) {
-        log.info("About to kill process " + process);
+    private void killInternal(Process process, ProcessEvent.Type type) {
         process.kill();
+        var execution = executions.remove(process.getPid());
+        // a finished process is removed by its own task, which must neither interrupt itself nor cancel its future
+        if (execution != null && type != ProcessEvent.Type.FINISHED) {
+            execution.cancel(true);
+        }
+        events.publish(type, process, clock);
     }
 
     /**
@@ -145,4 +1078,41 @@ public class TaskManager {
         }
     }
 
+    /**
+     * A process waiting for a free slot, which is also the future of its admission. Cancelling the future,
+     * or completing it exceptionally, removes the process from the queue first, unless the process has left
+     * the queue already. In that case, the admission has been decided, and the future is about to complete.
+     */
+    private class PendingAdmission extends CompletableFuture<AdmissionResult> {
+
+        private final Process process;
+        private final long sequence;
+
+        // guarded by the lock of the task manager
+        private boolean queued = true;
+        private AdmissionResult result;
+
+        PendingAdmission(Process process, long sequence) {
+            this.process = process;
+            this.sequence = sequence;
+        }
+
+        int getPriority() {
+            return process.getPriority();
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            return withdraw(this) && super.cancel(mayInterruptIfRunning);
+        }
+
+        @Override
+        public boolean completeExceptionally(Throwable ex) {
+            return withdraw(this) && super.completeExceptionally(ex);
+        }
+
+        void resolve(AdmissionResult result) {
+            super.complete(result);
+        }
+    }
 }
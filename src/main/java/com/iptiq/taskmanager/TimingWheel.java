@@ -0,0 +1,225 @@
+package com.iptiq.taskmanager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A hierarchical timing wheel, which hands out the values whose deadline has passed.
+ *
+ * Time is counted in ticks, e.g. milliseconds. The wheel has 11 levels of 64 slots, where a slot of level n spans
+ * 64^n ticks, thus together they cover every non-negative long. A timeout lives at the lowest level, at which its
+ * deadline falls into the same slot of the next level as the current time. Each slot is a doubly linked list, so
+ * scheduling and cancelling a timeout costs O(1), regardless of how many timeouts there are.
+ *
+ * Once the current time enters a slot of a higher level, its timeouts are cascaded down to the lower levels. Each
+ * level keeps a bitmap of its occupied slots, thus advancing jumps straight to the next occupied slot, rather than
+ * stepping through idle ticks: the cost of {@link #advance(long)} depends on the timeouts that are due, not on the
+ * time that has passed.
+ *
+ * The wheel is not thread-safe.
+ */
+class TimingWheel<T> {
+
+    private static final int BITS = 6;
+    private static final int SLOTS = 1 << BITS;
+    private static final int LEVELS = (Long.SIZE + BITS - 1) / BITS;
+    // an extra level of a single slot, for timeouts scheduled after their deadline has been processed
+    private static final int OVERDUE = LEVELS;
+
+    private final Timeout<T>[][] heads;
+    private final long[] occupied = new long[LEVELS + 1];
+    // the first tick that has not been processed yet
+    private long now;
+    private int size;
+
+    /**
+     * @param now the current time in ticks
+     */
+    @SuppressWarnings("unchecked")
+    TimingWheel(long now) {
+        if (now < 0) {
+            throw new IllegalArgumentException("now cannot be negative");
+        }
+        this.heads = (Timeout<T>[][]) new Timeout<?>[LEVELS + 1][SLOTS];
+        this.now = now;
+    }
+
+    /**
+     * @param deadline the tick, at which the value is due. A deadline before the current time is due on the next
+     *                 advance, whatever time it advances to.
+     * @return the timeout, which can be cancelled until it is due
+     */
+    Timeout<T> schedule(long deadline, T value) {
+        var timeout = new Timeout<>(this, deadline, value);
+        if (deadline < now) {
+            link(timeout, OVERDUE, 0);
+        } else {
+            insert(timeout);
+        }
+        size++;
+        return timeout;
+    }
+
+    /**
+     * Advances the current time to the given tick, and removes all timeouts that are due by then.
+     * @return the values of the removed timeouts, the overdue ones first, then in the order of their deadlines
+     */
+    List<T> advance(long time) {
+        var due = new ArrayList<T>();
+        for (var timeout = heads[OVERDUE][0]; timeout != null; timeout = heads[OVERDUE][0]) {
+            unlink(timeout);
+            due.add(timeout.value);
+        }
+
+        while (size > 0 && now <= time) {
+            int level = nextLevel();
+            long tick = nextTick(level);
+            if (tick > time) {
+                break;
+            }
+
+            now = tick;
+            int slot = digit(tick, level);
+            var timeout = heads[level][slot];
+            heads[level][slot] = null;
+            occupied[level] &= ~(1L << slot);
+            while (timeout != null) {
+                var next = timeout.next;
+                timeout.prev = timeout.next = null;
+                if (level == 0) {
+                    timeout.level = -1;
+                    size--;
+                    due.add(timeout.value);
+                } else {
+                    insert(timeout);
+                }
+                timeout = next;
+            }
+        }
+        now = Math.max(now, time + 1);
+        return due;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the level, whose next occupied slot comes first. On a tie, the higher level wins, so that its slot is
+     *         cascaded before any timeout of the lower levels is handed out for the same tick.
+     */
+    private int nextLevel() {
+        int next = -1;
+        long nextTick = Long.MAX_VALUE;
+        for (int level = LEVELS - 1; level >= 0; level--) {
+            long tick = nextTick(level);
+            if (tick < nextTick) {
+                next = level;
+                nextTick = tick;
+            }
+        }
+        return next;
+    }
+
+    /**
+     * @return the tick, at which the next occupied slot of the level is processed, or Long.MAX_VALUE if it is empty
+     */
+    private long nextTick(int level) {
+        long candidates = occupied[level] & (-1L << digit(now, level));
+        if (candidates == 0) {
+            return Long.MAX_VALUE;
+        }
+
+        int slot = Long.numberOfTrailingZeros(candidates);
+        int shift = BITS * level;
+        long upper = level == LEVELS - 1 ? 0 : (now >>> (shift + BITS)) << (shift + BITS);
+        return Math.max(now, upper | ((long) slot << shift));
+    }
+
+    private void insert(Timeout<T> timeout) {
+        long tick = Math.max(timeout.deadline, now);
+        int level = 0;
+        while (level < LEVELS - 1 && (tick >>> (BITS * (level + 1))) != (now >>> (BITS * (level + 1)))) {
+            level++;
+        }
+
+        link(timeout, level, digit(tick, level));
+    }
+
+    private void link(Timeout<T> timeout, int level, int slot) {
+        var head = heads[level][slot];
+        timeout.next = head;
+        if (head != null) {
+            head.prev = timeout;
+        }
+        heads[level][slot] = timeout;
+        occupied[level] |= 1L << slot;
+        timeout.level = level;
+        timeout.slot = slot;
+    }
+
+    private void unlink(Timeout<T> timeout) {
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            heads[timeout.level][timeout.slot] = timeout.next;
+            if (timeout.next == null) {
+                occupied[timeout.level] &= ~(1L << timeout.slot);
+            }
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = timeout.next = null;
+        timeout.level = -1;
+        size--;
+    }
+
+    private static int digit(long tick, int level) {
+        return (int) (tick >>> (BITS * level)) & (SLOTS - 1);
+    }
+
+    /**
+     * A value scheduled in the wheel, until it is due or cancelled.
+     */
+    static final class Timeout<T> {
+
+        private final TimingWheel<T> wheel;
+        private final long deadline;
+        private final T value;
+        private Timeout<T> prev;
+        private Timeout<T> next;
+        // -1 once the timeout has left the wheel
+        private int level = -1;
+        private int slot;
+
+        private Timeout(TimingWheel<T> wheel, long deadline, T value) {
+            this.wheel = wheel;
+            this.deadline = deadline;
+            this.value = value;
+        }
+
+        long getDeadline() {
+            return deadline;
+        }
+
+        T getValue() {
+            return value;
+        }
+
+        /**
+         * @return false if the timeout has been due, or cancelled already
+         */
+        boolean cancel() {
+            if (level < 0) {
+                return false;
+            }
+            wheel.unlink(this);
+            return true;
+        }
+    }
+}
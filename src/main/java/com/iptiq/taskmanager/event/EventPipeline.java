@@ -0,0 +1,272 @@
+package com.iptiq.taskmanager.event;
+
+import com.iptiq.taskmanager.Process;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Clock;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Moves lifecycle events off the hot path of the task manager.
+ *
+ * Publishers copy a few fields into a preallocated {@link ProcessEvent} of a bounded ring buffer, which neither
+ * allocates nor blocks. A single consumer thread hands the published events in batches to the listeners.
+ * If the listeners cannot keep up, and the buffer is full, new events are dropped and counted, rather than
+ * stalling the task manager.
+ *
+ * Each slot of the ring carries a sequence number, which tells whether the slot is free for the producer at
+ * a given position, or ready for the consumer (a bounded queue after D. Vyukov). Thus any number of threads
+ * can publish concurrently.
+ *
+ * The consumer thread is started by the first event, and stops again once it has been idle for a second, so
+ * that a pipeline which is no longer used (e.g. of a task manager that has been dropped) holds no thread, and
+ * can be collected. As long as there are no listeners, publishing costs a single volatile read.
+ */
+@Slf4j
+public class EventPipeline implements AutoCloseable {
+
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+    public static final int MIN_BUFFER_SIZE = 64;
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long IDLE_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final ProcessEvent[] events;
+    private final AtomicLongArray sequences;
+    private final int mask;
+
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+    private final LongAdder dropped = new LongAdder();
+
+    private final List<ProcessEventListener> listeners = new CopyOnWriteArrayList<>();
+
+    // the running consumer thread, if any
+    private final AtomicReference<Thread> consumer = new AtomicReference<>();
+    private volatile boolean consumerWaiting;
+    private volatile boolean closed;
+
+    public EventPipeline() {
+        this(DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Sizes the ring for a task manager of the given capacity, so that a small task manager does not carry
+     * thousands of preallocated events. Each process yields about two events (started, and killed or finished),
+     * so a few slots per process absorb a full turnover while the consumer is parked.
+     *
+     * @param capacity the capacity of the task manager, as given to its constructor
+     * @return a pipeline of four slots per process, between {@link #MIN_BUFFER_SIZE} and {@link #DEFAULT_BUFFER_SIZE}
+     */
+    public static EventPipeline forCapacity(int capacity) {
+        return new EventPipeline((int) Math.max(MIN_BUFFER_SIZE, Math.min(DEFAULT_BUFFER_SIZE, 4L * capacity)));
+    }
+
+    /**
+     * @param bufferSize the number of events that can be pending, rounded up to a power of two
+     */
+    public EventPipeline(int bufferSize) {
+        if (bufferSize <= 0 || bufferSize > (1 << 30)) {
+            throw new IllegalArgumentException("bufferSize must be between 1 and 2^30");
+        }
+
+        int size = Integer.highestOneBit(bufferSize - 1) << 1;
+        size = Math.max(size, 1);
+        this.events = new ProcessEvent[size];
+        this.sequences = new AtomicLongArray(size);
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            events[i] = new ProcessEvent();
+            sequences.set(i, i);
+        }
+    }
+
+    public synchronized void addListener(ProcessEventListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("listener cannot be null");
+        }
+        if (closed) {
+            throw new IllegalStateException("The pipeline has been closed");
+        }
+
+        listeners.add(listener);
+    }
+
+    public void removeListener(ProcessEventListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @return the number of events that have been dropped, because the buffer was full
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return the number of events that can be pending
+     */
+    public int getBufferSize() {
+        return events.length;
+    }
+
+    /**
+     * Publishes an event about the given process, unless there are no listeners.
+     * @param clock the source of the event's timestamp, which is only read if the event is actually published
+     * @return false if the event has been dropped, because the buffer is full or the pipeline is closed
+     */
+    public boolean publish(ProcessEvent.Type type, Process process, Clock clock) {
+        if (listeners.isEmpty()) {
+            return true;
+        }
+        if (closed) {
+            return false;
+        }
+
+        long position;
+        while (true) {
+            position = tail.get();
+            long sequence = sequences.get(index(position));
+            if (sequence == position) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+            } else if (sequence < position) {
+                // the slot still holds an event from the previous round, i.e. the buffer is full
+                dropped.increment();
+                return false;
+            }
+            // otherwise another producer has claimed this position in the meantime
+        }
+
+        int index = index(position);
+        events[index].set(type, process.getPid(), process.getPriority(), process.getWeight(), process.getTtl(),
+                process.getDeadline(), clock.millis());
+        sequences.set(index, position + 1);
+
+        var thread = consumer.get();
+        if (thread == null) {
+            startConsumer();
+        } else if (consumerWaiting) {
+            LockSupport.unpark(thread);
+        }
+        return true;
+    }
+
+    private void startConsumer() {
+        var thread = new Thread(this::consume, "process-events");
+        thread.setDaemon(true);
+        if (consumer.compareAndSet(null, thread)) {
+            thread.start();
+        }
+    }
+
+    /**
+     * Waits until the listeners have seen all events published before this call.
+     */
+    public void flush() {
+        long target = tail.get();
+        while (head.get() < target && !listeners.isEmpty() && !(closed && !isConsumerAlive())) {
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+        }
+    }
+
+    /**
+     * Delivers the pending events, and stops the consumer thread.
+     */
+    @Override
+    public void close() {
+        Thread thread;
+        synchronized (this) {
+            closed = true;
+            thread = consumer.get();
+        }
+
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void consume() {
+        long idleSince = System.nanoTime();
+        while (true) {
+            if (deliverBatch() > 0) {
+                idleSince = System.nanoTime();
+                continue;
+            }
+            if (closed) {
+                // events published concurrently with close() might still be delivered here
+                deliverBatch();
+                return;
+            }
+            if (System.nanoTime() - idleSince > IDLE_TIMEOUT_NANOS) {
+                consumer.set(null);
+                // a publisher that has still seen this thread relies on it to deliver its event
+                if (!isReady(head.get()) || !consumer.compareAndSet(null, Thread.currentThread())) {
+                    return;
+                }
+                idleSince = System.nanoTime();
+            }
+
+            consumerWaiting = true;
+            if (!isReady(head.get())) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+            consumerWaiting = false;
+        }
+    }
+
+    /**
+     * @return the number of delivered events
+     */
+    private int deliverBatch() {
+        long first = head.get();
+        long end = first;
+        while (end - first < events.length && isReady(end)) {
+            end++;
+        }
+
+        for (long position = first; position < end; position++) {
+            int index = index(position);
+            deliver(events[index], position == end - 1);
+            sequences.set(index, position + events.length);
+            head.set(position + 1);
+        }
+        return (int) (end - first);
+    }
+
+    private void deliver(ProcessEvent event, boolean endOfBatch) {
+        for (var listener : listeners) {
+            try {
+                listener.onEvent(event, endOfBatch);
+            } catch (RuntimeException e) {
+                log.warn("Listener " + listener + " failed to process " + event, e);
+            }
+        }
+    }
+
+    private boolean isConsumerAlive() {
+        var thread = consumer.get();
+        return thread != null && thread.isAlive();
+    }
+
+    private boolean isReady(long position) {
+        return sequences.get(index(position)) == position + 1;
+    }
+
+    private int index(long position) {
+        return (int) position & mask;
+    }
+}
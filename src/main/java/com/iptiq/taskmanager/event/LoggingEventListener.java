@@ -0,0 +1,19 @@
+package com.iptiq.taskmanager.event;
+
+import lombok.EqualsAndHashCode;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Logs every event, which is what the task manager used to do inline. The task managers register one by default.
+ *
+ * All instances are equal, thus {@code pipeline.removeListener(new LoggingEventListener())} removes the default one.
+ */
+@Slf4j
+@EqualsAndHashCode
+public class LoggingEventListener implements ProcessEventListener {
+
+    @Override
+    public void onEvent(ProcessEvent event, boolean endOfBatch) {
+        log.info("Process {}: pid={}, priority={}", event.getType(), event.getPid(), event.getPriority());
+    }
+}
@@ -0,0 +1,64 @@
+package com.iptiq.taskmanager.event;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * A change in the lifecycle of a process managed by a {@link com.iptiq.taskmanager.TaskManager}.
+ *
+ * Events are preallocated by the {@link EventPipeline}, and reused once all listeners have seen them.
+ * Listeners must therefore copy whatever they need to keep beyond {@link ProcessEventListener#onEvent}.
+ */
+@Getter
+@ToString
+public class ProcessEvent {
+
+    public enum Type {
+        /** The process has been admitted and started. */
+        STARTED,
+        /** The process has been killed on request. */
+        KILLED,
+        /** The process has been killed to make room for a new process. */
+        EVICTED,
+        /** The process has not been admitted, because there was no capacity left. */
+        REJECTED,
+        /** The task of the process has completed, and the process has been removed. */
+        FINISHED;
+    }
+
+    private Type type;
+    private int pid;
+    private int priority;
+    private int weight;
+
+    /**
+     * The time to live of the process, or null.
+     */
+    private Duration ttl;
+
+    /**
+     * The deadline of the process, or null.
+     */
+    private Instant deadline;
+
+    /**
+     * Milliseconds since the epoch, according to the clock of the task manager.
+     */
+    private long timestamp;
+
+    ProcessEvent() {
+    }
+
+    void set(Type type, int pid, int priority, int weight, Duration ttl, Instant deadline, long timestamp) {
+        this.type = type;
+        this.pid = pid;
+        this.priority = priority;
+        this.weight = weight;
+        this.ttl = ttl;
+        this.deadline = deadline;
+        this.timestamp = timestamp;
+    }
+}
@@ -0,0 +1,18 @@
+package com.iptiq.taskmanager.event;
+
+/**
+ * Consumes the events of an {@link EventPipeline}.
+ *
+ * All listeners of a pipeline are invoked from its single consumer thread, never while the task manager
+ * holds a lock. Events are delivered in batches of whatever has been published since the previous batch,
+ * which allows listeners to amortize expensive work such as flushing a file.
+ */
+@FunctionalInterface
+public interface ProcessEventListener {
+
+    /**
+     * @param event the event, which is only valid until this method returns
+     * @param endOfBatch true for the last event of the current batch
+     */
+    void onEvent(ProcessEvent event, boolean endOfBatch);
+}
@@ -0,0 +1,192 @@
+package com.iptiq.taskmanager.federation;
+
+import com.iptiq.taskmanager.CapacityFullException;
+import com.iptiq.taskmanager.Process;
+import com.iptiq.taskmanager.ReplacementStrategy;
+import com.iptiq.taskmanager.TaskManager;
+import com.iptiq.taskmanager.persistence.ProcessRecord;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A {@link TaskManager} that is one node of a federation. When the local task manager is full, the node places
+ * new processes on its peers, which it reaches through a {@link Transport}.
+ *
+ * A new process is placed:
+ * <ol>
+ *     <li>on this node, if it has free capacity,</li>
+ *     <li>otherwise on the least-loaded peer with free capacity,</li>
+ *     <li>otherwise on the node that holds the best victim. Each node proposes the process its own strategy would
+ *     replace, and the global strategy of this node picks among these candidates, like
+ *     {@link com.iptiq.taskmanager.ShardedTaskManager} does for its shards.</li>
+ * </ol>
+ * Peers that cannot be reached are left out. If no node has free capacity, and no victim is found, the new process
+ * is rejected with a {@link CapacityFullException}.
+ *
+ * The summaries are taken right before the placement, but the state of a peer may change before the process
+ * arrives there. Thus the placement is best effort: the peer applies its own strategy, and might reject the process.
+ * Candidates from different nodes are compared by their start time, i.e. FIFO across nodes is as accurate as the
+ * wall clocks of the nodes are in sync.
+ *
+ * Only pid, priority and weight travel to a peer, which starts a process of its own. The process passed to
+ * {@link #addProcess(Process)} is only started, if it is placed on this node.
+ */
+@Slf4j
+public class FederationNode implements NodeHandler, AutoCloseable {
+
+    private final String nodeId;
+    private final TaskManager taskManager;
+    private final ReplacementStrategy globalStrategy;
+    private final Transport transport;
+
+    private FederationNode(String nodeId, TaskManager taskManager, ReplacementStrategy globalStrategy,
+                           Transport transport) {
+        this.nodeId = nodeId;
+        this.taskManager = taskManager;
+        this.globalStrategy = globalStrategy;
+        this.transport = transport;
+    }
+
+    /**
+     * Creates a node, and registers it with the transport, so that its peers can reach it. Closing the node
+     * unregisters it again.
+     *
+     * @param taskManager the local task manager of this node
+     * @param globalStrategy picks among the candidates of all nodes, and must be of the same kind as the
+     *                       strategy of the task manager. It is never notified about any process.
+     */
+    public static FederationNode join(String nodeId, TaskManager taskManager, ReplacementStrategy globalStrategy,
+                                      Transport transport) {
+        validate(nodeId == null, "nodeId cannot be null");
+        validate(taskManager == null, "taskManager cannot be null");
+        validate(globalStrategy == null, "globalStrategy cannot be null");
+        validate(transport == null, "transport cannot be null");
+
+        var node = new FederationNode(nodeId, taskManager, globalStrategy, transport);
+        transport.register(nodeId, node);
+        return node;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public TaskManager getTaskManager() {
+        return taskManager;
+    }
+
+    /**
+     * Places the process on this node, or on one of its peers.
+     * @return the id of the node, where the process has been placed
+     */
+    public String addProcess(Process process) throws CapacityFullException {
+        validate(process == null, "Process cannot be null");
+
+        var metrics = taskManager.getMetrics();
+        if (metrics.getUsed() + process.getWeight() <= metrics.getCapacity()) {
+            taskManager.addProcess(process);
+            return nodeId;
+        }
+
+        var summaries = new ArrayList<NodeSummary>();
+        summaries.add(summarize(process.getPid(), process.getPriority(), process.getWeight()));
+        summaries.addAll(peerSummaries(process));
+
+        var target = leastLoaded(summaries, process.getWeight()).or(() -> nodeOfBestVictim(summaries, process));
+        if (target.isEmpty()) {
+            throw new CapacityFullException("No free capacity to accept new processes on any node.");
+        }
+
+        var targetId = target.get();
+        if (targetId.equals(nodeId)) {
+            taskManager.addProcess(process);
+        } else {
+            transport.admit(targetId, process.getPid(), process.getPriority(), process.getWeight());
+        }
+        return targetId;
+    }
+
+    private List<NodeSummary> peerSummaries(Process process) {
+        var summaries = new ArrayList<NodeSummary>();
+        for (var peer : transport.peers(nodeId)) {
+            try {
+                summaries.add(transport.summarize(peer, process.getPid(), process.getPriority(), process.getWeight()));
+            } catch (NodeUnavailableException e) {
+                log.warn("Leaving out node {} from placement: {}", peer, e.getMessage());
+            }
+        }
+        return summaries;
+    }
+
+    private static Optional<String> leastLoaded(List<NodeSummary> summaries, int weight) {
+        return summaries.stream()
+                .filter(summary -> summary.hasRoomFor(weight))
+                .min(Comparator.comparingDouble(NodeSummary::getLoad))
+                .map(NodeSummary::getNodeId);
+    }
+
+    private Optional<String> nodeOfBestVictim(List<NodeSummary> summaries, Process newProcess) {
+        var candidates = new ArrayList<Process>(summaries.size());
+        var nodes = new HashMap<Process, String>();
+        for (var summary : summaries) {
+            summary.getCandidate().ifPresent(record -> {
+                var candidate = candidate(record);
+                candidates.add(candidate);
+                nodes.put(candidate, summary.getNodeId());
+            });
+        }
+
+        if (candidates.isEmpty()) {
+            return Optional.empty();
+        }
+        return globalStrategy.choose(candidates, newProcess).map(nodes::get);
+    }
+
+    /**
+     * A stand-in for a process on another node, which only serves for the comparison by the strategy.
+     */
+    private static Process candidate(ProcessRecord record) {
+        return Process.builder()
+                .pid(record.getPid())
+                .priority(record.getPriority())
+                .weight(record.getWeight())
+                .startNanos(record.getStartNanos())
+                .startSequence(record.getStartSequence())
+                .build();
+    }
+
+    @Override
+    public NodeSummary summarize(int pid, int priority, int weight) {
+        var metrics = taskManager.getMetrics();
+        var newProcess = Process.builder().pid(pid).priority(priority).weight(weight).build();
+        var candidate = taskManager.findReplacement(newProcess)
+                .map(process -> new ProcessRecord(process.getPid(), process.getPriority(), process.getWeight(),
+                        process.getStartNanos(), process.getStartSequence(), process.getExpiresAt()))
+                .orElse(null);
+        return new NodeSummary(nodeId, metrics.getCapacity(), metrics.getUsed(), candidate);
+    }
+
+    @Override
+    public void admit(int pid, int priority, int weight) throws CapacityFullException {
+        taskManager.addProcess(Process.builder().pid(pid).priority(priority).weight(weight).build());
+    }
+
+    /**
+     * Leaves the federation. The local task manager stays as it is.
+     */
+    @Override
+    public void close() {
+        transport.unregister(nodeId);
+    }
+
+    private static void validate(boolean condition, String message) {
+        if (condition) {
+            throw new IllegalArgumentException(message);
+        }
+    }
+}
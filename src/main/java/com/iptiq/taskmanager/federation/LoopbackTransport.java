@@ -0,0 +1,56 @@
+package com.iptiq.taskmanager.federation;
+
+import com.iptiq.taskmanager.CapacityFullException;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * A {@link Transport} for nodes within the same JVM, which calls the handlers directly. It stands in for a
+ * network transport in tests, and in setups with several task managers per process.
+ */
+public class LoopbackTransport implements Transport {
+
+    private final Map<String, NodeHandler> nodes = new ConcurrentHashMap<>();
+
+    @Override
+    public void register(String nodeId, NodeHandler handler) {
+        if (nodes.putIfAbsent(nodeId, handler) != null) {
+            throw new IllegalArgumentException("Node " + nodeId + " is already registered");
+        }
+    }
+
+    @Override
+    public void unregister(String nodeId) {
+        nodes.remove(nodeId);
+    }
+
+    @Override
+    public List<String> peers(String nodeId) {
+        return nodes.keySet().stream()
+                .filter(id -> !id.equals(nodeId))
+                .sorted()
+                .collect(toList());
+    }
+
+    @Override
+    public NodeSummary summarize(String nodeId, int pid, int priority, int weight) {
+        return handler(nodeId).summarize(pid, priority, weight);
+    }
+
+    @Override
+    public void admit(String nodeId, int pid, int priority, int weight) throws CapacityFullException {
+        handler(nodeId).admit(pid, priority, weight);
+    }
+
+    private NodeHandler handler(String nodeId) {
+        var handler = nodes.get(nodeId);
+        if (handler == null) {
+            throw new NodeUnavailableException("Node " + nodeId + " is not registered");
+        }
+        return handler;
+    }
+}
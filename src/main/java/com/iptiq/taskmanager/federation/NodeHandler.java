@@ -0,0 +1,19 @@
+package com.iptiq.taskmanager.federation;
+
+import com.iptiq.taskmanager.CapacityFullException;
+
+/**
+ * The requests a node serves for its peers. A {@link Transport} delivers them to the addressed node.
+ */
+public interface NodeHandler {
+
+    /**
+     * @return the capacity and load of the node, and the process it would replace for the new one
+     */
+    NodeSummary summarize(int pid, int priority, int weight);
+
+    /**
+     * Adds a new process with the given pid, priority and weight to the node.
+     */
+    void admit(int pid, int priority, int weight) throws CapacityFullException;
+}
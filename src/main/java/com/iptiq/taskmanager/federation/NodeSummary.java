@@ -0,0 +1,46 @@
+package com.iptiq.taskmanager.federation;
+
+import com.iptiq.taskmanager.persistence.ProcessRecord;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.Optional;
+
+/**
+ * What a node tells its peers about itself, when they look for a place for a new process.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class NodeSummary {
+
+    private final String nodeId;
+    private final int capacity;
+
+    /**
+     * The part of the capacity in use, i.e. the combined weight of the running processes.
+     */
+    private final int used;
+
+    @Getter(lombok.AccessLevel.NONE)
+    private final ProcessRecord candidate;
+
+    public boolean hasRoomFor(int weight) {
+        return used + weight <= capacity;
+    }
+
+    /**
+     * @return the share of the capacity that is in use, between 0 and 1
+     */
+    public double getLoad() {
+        return (double) used / capacity;
+    }
+
+    /**
+     * @return the first process the node would replace to make room for the new process, if it was full
+     */
+    public Optional<ProcessRecord> getCandidate() {
+        return Optional.ofNullable(candidate);
+    }
+}
@@ -0,0 +1,17 @@
+package com.iptiq.taskmanager.federation;
+
+/**
+ * A node of the federation could not be reached.
+ */
+public class NodeUnavailableException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public NodeUnavailableException(String message) {
+        super(message);
+    }
+
+    public NodeUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,31 @@
+package com.iptiq.taskmanager.federation;
+
+import com.iptiq.taskmanager.CapacityFullException;
+
+import java.util.List;
+
+/**
+ * Carries the requests between the nodes of a federation.
+ *
+ * Implementations map the calls to their wire protocol, and back onto the {@link NodeHandler} of the addressed
+ * node. A {@link CapacityFullException} of the handler is passed on to the caller. A node that cannot be reached
+ * is reported as a {@link NodeUnavailableException}.
+ */
+public interface Transport {
+
+    /**
+     * Makes the node reachable for its peers.
+     */
+    void register(String nodeId, NodeHandler handler);
+
+    void unregister(String nodeId);
+
+    /**
+     * @return the ids of all other nodes that are known to the transport
+     */
+    List<String> peers(String nodeId);
+
+    NodeSummary summarize(String nodeId, int pid, int priority, int weight) throws NodeUnavailableException;
+
+    void admit(String nodeId, int pid, int priority, int weight) throws CapacityFullException, NodeUnavailableException;
+}
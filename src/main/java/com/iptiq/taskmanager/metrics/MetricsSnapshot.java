@@ -0,0 +1,34 @@
+package com.iptiq.taskmanager.metrics;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.Map;
+
+/**
+ * An immutable copy of the {@link TaskManagerMetrics} at a given moment.
+ */
+@Getter
+@Builder
+@ToString
+public class MetricsSnapshot {
+
+    private final String replacementStrategy;
+    private final int capacity;
+    private final int live;
+    private final int used;
+
+    private final long admissions;
+    private final long rejections;
+    private final long evictions;
+    private final long kills;
+    private final Map<String, Long> killsBySelector;
+    private final long taskFailures;
+
+    private final LatencyHistogram.Snapshot addProcessLatency;
+    private final LatencyHistogram.Snapshot killLatency;
+    private final LatencyHistogram.Snapshot listProcessesLatency;
+    private final LatencyHistogram.Snapshot chooseLatency;
+    private final LatencyHistogram.Snapshot lockWait;
+}
@@ -0,0 +1,255 @@
+package com.iptiq.taskmanager.metrics;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * Counts what a {@link com.iptiq.taskmanager.TaskManager} does, and how long it takes.
+ *
+ * Counters are {@link LongAdder}s, and latencies go into {@link LatencyHistogram}s, so recording neither locks
+ * nor contends much between threads. Comparing the time spent waiting for the lock with the time spent in
+ * {@link com.iptiq.taskmanager.ReplacementStrategy#choose} tells whether a task manager is lock-bound or
+ * strategy-bound.
+ *
+ * The metrics can be read via {@link #snapshot()}, or via JMX after {@link #registerMBean(String)}.
+ */
+public class TaskManagerMetrics implements TaskManagerMetricsMXBean {
+
+    private static final String DOMAIN = "com.iptiq.taskmanager";
+
+    private final String replacementStrategy;
+    private final IntSupplier capacity;
+    private final IntSupplier live;
+    private final IntSupplier used;
+
+    private final LongAdder admissions = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final ConcurrentMap<String, LongAdder> killsBySelector = new ConcurrentHashMap<>();
+    private final LongAdder taskFailures = new LongAdder();
+
+    private final LatencyHistogram addProcessLatency = new LatencyHistogram();
+    private final LatencyHistogram killLatency = new LatencyHistogram();
+    private final LatencyHistogram listProcessesLatency = new LatencyHistogram();
+    private final LatencyHistogram chooseLatency = new LatencyHistogram();
+    private final LatencyHistogram lockWait = new LatencyHistogram();
+
+    /**
+     * @param replacementStrategy the name of the replacement strategy of the task manager
+     * @param capacity the gauge for the capacity of the task manager
+     * @param live the gauge for the number of running processes
+     */
+    public TaskManagerMetrics(String replacementStrategy, IntSupplier capacity, IntSupplier live) {
+        this(replacementStrategy, capacity, live, live);
+    }
+
+    /**
+     * @param used the gauge for the combined weight of the running processes, for task managers that weigh them
+     */
+    public TaskManagerMetrics(String replacementStrategy, IntSupplier capacity, IntSupplier live, IntSupplier used) {
+        this.replacementStrategy = replacementStrategy;
+        this.capacity = capacity;
+        this.live = live;
+        this.used = used;
+    }
+
+    public void recordAdmission() {
+        admissions.increment();
+    }
+
+    public void recordRejection() {
+        rejections.increment();
+    }
+
+    public void recordEviction() {
+        evictions.increment();
+    }
+
+    public void recordKills(String selector, int count) {
+        killsBySelector.computeIfAbsent(selector, s -> new LongAdder()).add(count);
+    }
+
+    public void recordTaskFailure() {
+        taskFailures.increment();
+    }
+
+    public void recordAddProcess(long nanos) {
+        addProcessLatency.record(nanos);
+    }
+
+    public void recordKill(long nanos) {
+        killLatency.record(nanos);
+    }
+
+    public void recordListProcesses(long nanos) {
+        listProcessesLatency.record(nanos);
+    }
+
+    public void recordChoose(long nanos) {
+        chooseLatency.record(nanos);
+    }
+
+    public void recordLockWait(long nanos) {
+        lockWait.record(nanos);
+    }
+
+    public MetricsSnapshot snapshot() {
+        return MetricsSnapshot.builder()
+                .replacementStrategy(replacementStrategy)
+                .capacity(capacity.getAsInt())
+                .live(live.getAsInt())
+                .used(used.getAsInt())
+                .admissions(admissions.sum())
+                .rejections(rejections.sum())
+                .evictions(evictions.sum())
+                .kills(getKills())
+                .killsBySelector(getKillsBySelector())
+                .taskFailures(taskFailures.sum())
+                .addProcessLatency(addProcessLatency.snapshot())
+                .killLatency(killLatency.snapshot())
+                .listProcessesLatency(listProcessesLatency.snapshot())
+                .chooseLatency(chooseLatency.snapshot())
+                .lockWait(lockWait.snapshot())
+                .build();
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server.
+     * @param name distinguishes task managers within the same JVM
+     * @return the name, under which the MBean has been registered
+     */
+    public ObjectName registerMBean(String name) {
+        try {
+            var objectName = new ObjectName(DOMAIN + ":type=TaskManager,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            return objectName;
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot register metrics as " + name, e);
+        }
+    }
+
+    public void unregisterMBean(ObjectName objectName) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot unregister metrics " + objectName, e);
+        }
+    }
+
+    @Override
+    public String getReplacementStrategy() {
+        return replacementStrategy;
+    }
+
+    @Override
+    public int getCapacity() {
+        return capacity.getAsInt();
+    }
+
+    @Override
+    public int getLive() {
+        return live.getAsInt();
+    }
+
+    @Override
+    public int getUsed() {
+        return used.getAsInt();
+    }
+
+    @Override
+    public long getAdmissions() {
+        return admissions.sum();
+    }
+
+    @Override
+    public long getRejections() {
+        return rejections.sum();
+    }
+
+    @Override
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    @Override
+    public long getKills() {
+        return killsBySelector.values().stream()
+                .mapToLong(LongAdder::sum)
+                .sum();
+    }
+
+    @Override
+    public Map<String, Long> getKillsBySelector() {
+        var kills = new TreeMap<String, Long>();
+        killsBySelector.forEach((selector, count) -> kills.put(selector, count.sum()));
+        return kills;
+    }
+
+    @Override
+    public long getTaskFailures() {
+        return taskFailures.sum();
+    }
+
+    @Override
+    public long getAddProcessP50() {
+        return addProcessLatency.snapshot().getValueAtPercentile(50);
+    }
+
+    @Override
+    public long getAddProcessP99() {
+        return addProcessLatency.snapshot().getValueAtPercentile(99);
+    }
+
+    @Override
+    public long getKillP50() {
+        return killLatency.snapshot().getValueAtPercentile(50);
+    }
+
+    @Override
+    public long getKillP99() {
+        return killLatency.snapshot().getValueAtPercentile(99);
+    }
+
+    @Override
+    public long getListProcessesP50() {
+        return listProcessesLatency.snapshot().getValueAtPercentile(50);
+    }
+
+    @Override
+    public long getListProcessesP99() {
+        return listProcessesLatency.snapshot().getValueAtPercentile(99);
+    }
+
+    @Override
+    public long getChooseP50() {
+        return chooseLatency.snapshot().getValueAtPercentile(50);
+    }
+
+    @Override
+    public long getChooseP99() {
+        return chooseLatency.snapshot().getValueAtPercentile(99);
+    }
+
+    @Override
+    public long getLockWaitP50() {
+        return lockWait.snapshot().getValueAtPercentile(50);
+    }
+
+    @Override
+    public long getLockWaitP99() {
+        return lockWait.snapshot().getValueAtPercentile(99);
+    }
+
+    @Override
+    public double getLockWaitTotalMillis() {
+        var snapshot = lockWait.snapshot();
+        return snapshot.getMean() * snapshot.getCount() / 1_000_000;
+    }
+}
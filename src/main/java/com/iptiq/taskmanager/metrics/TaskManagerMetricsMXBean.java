@@ -0,0 +1,60 @@
+package com.iptiq.taskmanager.metrics;
+
+import java.util.Map;
+
+/**
+ * The JMX view of {@link TaskManagerMetrics}. Latencies are reported in nanoseconds.
+ */
+public interface TaskManagerMetricsMXBean {
+
+    String getReplacementStrategy();
+
+    int getCapacity();
+
+    int getLive();
+
+    /**
+     * @return the part of the capacity in use, i.e. the combined weight of the running processes
+     */
+    int getUsed();
+
+    long getAdmissions();
+
+    long getRejections();
+
+    long getEvictions();
+
+    long getKills();
+
+    Map<String, Long> getKillsBySelector();
+
+    /**
+     * @return the number of tasks that have thrown, rather than completed normally or been interrupted by a kill
+     */
+    long getTaskFailures();
+
+    long getAddProcessP50();
+
+    long getAddProcessP99();
+
+    long getKillP50();
+
+    long getKillP99();
+
+    long getListProcessesP50();
+
+    long getListProcessesP99();
+
+    long getChooseP50();
+
+    long getChooseP99();
+
+    long getLockWaitP50();
+
+    long getLockWaitP99();
+
+    /**
+     * @return the total time threads have waited for the lock of the task manager
+     */
+    double getLockWaitTotalMillis();
+}
@@ -0,0 +1,394 @@
+package com.iptiq.taskmanager.persistence;
+
+import com.iptiq.taskmanager.Process;
+import com.iptiq.taskmanager.event.ProcessEvent;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.OptionalInt;
+
+/**
+ * A write-ahead journal of the processes started, killed, evicted and finished by a {@link com.iptiq.taskmanager.TaskManager},
+ * and of the changes of its capacity.
+ *
+ * The journal is a memory-mapped file of fixed-size records, i.e. appending a record is a few absolute writes
+ * into the mapped buffer. Making records durable is a separate step, {@link #sync()}, which the task manager
+ * calls after it has released its lock. Threads that sync concurrently share a single {@code force()} of the
+ * buffer (group commit): whoever forces, covers all records appended so far, and the others return as soon as
+ * their records are covered.
+ *
+ * Each record carries a checksum. Replay stops at the first record that is empty or torn, and the remainder
+ * of the file is cleared, so that appending resumes after the last complete record.
+ *
+ * When the file is full, the journal is compacted: the running processes are written to a new file, which
+ * atomically replaces the old one. Thus replay never reads more than the capacity of the file. The capacity
+ * grows, whenever the running processes would fill more than half of it.
+ *
+ * Appending and compacting must not happen concurrently, which the lock of the task manager takes care of.
+ */
+public class Journal implements AutoCloseable {
+
+    public static final int DEFAULT_CAPACITY = 65_536;
+
+    static final int HEADER_SIZE = 16;
+    static final int RECORD_SIZE = 40;
+
+    /**
+     * Weights are stored in the three bytes after the kind of a record.
+     */
+    public static final int MAX_WEIGHT = 0xFFFFFF;
+
+    private static final int MAGIC = 0x544d4a4c;
+    private static final int VERSION = 4;
+
+    private static final byte STARTED = 1;
+    private static final byte KILLED = 2;
+    private static final byte EVICTED = 3;
+    private static final byte FINISHED = 4;
+    private static final byte RESIZED = 5;
+
+    private final Path file;
+    private final Path compactionFile;
+    private final Object syncLock = new Object();
+
+    private volatile MappedByteBuffer buffer;
+    private int capacity;
+    private int position;
+    // the capacity of the task manager recorded last, or 0 if there is none
+    private int recordedCapacity;
+
+    private volatile long appended;
+    private volatile long durable;
+    private volatile boolean closed;
+
+    private Journal(Path file, MappedByteBuffer buffer, int capacity) {
+        this.file = file;
+        this.compactionFile = file.resolveSibling(file.getFileName() + ".compact");
+        this.buffer = buffer;
+        this.capacity = capacity;
+    }
+
+    public static Journal open(Path file) throws IOException {
+        return open(file, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Opens the journal in the given file, or creates a new one if the file does not exist.
+     * @param capacity the number of records the file can take before it needs to be compacted. An existing
+     *                 file keeps its capacity, if that is larger.
+     */
+    public static Journal open(Path file, int capacity) throws IOException {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be a positive number");
+        }
+
+        Files.deleteIfExists(file.resolveSibling(file.getFileName() + ".compact"));
+
+        long size = Files.exists(file) ? Files.size(file) : 0;
+        if (size == 0) {
+            var buffer = map(file, capacity);
+            writeHeader(buffer);
+            buffer.force();
+            return new Journal(file, buffer, capacity);
+        }
+
+        if (size < HEADER_SIZE) {
+            throw new IOException(file + " is not a journal");
+        }
+        capacity = (int) Math.max(capacity, (size - HEADER_SIZE) / RECORD_SIZE);
+        var buffer = map(file, capacity);
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException(file + " is not a journal of version " + VERSION);
+        }
+
+        var journal = new Journal(file, buffer, capacity);
+        journal.recover();
+        return journal;
+    }
+
+    /**
+     * Finds the end of the complete records, and clears anything after it.
+     */
+    private void recover() {
+        while (position < capacity && isValid(position)) {
+            if (buffer.get(offset(position)) == RESIZED) {
+                recordedCapacity = buffer.getInt(offset(position) + 4);
+            }
+            position++;
+        }
+        for (int record = position; record < capacity; record++) {
+            if (buffer.get(offset(record)) != 0) {
+                for (int i = 0; i < RECORD_SIZE; i += Long.BYTES) {
+                    buffer.putLong(offset(record) + i, 0);
+                }
+            }
+        }
+        buffer.force();
+    }
+
+    /**
+     * @return the processes that are running according to the journal, in the order they have been admitted
+     */
+    public List<ProcessRecord> replay() {
+        var running = new HashMap<Integer, ProcessRecord>();
+        for (int record = 0; record < position; record++) {
+            int offset = offset(record);
+            int pid = buffer.getInt(offset + 4);
+            byte kind = buffer.get(offset);
+            if (kind == STARTED) {
+                running.put(pid, new ProcessRecord(pid, buffer.getInt(offset + 8), weight(buffer, offset),
+                        buffer.getLong(offset + 16), buffer.getLong(offset + 24), buffer.getLong(offset + 32)));
+            } else if (kind != RESIZED) {
+                running.remove(pid);
+            }
+        }
+
+        var records = new ArrayList<>(running.values());
+        records.sort(Comparator.comparingLong(ProcessRecord::getStartSequence).thenComparingInt(ProcessRecord::getPid));
+        return records;
+    }
+
+    /**
+     * Appends a record of a started, killed, evicted or finished process. The record is not durable until {@link #sync()}.
+     */
+    public void append(ProcessEvent.Type type, Process process) {
+        ensureOpen();
+        if (position == capacity) {
+            throw new IllegalStateException("The journal is full, and needs to be compacted first");
+        }
+
+        if (process.getWeight() > MAX_WEIGHT) {
+            throw new IllegalArgumentException("Cannot journal a weight above " + MAX_WEIGHT);
+        }
+
+        write(buffer, position, kind(type), process.getPid(), process.getPriority(), process.getWeight(),
+                process.getStartNanos(), process.getStartSequence(), process.getExpiresAt());
+        position++;
+        appended++;
+    }
+
+    /**
+     * @return the capacity of the task manager recorded last by {@link #appendCapacity(int)}, if any
+     */
+    public OptionalInt getRecordedCapacity() {
+        return recordedCapacity == 0 ? OptionalInt.empty() : OptionalInt.of(recordedCapacity);
+    }
+
+    /**
+     * Appends a record of a changed capacity of the task manager, which survives compaction. The record is not
+     * durable until {@link #sync()}.
+     */
+    public void appendCapacity(int capacity) {
+        ensureOpen();
+        if (position == this.capacity) {
+            throw new IllegalStateException("The journal is full, and needs to be compacted first");
+        }
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be a positive number");
+        }
+
+        write(buffer, position, RESIZED, capacity, 0, 0, 0, 0, 0);
+        recordedCapacity = capacity;
+        position++;
+        appended++;
+    }
+
+    /**
+     * @return the number of records that can be appended before the journal needs to be compacted
+     */
+    public int remaining() {
+        return capacity - position;
+    }
+
+    /**
+     * Makes sure that the given number of records can be appended, by compacting the journal if necessary.
+     * @param running the processes that are currently running
+     */
+    public void reserve(int records, Collection<Process> running) {
+        if (remaining() < records) {
+            compact(running, records);
+        }
+    }
+
+    /**
+     * Replaces the journal by a new one, that only contains the processes that are currently running, after the
+     * capacity recorded last.
+     */
+    public void compact(Collection<Process> running) {
+        compact(running, 0);
+    }
+
+    private void compact(Collection<Process> running, int reserve) {
+        ensureOpen();
+
+        int header = recordedCapacity == 0 ? 0 : 1;
+        long required = 2L * (header + running.size() + reserve);
+        long newCapacity = capacity;
+        while (newCapacity < required) {
+            newCapacity *= 2;
+        }
+        if (newCapacity > (Integer.MAX_VALUE - HEADER_SIZE) / RECORD_SIZE) {
+            throw new IllegalStateException("The journal cannot grow beyond " + capacity + " records");
+        }
+
+        var processes = new ArrayList<>(running);
+        processes.sort(Comparator.comparingLong(Process::getStartSequence).thenComparingInt(Process::getPid));
+
+        try {
+            var compacted = map(compactionFile, (int) newCapacity);
+            writeHeader(compacted);
+            if (header > 0) {
+                write(compacted, 0, RESIZED, recordedCapacity, 0, 0, 0, 0, 0);
+            }
+            for (int record = 0; record < processes.size(); record++) {
+                var process = processes.get(record);
+                write(compacted, header + record, STARTED, process.getPid(), process.getPriority(),
+                        process.getWeight(), process.getStartNanos(), process.getStartSequence(),
+                        process.getExpiresAt());
+            }
+            compacted.force();
+
+            synchronized (syncLock) {
+                Files.move(compactionFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                syncDirectory();
+                buffer = compacted;
+                capacity = (int) newCapacity;
+                position = header + processes.size();
+                durable = appended;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot compact the journal " + file, e);
+        }
+    }
+
+    /**
+     * Waits until all records appended before this call are durable.
+     */
+    public void sync() {
+        long target = appended;
+        if (durable >= target) {
+            return;
+        }
+
+        synchronized (syncLock) {
+            // a concurrent sync might have covered our records in the meantime
+            if (durable >= target || closed) {
+                return;
+            }
+            long covered = appended;
+            buffer.force();
+            durable = covered;
+        }
+    }
+
+    @Override
+    public void close() {
+        sync();
+        synchronized (syncLock) {
+            closed = true;
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("The journal has been closed");
+        }
+    }
+
+    /**
+     * Makes the rename of the compacted file durable, where the file system supports it.
+     */
+    private void syncDirectory() {
+        var directory = file.toAbsolutePath().getParent();
+        try (var channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // not supported on every platform, e.g. on Windows
+        }
+    }
+
+    private boolean isValid(int record) {
+        int offset = offset(record);
+        byte kind = buffer.get(offset);
+        return kind >= STARTED && kind <= RESIZED
+                && buffer.getInt(offset + 12) == checksum(kind, buffer.getInt(offset + 4), buffer.getInt(offset + 8),
+                        weight(buffer, offset), buffer.getLong(offset + 16), buffer.getLong(offset + 24),
+                        buffer.getLong(offset + 32));
+    }
+
+    /**
+     * Record layout: kind (1 byte), weight (3 bytes), pid (4), priority (4), checksum (4),
+     * start nanos (8), start sequence (8), expiry in epoch millis (8). A resize record carries the capacity of the
+     * task manager in place of the pid, and zeros otherwise.
+     */
+    private static void write(MappedByteBuffer buffer, int record, byte kind, int pid, int priority, int weight,
+                              long startNanos, long startSequence, long expiresAt) {
+        int offset = offset(record);
+        buffer.putInt(offset, weight);
+        buffer.putInt(offset + 4, pid);
+        buffer.putInt(offset + 8, priority);
+        buffer.putInt(offset + 12, checksum(kind, pid, priority, weight, startNanos, startSequence, expiresAt));
+        buffer.putLong(offset + 16, startNanos);
+        buffer.putLong(offset + 24, startSequence);
+        buffer.putLong(offset + 32, expiresAt);
+        buffer.put(offset, kind);
+    }
+
+    private static int weight(MappedByteBuffer buffer, int offset) {
+        return buffer.getInt(offset) & MAX_WEIGHT;
+    }
+
+    private static int checksum(byte kind, int pid, int priority, int weight, long startNanos, long startSequence,
+                                long expiresAt) {
+        long hash = kind;
+        hash = hash * 0x9E3779B97F4A7C15L + pid;
+        hash = hash * 0x9E3779B97F4A7C15L + priority;
+        hash = hash * 0x9E3779B97F4A7C15L + weight;
+        hash = hash * 0x9E3779B97F4A7C15L + startNanos;
+        hash = hash * 0x9E3779B97F4A7C15L + startSequence;
+        hash = hash * 0x9E3779B97F4A7C15L + expiresAt;
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    private static byte kind(ProcessEvent.Type type) {
+        switch (type) {
+            case STARTED:
+                return STARTED;
+            case KILLED:
+                return KILLED;
+            case EVICTED:
+                return EVICTED;
+            case FINISHED:
+                return FINISHED;
+            default:
+                throw new IllegalArgumentException(type + " events are not journaled");
+        }
+    }
+
+    private static int offset(int record) {
+        return HEADER_SIZE + record * RECORD_SIZE;
+    }
+
+    private static void writeHeader(MappedByteBuffer buffer) {
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+    }
+
+    private static MappedByteBuffer map(Path file, int capacity) throws IOException {
+        try (var channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacity * RECORD_SIZE);
+        }
+    }
+}
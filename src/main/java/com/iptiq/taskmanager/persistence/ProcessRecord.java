@@ -0,0 +1,36 @@
+package com.iptiq.taskmanager.persistence;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * The persisted state of a running process, from which a {@link com.iptiq.taskmanager.TaskManager} restores it.
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor
+public class ProcessRecord {
+
+    private final int pid;
+    private final int priority;
+    private final int weight;
+
+    /**
+     * The monotonic start time in nanoseconds since the epoch.
+     */
+    private final long startNanos;
+
+    /**
+     * The admission sequence number.
+     */
+    private final long startSequence;
+
+    /**
+     * The time in milliseconds since the epoch, at which the process expires, or
+     * {@link com.iptiq.taskmanager.Process#NEVER}.
+     */
+    private final long expiresAt;
+}
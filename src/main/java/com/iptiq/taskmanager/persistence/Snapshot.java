@@ -0,0 +1,267 @@
+package com.iptiq.taskmanager.persistence;
+
+import com.iptiq.taskmanager.Process;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A point-in-time copy of the process table of a {@link com.iptiq.taskmanager.TaskManager}.
+ *
+ * The snapshot is kept, and written, column by column: all pids, then all priorities, weights, start times,
+ * sequence numbers, expiry times and states. Each column is a primitive array, which is copied in bulk through a direct buffer into
+ * a {@link FileChannel}, and back. Thus neither writing nor reading touches individual objects, and reading
+ * a snapshot costs little more than reading the file.
+ *
+ * The file starts with a header of the format version, the capacity of the task manager and the number of
+ * processes. The processes are stored in the order they have been started, which is the order in which
+ * they are restored.
+ */
+public class Snapshot {
+
+    static final int HEADER_SIZE = 16;
+
+    private static final int MAGIC = 0x544d534e;
+    private static final int VERSION = 3;
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private static final byte RUNNING = 1;
+    private static final byte DEAD = 2;
+
+    private final int capacity;
+    private final int[] pids;
+    private final int[] priorities;
+    private final int[] weights;
+    private final long[] startNanos;
+    private final long[] startSequences;
+    private final long[] expiries;
+    private final byte[] states;
+
+    /**
+     * @param capacity the capacity of the task manager
+     * @param size the number of processes in the snapshot
+     */
+    public Snapshot(int capacity, int size) {
+        if (size < 0 || size > capacity) {
+            throw new IllegalArgumentException("size must be between 0 and the capacity");
+        }
+
+        this.capacity = capacity;
+        this.pids = new int[size];
+        this.priorities = new int[size];
+        this.weights = new int[size];
+        this.startNanos = new long[size];
+        this.startSequences = new long[size];
+        this.expiries = new long[size];
+        this.states = new byte[size];
+    }
+
+    public void set(int index, Process process) {
+        pids[index] = process.getPid();
+        priorities[index] = process.getPriority();
+        weights[index] = process.getWeight();
+        startNanos[index] = process.getStartNanos();
+        startSequences[index] = process.getStartSequence();
+        expiries[index] = process.getExpiresAt();
+        states[index] = process.isFinished() ? DEAD : RUNNING;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int size() {
+        return pids.length;
+    }
+
+    public int getPid(int index) {
+        return pids[index];
+    }
+
+    public int getPriority(int index) {
+        return priorities[index];
+    }
+
+    public int getWeight(int index) {
+        return weights[index];
+    }
+
+    public long getStartNanos(int index) {
+        return startNanos[index];
+    }
+
+    public long getStartSequence(int index) {
+        return startSequences[index];
+    }
+
+    /**
+     * @return the time in milliseconds since the epoch, at which the process expires, or {@link Process#NEVER}
+     */
+    public long getExpiresAt(int index) {
+        return expiries[index];
+    }
+
+    /**
+     * @return false if the process has been killed while the snapshot was taken
+     */
+    public boolean isRunning(int index) {
+        return states[index] == RUNNING;
+    }
+
+    /**
+     * Writes the snapshot to a temporary file first, which then atomically replaces the given file.
+     */
+    public void write(Path file) throws IOException {
+        var temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (var channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            var buffer = ByteBuffer.allocateDirect(CHUNK_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(capacity).putInt(size());
+
+            for (int i = 0; i < pids.length; ) {
+                int n = Math.min(buffer.remaining() / Integer.BYTES, pids.length - i);
+                buffer.asIntBuffer().put(pids, i, n);
+                i = drain(channel, buffer, i, n, Integer.BYTES);
+            }
+            for (int i = 0; i < priorities.length; ) {
+                int n = Math.min(buffer.remaining() / Integer.BYTES, priorities.length - i);
+                buffer.asIntBuffer().put(priorities, i, n);
+                i = drain(channel, buffer, i, n, Integer.BYTES);
+            }
+            for (int i = 0; i < weights.length; ) {
+                int n = Math.min(buffer.remaining() / Integer.BYTES, weights.length - i);
+                buffer.asIntBuffer().put(weights, i, n);
+                i = drain(channel, buffer, i, n, Integer.BYTES);
+            }
+            for (int i = 0; i < startNanos.length; ) {
+                int n = Math.min(buffer.remaining() / Long.BYTES, startNanos.length - i);
+                buffer.asLongBuffer().put(startNanos, i, n);
+                i = drain(channel, buffer, i, n, Long.BYTES);
+            }
+            for (int i = 0; i < startSequences.length; ) {
+                int n = Math.min(buffer.remaining() / Long.BYTES, startSequences.length - i);
+                buffer.asLongBuffer().put(startSequences, i, n);
+                i = drain(channel, buffer, i, n, Long.BYTES);
+            }
+            for (int i = 0; i < expiries.length; ) {
+                int n = Math.min(buffer.remaining() / Long.BYTES, expiries.length - i);
+                buffer.asLongBuffer().put(expiries, i, n);
+                i = drain(channel, buffer, i, n, Long.BYTES);
+            }
+            for (int i = 0; i < states.length; ) {
+                int n = Math.min(buffer.remaining(), states.length - i);
+                buffer.put(states, i, n);
+                i += n;
+                if (!buffer.hasRemaining()) {
+                    flush(channel, buffer);
+                }
+            }
+            flush(channel, buffer);
+            channel.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static Snapshot read(Path file) throws IOException {
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            var buffer = ByteBuffer.allocateDirect(CHUNK_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            fill(channel, buffer, HEADER_SIZE);
+            int magic = buffer.getInt();
+            int version = buffer.getInt();
+            if (magic != MAGIC || version != VERSION) {
+                throw new IOException(file + " is not a snapshot of version " + VERSION);
+            }
+            int capacity = buffer.getInt();
+            int size = buffer.getInt();
+            if (capacity <= 0 || size < 0 || size > capacity) {
+                throw new IOException(file + " has an invalid header");
+            }
+            if (channel.size() != HEADER_SIZE + (long) size * (3 * Integer.BYTES + 3 * Long.BYTES + 1)) {
+                throw new IOException(file + " has been truncated");
+            }
+
+            var snapshot = new Snapshot(capacity, size);
+            for (int i = 0; i < size; ) {
+                int n = fill(channel, buffer, (long) (size - i) * Integer.BYTES) / Integer.BYTES;
+                buffer.asIntBuffer().get(snapshot.pids, i, n);
+                i += n;
+            }
+            for (int i = 0; i < size; ) {
+                int n = fill(channel, buffer, (long) (size - i) * Integer.BYTES) / Integer.BYTES;
+                buffer.asIntBuffer().get(snapshot.priorities, i, n);
+                i += n;
+            }
+            for (int i = 0; i < size; ) {
+                int n = fill(channel, buffer, (long) (size - i) * Integer.BYTES) / Integer.BYTES;
+                buffer.asIntBuffer().get(snapshot.weights, i, n);
+                i += n;
+            }
+            for (int i = 0; i < size; ) {
+                int n = fill(channel, buffer, (long) (size - i) * Long.BYTES) / Long.BYTES;
+                buffer.asLongBuffer().get(snapshot.startNanos, i, n);
+                i += n;
+            }
+            for (int i = 0; i < size; ) {
+                int n = fill(channel, buffer, (long) (size - i) * Long.BYTES) / Long.BYTES;
+                buffer.asLongBuffer().get(snapshot.startSequences, i, n);
+                i += n;
+            }
+            for (int i = 0; i < size; ) {
+                int n = fill(channel, buffer, (long) (size - i) * Long.BYTES) / Long.BYTES;
+                buffer.asLongBuffer().get(snapshot.expiries, i, n);
+                i += n;
+            }
+            for (int i = 0; i < size; ) {
+                int n = fill(channel, buffer, size - i);
+                buffer.get(snapshot.states, i, n);
+                i += n;
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * Accounts for the n values just put into the buffer via a view, and writes the buffer once it is full.
+     * @return the index of the next value
+     */
+    private static int drain(FileChannel channel, ByteBuffer buffer, int index, int n, int valueSize)
+            throws IOException {
+        buffer.position(buffer.position() + n * valueSize);
+        if (buffer.remaining() < valueSize) {
+            flush(channel, buffer);
+        }
+        return index + n;
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Reads the next bytes from the channel into the buffer, at most as many as fit, and at most the given limit.
+     * The limit is the remainder of a column, so values never straddle two reads.
+     * @return the number of bytes read
+     */
+    private static int fill(FileChannel channel, ByteBuffer buffer, long limit) throws IOException {
+        buffer.clear();
+        buffer.limit((int) Math.min(limit, buffer.capacity()));
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException();
+            }
+        }
+        buffer.flip();
+        return buffer.limit();
+    }
+}
@@ -1,22 +1,18 @@
 package com.iptiq.taskmanager.replacement;
 
 import com.iptiq.taskmanager.Process;
-import com.iptiq.taskmanager.ReplacementStrategy;
-
-import java.util.Collection;
-import java.util.Optional;
-
-import static java.util.Comparator.comparing;
 
 /**
  * Picks the oldest process to kill.
  */
-public class FifoReplacementStrategy implements ReplacementStrategy {
+public class FifoReplacementStrategy extends IndexedReplacementStrategy {
+
+    public FifoReplacementStrategy() {
+        super(Process.START_ORDER);
+    }
 
     @Override
-    public Optional<Process> choose(Collection<Process> processes, Process newProcess) {
-            return processes
-                    .stream()
-                    .min(comparing(Process::getTimeStarted));
+    public boolean canReplace(Process candidate, Process newProcess) {
+        return true;
     }
 }
@@ -0,0 +1,132 @@
+package com.iptiq.taskmanager.replacement;
+
+import com.iptiq.taskmanager.Process;
+import com.iptiq.taskmanager.ReplacementStrategy;
+import com.iptiq.taskmanager.util.SortedLists;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Base class for strategies that replace the "smallest" process according to some order.
+ *
+ * The running processes are kept as the keys of a sorted map, which is updated via the lifecycle callbacks
+ * in O(log n). The candidate for replacement is thus always the first key of the map. A map rather than a set,
+ * because only the map can be built in linear time from processes that are sorted already.
+ *
+ * A strategy that has not been notified about any process (e.g. when used on its own) falls back
+ * to scanning the given collection.
+ */
+abstract class IndexedReplacementStrategy implements ReplacementStrategy {
+
+    private final Comparator<Process> order;
+    private volatile ConcurrentSkipListMap<Process, Boolean> index;
+
+    /**
+     * @param order the order of preference for replacement. Ties are broken by pid, so that
+     *              distinct processes never compare as equal within the index.
+     */
+    IndexedReplacementStrategy(Comparator<Process> order) {
+        this.order = order.thenComparingInt(Process::getPid);
+        this.index = new ConcurrentSkipListMap<>(this.order);
+    }
+
+    @Override
+    public Optional<Comparator<Process>> getReplacementOrder() {
+        return Optional.of(order);
+    }
+
+    @Override
+    public abstract boolean canReplace(Process candidate, Process newProcess);
+
+    @Override
+    public void onProcessAdded(Process process) {
+        index.put(process, Boolean.TRUE);
+    }
+
+    /**
+     * Builds the index from the sorted processes in linear time, rather than inserting them one by one.
+     */
+    @Override
+    public void onProcessesRestored(List<Process> processes) {
+        if (!index.isEmpty()) {
+            processes.forEach(this::onProcessAdded);
+            return;
+        }
+
+        var sorted = new ArrayList<>(processes);
+        sorted.sort(order);
+        index = new ConcurrentSkipListMap<>(SortedLists.asSortedMap(sorted, order, Boolean.TRUE));
+    }
+
+    @Override
+    public void onProcessRemoved(Process process) {
+        index.remove(process);
+    }
+
+    @Override
+    public Optional<Process> choose(Collection<Process> processes, Process newProcess) {
+        var iterator = index.keySet().iterator();
+        var first = iterator.hasNext()
+                ? Optional.of(iterator.next())
+                : processes.stream().min(order);
+
+        return first.filter(candidate -> canReplace(candidate, newProcess));
+    }
+
+    /**
+     * Walks the index once: each new process is offered the first candidate that has not been taken yet.
+     */
+    @Override
+    public List<Optional<Process>> chooseAll(Collection<Process> processes, List<Process> newProcesses) {
+        Iterator<Process> candidates = index.isEmpty() ? sorted(processes) : index.keySet().iterator();
+
+        var victims = new ArrayList<Optional<Process>>(newProcesses.size());
+        Process candidate = null;
+        for (var newProcess : newProcesses) {
+            if (candidate == null && candidates.hasNext()) {
+                candidate = candidates.next();
+            }
+
+            if (candidate != null && canReplace(candidate, newProcess)) {
+                victims.add(Optional.of(candidate));
+                candidate = null;
+            } else {
+                victims.add(Optional.empty());
+            }
+        }
+        return victims;
+    }
+
+    /**
+     * Takes candidates from the start of the index, until they make up the weight, or one of them cannot be
+     * replaced. The cost is proportional to the number of victims, rather than to the number of processes.
+     */
+    @Override
+    public List<Process> chooseVictims(Collection<Process> processes, Process newProcess, long weight) {
+        Iterator<Process> candidates = index.isEmpty() ? sorted(processes) : index.keySet().iterator();
+
+        var victims = new ArrayList<Process>();
+        long freed = 0;
+        while (freed < weight && candidates.hasNext()) {
+            var candidate = candidates.next();
+            if (!canReplace(candidate, newProcess)) {
+                break;
+            }
+            victims.add(candidate);
+            freed += candidate.getWeight();
+        }
+        return freed >= weight ? victims : List.of();
+    }
+
+    private Iterator<Process> sorted(Collection<Process> processes) {
+        var sorted = new ArrayList<>(processes);
+        sorted.sort(order);
+        return sorted.iterator();
+    }
+}
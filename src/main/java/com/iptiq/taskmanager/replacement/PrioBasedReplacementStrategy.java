@@ -1,13 +1,10 @@
 package com.iptiq.taskmanager.replacement;
 
 import com.iptiq.taskmanager.Process;
-import com.iptiq.taskmanager.ReplacementStrategy;
 
-import java.util.Collection;
 import java.util.Comparator;
-import java.util.Optional;
 
-import static java.util.Comparator.comparing;
+import static java.util.Comparator.comparingInt;
 
 /**
  * A strategy that would result in killing the lowest priority process which runs
@@ -16,18 +13,19 @@ import static java.util.Comparator.comparing;
  * If there are no processes with lower prio running, the strategy will return an
  * empty result, and the new process will not be accepted/scheduled.
  */
-public class PrioBasedReplacementStrategy implements ReplacementStrategy {
+public class PrioBasedReplacementStrategy extends IndexedReplacementStrategy {
+
+    public PrioBasedReplacementStrategy() {
+        super(prioBasedComparator());
+    }
 
     @Override
-    public Optional<Process> choose(Collection<Process> processes, Process newProcess) {
-        return processes
-                .stream()
-                .min(prioBasedComparator())
-                .filter(p -> p.getPriority() < newProcess.getPriority());
+    public boolean canReplace(Process candidate, Process newProcess) {
+        return candidate.getPriority() < newProcess.getPriority();
     }
 
     private static Comparator<Process> prioBasedComparator() {
-        return comparing(Process::getPriority)
-                .thenComparing(Process::getTimeStarted);
+        return comparingInt(Process::getPriority)
+                .thenComparing(Process.START_ORDER);
     }
 }
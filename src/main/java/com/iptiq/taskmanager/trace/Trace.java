@@ -0,0 +1,156 @@
+package com.iptiq.taskmanager.trace;
+
+import com.iptiq.taskmanager.ListOrder;
+import com.iptiq.taskmanager.Process;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A recorded sequence of operations on a task manager, e.g. by a {@link TraceRecorder} in production, or by a
+ * load test, which can be replayed against the current code.
+ *
+ * Each operation has the time it has been issued at, in nanoseconds since the start of the trace, and the pid and
+ * priority it concerns. A kill has no priority, and a listing has the ordinal of its {@link ListOrder} in place of
+ * the priority, and no pid. An addition also has the weight of the process, its time to live, and its deadline,
+ * which is kept relative to the start of the trace, so that a replay sees the same time left as the original.
+ *
+ * A trace file starts with a header of the format version, followed by one record of {@link #RECORD_SIZE} bytes
+ * per operation. {@link #read(Path)} loads the operations into one primitive array per field, so that replaying
+ * millions of them touches no objects. A record cut short at the end of the file, e.g. as the recording process
+ * has died, is ignored.
+ */
+public class Trace {
+
+    static final int HEADER_SIZE = 8;
+    static final int RECORD_SIZE = 1 + 3 * Long.BYTES + 3 * Integer.BYTES;
+    static final int MAGIC = 0x544d5452;
+    static final int VERSION = 2;
+    static final int CHUNK_SIZE = 64 * 1024 / RECORD_SIZE * RECORD_SIZE;
+
+    public enum Operation {
+        ADD,
+        KILL,
+        LIST;
+
+        private static final Operation[] VALUES = values();
+    }
+
+    private final byte[] operations;
+    private final long[] nanos;
+    private final int[] pids;
+    private final int[] priorities;
+    private final int[] weights;
+    private final long[] ttls;
+    private final long[] deadlines;
+
+    private Trace(int size) {
+        this.operations = new byte[size];
+        this.nanos = new long[size];
+        this.pids = new int[size];
+        this.priorities = new int[size];
+        this.weights = new int[size];
+        this.ttls = new long[size];
+        this.deadlines = new long[size];
+    }
+
+    public int size() {
+        return operations.length;
+    }
+
+    public Operation getOperation(int index) {
+        return Operation.VALUES[operations[index]];
+    }
+
+    /**
+     * @return the time the operation has been issued at, in nanoseconds since the start of the trace
+     */
+    public long getNanos(int index) {
+        return nanos[index];
+    }
+
+    public int getPid(int index) {
+        return pids[index];
+    }
+
+    public int getPriority(int index) {
+        return priorities[index];
+    }
+
+    public int getWeight(int index) {
+        return weights[index];
+    }
+
+    /**
+     * @return the time to live of the process in milliseconds, or {@link Process#NEVER}
+     */
+    public long getTtlMillis(int index) {
+        return ttls[index];
+    }
+
+    /**
+     * @return the deadline of the process in milliseconds since the start of the trace, or {@link Process#NEVER}
+     */
+    public long getDeadlineMillis(int index) {
+        return deadlines[index];
+    }
+
+    public ListOrder getListOrder(int index) {
+        return ListOrder.values()[priorities[index]];
+    }
+
+    public static Trace read(Path file) throws IOException {
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            var buffer = ByteBuffer.allocateDirect(CHUNK_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.limit(HEADER_SIZE);
+            fill(channel, buffer);
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException(file + " is not a trace of version " + VERSION);
+            }
+
+            long records = (channel.size() - HEADER_SIZE) / RECORD_SIZE;
+            if (records > Integer.MAX_VALUE) {
+                throw new IOException(file + " has more than " + Integer.MAX_VALUE + " operations");
+            }
+
+            var trace = new Trace((int) records);
+            for (int i = 0; i < records; ) {
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), (records - i) * RECORD_SIZE));
+                fill(channel, buffer);
+                while (buffer.hasRemaining()) {
+                    byte operation = buffer.get();
+                    if (operation < 0 || operation >= Operation.VALUES.length) {
+                        throw new IOException(file + " has an invalid operation at record " + i);
+                    }
+                    trace.operations[i] = operation;
+                    trace.nanos[i] = buffer.getLong();
+                    trace.pids[i] = buffer.getInt();
+                    trace.priorities[i] = buffer.getInt();
+                    trace.weights[i] = buffer.getInt();
+                    trace.ttls[i] = buffer.getLong();
+                    trace.deadlines[i] = buffer.getLong();
+                    i++;
+                }
+            }
+            return trace;
+        }
+    }
+
+    /**
+     * Reads from the channel until the buffer is full, and flips it.
+     */
+    private static void fill(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException();
+            }
+        }
+        buffer.flip();
+    }
+}
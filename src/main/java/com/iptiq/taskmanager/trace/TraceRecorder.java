@@ -0,0 +1,98 @@
+package com.iptiq.taskmanager.trace;
+
+import com.iptiq.taskmanager.Process;
+import com.iptiq.taskmanager.event.ProcessEvent;
+import com.iptiq.taskmanager.event.ProcessEventListener;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the admissions and kills of a running task manager into a {@link Trace} file, from its lifecycle
+ * events, e.g.
+ * <pre>
+ * taskManager.getEventPipeline().addListener(new TraceRecorder(Path.of("incident.trace")));
+ * </pre>
+ *
+ * A started or rejected process is recorded as an attempt to add it, with its weight, time to live and deadline, a
+ * killed or finished one as a kill by pid.
+ * Evictions are not recorded, as they are the outcome of an admission, which the replay decides anew. The events
+ * carry milliseconds, thus operations within the same millisecond are replayed without any pause in between. As
+ * the event pipeline drops events when it falls behind, see {@link com.iptiq.taskmanager.event.EventPipeline},
+ * a trace of an overloaded task manager may have gaps.
+ *
+ * The records are written in batches, as the pipeline delivers them.
+ */
+public class TraceRecorder implements ProcessEventListener, Closeable {
+
+    private final TraceWriter writer;
+    private long startMillis = -1;
+
+    public TraceRecorder(Path file) throws IOException {
+        this.writer = new TraceWriter(file);
+    }
+
+    @Override
+    public synchronized void onEvent(ProcessEvent event, boolean endOfBatch) {
+        if (startMillis < 0) {
+            startMillis = event.getTimestamp();
+        }
+        long nanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, event.getTimestamp() - startMillis));
+
+        try {
+            switch (event.getType()) {
+                case STARTED:
+                case REJECTED:
+                    writer.add(nanos, event.getPid(), event.getPriority(), event.getWeight(), ttlMillis(event.getTtl()),
+                            deadlineMillis(event.getDeadline()));
+                    break;
+                case KILLED:
+                case FINISHED:
+                    writer.kill(nanos, event.getPid());
+                    break;
+                default:
+                    break;
+            }
+            if (endOfBatch) {
+                writer.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static long ttlMillis(Duration ttl) {
+        if (ttl == null) {
+            return Process.NEVER;
+        }
+        try {
+            return ttl.toMillis();
+        } catch (ArithmeticException e) {
+            return Process.NEVER;
+        }
+    }
+
+    /**
+     * @return the deadline relative to the start of the trace
+     */
+    private long deadlineMillis(Instant deadline) {
+        if (deadline == null) {
+            return Process.NEVER;
+        }
+        try {
+            return Math.subtractExact(deadline.toEpochMilli(), startMillis);
+        } catch (ArithmeticException e) {
+            return deadline.isBefore(Instant.EPOCH) ? Long.MIN_VALUE : Process.NEVER;
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,87 @@
+package com.iptiq.taskmanager.trace;
+
+import com.iptiq.taskmanager.ListOrder;
+import com.iptiq.taskmanager.Process;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends operations to a new {@link Trace} file.
+ *
+ * The records are collected in a direct buffer, which is written to the file once it is full, or when flushed.
+ * The writer is not thread-safe.
+ */
+public class TraceWriter implements Closeable {
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(Trace.CHUNK_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+    /**
+     * Creates the file, or replaces an existing one.
+     */
+    public TraceWriter(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        buffer.putInt(Trace.MAGIC).putInt(Trace.VERSION);
+    }
+
+    /**
+     * Adds a process of weight 1, which neither expires nor has a deadline.
+     */
+    public void add(long nanos, int pid, int priority) throws IOException {
+        add(nanos, pid, priority, 1, Process.NEVER, Process.NEVER);
+    }
+
+    /**
+     * @param ttlMillis the time to live of the process, or {@link Process#NEVER}
+     * @param deadlineMillis the deadline of the process in milliseconds since the start of the trace, or
+     *                       {@link Process#NEVER}
+     */
+    public void add(long nanos, int pid, int priority, int weight, long ttlMillis, long deadlineMillis)
+            throws IOException {
+        write(Trace.Operation.ADD, nanos, pid, priority, weight, ttlMillis, deadlineMillis);
+    }
+
+    public void kill(long nanos, int pid) throws IOException {
+        write(Trace.Operation.KILL, nanos, pid, 0, 0, Process.NEVER, Process.NEVER);
+    }
+
+    public void list(long nanos, ListOrder listOrder) throws IOException {
+        write(Trace.Operation.LIST, nanos, 0, listOrder.ordinal(), 0, Process.NEVER, Process.NEVER);
+    }
+
+    private void write(Trace.Operation operation, long nanos, int pid, int priority, int weight, long ttlMillis,
+                       long deadlineMillis) throws IOException {
+        if (buffer.remaining() < Trace.RECORD_SIZE) {
+            flush();
+        }
+        buffer.put((byte) operation.ordinal()).putLong(nanos).putInt(pid).putInt(priority).putInt(weight)
+                .putLong(ttlMillis).putLong(deadlineMillis);
+    }
+
+    /**
+     * Writes the buffered records to the file, without forcing them to the disk.
+     */
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
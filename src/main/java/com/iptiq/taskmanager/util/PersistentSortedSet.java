@@ -0,0 +1,274 @@
+package com.iptiq.taskmanager.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * An immutable sorted set, whose updates return a new set, rather than changing the existing one.
+ *
+ * The set is an AVL tree, where each node knows the size of its subtree. An update copies only the nodes on the
+ * path from the root to the changed element, and shares all other nodes with the previous set. Thus adding and
+ * removing cost O(log n) time and memory, and a set that has been handed out never changes, no matter how many
+ * updates follow. The sizes allow to find the element at an index, and thus a page, in O(log n).
+ *
+ * Being immutable, the set can be read from any thread without locking, once it has been safely published.
+ */
+public final class PersistentSortedSet<E> implements Iterable<E> {
+
+    private final Comparator<? super E> comparator;
+    private final Node<E> root;
+
+    private PersistentSortedSet(Comparator<? super E> comparator, Node<E> root) {
+        this.comparator = comparator;
+        this.root = root;
+    }
+
+    public static <E> PersistentSortedSet<E> empty(Comparator<? super E> comparator) {
+        return new PersistentSortedSet<>(comparator, null);
+    }
+
+    /**
+     * Builds a balanced tree in linear time.
+     * @param sorted a list sorted by the comparator, in which no two elements compare as equal
+     */
+    public static <E> PersistentSortedSet<E> ofSorted(List<E> sorted, Comparator<? super E> comparator) {
+        return new PersistentSortedSet<>(comparator, build(sorted, 0, sorted.size()));
+    }
+
+    private static <E> Node<E> build(List<E> sorted, int from, int to) {
+        if (from >= to) {
+            return null;
+        }
+        int middle = (from + to) >>> 1;
+        return new Node<>(sorted.get(middle), build(sorted, from, middle), build(sorted, middle + 1, to));
+    }
+
+    public int size() {
+        return size(root);
+    }
+
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    /**
+     * @return a set that contains the element, or this set if it contains an equal element already
+     */
+    public PersistentSortedSet<E> with(E element) {
+        var added = insert(root, element);
+        return added == root ? this : new PersistentSortedSet<>(comparator, added);
+    }
+
+    /**
+     * @return a set without the element, or this set if it does not contain it
+     */
+    public PersistentSortedSet<E> without(E element) {
+        var removed = delete(root, element);
+        return removed == root ? this : new PersistentSortedSet<>(comparator, removed);
+    }
+
+    public boolean contains(E element) {
+        var node = root;
+        while (node != null) {
+            int comparison = comparator.compare(element, node.element);
+            if (comparison == 0) {
+                return true;
+            }
+            node = comparison < 0 ? node.left : node.right;
+        }
+        return false;
+    }
+
+    /**
+     * @return the element at the index, in the order of the comparator
+     */
+    public E get(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException(index);
+        }
+
+        var node = root;
+        while (true) {
+            int leftSize = size(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index == leftSize) {
+                return node.element;
+            } else {
+                index -= leftSize + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    /**
+     * @return at most limit elements in order, after skipping the first offset ones
+     */
+    public List<E> slice(int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("offset and limit cannot be negative");
+        }
+
+        var page = new ArrayList<E>(Math.max(0, Math.min(limit, size() - offset)));
+        var iterator = new InOrder<>(root, offset);
+        while (page.size() < limit && iterator.hasNext()) {
+            page.add(iterator.next());
+        }
+        return page;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new InOrder<>(root, 0);
+    }
+
+    private Node<E> insert(Node<E> node, E element) {
+        if (node == null) {
+            return new Node<>(element, null, null);
+        }
+
+        int comparison = comparator.compare(element, node.element);
+        if (comparison < 0) {
+            var left = insert(node.left, element);
+            return left == node.left ? node : balance(node.element, left, node.right);
+        }
+        if (comparison > 0) {
+            var right = insert(node.right, element);
+            return right == node.right ? node : balance(node.element, node.left, right);
+        }
+        return node;
+    }
+
+    private Node<E> delete(Node<E> node, E element) {
+        if (node == null) {
+            return null;
+        }
+
+        int comparison = comparator.compare(element, node.element);
+        if (comparison < 0) {
+            var left = delete(node.left, element);
+            return left == node.left ? node : balance(node.element, left, node.right);
+        }
+        if (comparison > 0) {
+            var right = delete(node.right, element);
+            return right == node.right ? node : balance(node.element, node.left, right);
+        }
+
+        if (node.left == null) {
+            return node.right;
+        }
+        if (node.right == null) {
+            return node.left;
+        }
+        var successor = node.right;
+        while (successor.left != null) {
+            successor = successor.left;
+        }
+        return balance(successor.element, node.left, deleteFirst(node.right));
+    }
+
+    private static <E> Node<E> deleteFirst(Node<E> node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        return balance(node.element, deleteFirst(node.left), node.right);
+    }
+
+    /**
+     * Creates a node of the element and the two subtrees, whose heights differ by at most two, and rotates it
+     * back into balance if they differ by two.
+     */
+    private static <E> Node<E> balance(E element, Node<E> left, Node<E> right) {
+        int leftHeight = height(left);
+        int rightHeight = height(right);
+        if (leftHeight > rightHeight + 1) {
+            if (height(left.left) >= height(left.right)) {
+                return new Node<>(left.element, left.left, new Node<>(element, left.right, right));
+            }
+            return new Node<>(left.right.element,
+                    new Node<>(left.element, left.left, left.right.left),
+                    new Node<>(element, left.right.right, right));
+        }
+        if (rightHeight > leftHeight + 1) {
+            if (height(right.right) >= height(right.left)) {
+                return new Node<>(right.element, new Node<>(element, left, right.left), right.right);
+            }
+            return new Node<>(right.left.element,
+                    new Node<>(element, left, right.left.left),
+                    new Node<>(right.element, right.left.right, right.right));
+        }
+        return new Node<>(element, left, right);
+    }
+
+    private static int size(Node<?> node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static int height(Node<?> node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static final class Node<E> {
+
+        final E element;
+        final Node<E> left;
+        final Node<E> right;
+        final int size;
+        final int height;
+
+        Node(E element, Node<E> left, Node<E> right) {
+            this.element = element;
+            this.left = left;
+            this.right = right;
+            this.size = size(left) + size(right) + 1;
+            this.height = Math.max(height(left), height(right)) + 1;
+        }
+    }
+
+    /**
+     * Walks the tree in order, starting at an index. The stack holds the nodes still to visit, whose right
+     * subtrees have not been entered yet.
+     */
+    private static final class InOrder<E> implements Iterator<E> {
+
+        private final ArrayDeque<Node<E>> stack = new ArrayDeque<>();
+
+        InOrder(Node<E> root, int index) {
+            var node = root;
+            while (node != null) {
+                int leftSize = size(node.left);
+                if (index < leftSize) {
+                    stack.push(node);
+                    node = node.left;
+                } else if (index == leftSize) {
+                    stack.push(node);
+                    break;
+                } else {
+                    index -= leftSize + 1;
+                    node = node.right;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !stack.isEmpty();
+        }
+
+        @Override
+        public E next() {
+            if (stack.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            var node = stack.pop();
+            for (var next = node.right; next != null; next = next.left) {
+                stack.push(next);
+            }
+            return node.element;
+        }
+    }
+}
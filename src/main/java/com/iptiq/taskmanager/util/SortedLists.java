@@ -0,0 +1,199 @@
+package com.iptiq.taskmanager.util;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+
+/**
+ * Read-only sorted views of lists, which are already sorted, and free of duplicates.
+ *
+ * The {@link java.util.TreeSet#TreeSet(SortedSet)} and {@link java.util.TreeMap#TreeMap(SortedMap)} constructors
+ * build their trees in linear time from a sorted set or map, rather than inserting one element after the other,
+ * and so does the {@link java.util.concurrent.ConcurrentSkipListMap} constructor. These views allow them to do so
+ * from a list, e.g. when restoring a large table. The views are complete sorted sets and maps, whose ranges are
+ * found by binary search.
+ */
+public class SortedLists {
+
+    /**
+     * @param sorted a list sorted by the comparator, in which no two elements compare as equal
+     */
+    public static <E> SortedSet<E> asSortedSet(List<E> sorted, Comparator<? super E> comparator) {
+        return new SetView<>(sorted, comparator);
+    }
+
+    /**
+     * @param sorted a list sorted by the comparator, in which no two elements compare as equal
+     * @return a map of the elements of the list to the same value
+     */
+    public static <K, V> SortedMap<K, V> asSortedMap(List<K> sorted, Comparator<? super K> comparator, V value) {
+        return new MapView<>(new SetView<>(sorted, comparator), value);
+    }
+
+    private static class SetView<E> extends AbstractSet<E> implements SortedSet<E> {
+
+        private final List<E> list;
+        private final Comparator<? super E> comparator;
+
+        SetView(List<E> list, Comparator<? super E> comparator) {
+            this.list = list;
+            this.comparator = comparator;
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            return Collections.unmodifiableList(list).iterator();
+        }
+
+        @Override
+        public int size() {
+            return list.size();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean contains(Object o) {
+            return Collections.binarySearch(list, (E) o, comparator) >= 0;
+        }
+
+        @Override
+        public Comparator<? super E> comparator() {
+            return comparator;
+        }
+
+        @Override
+        public E first() {
+            if (list.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            return list.get(0);
+        }
+
+        @Override
+        public E last() {
+            if (list.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            return list.get(list.size() - 1);
+        }
+
+        @Override
+        public SetView<E> subSet(E fromElement, E toElement) {
+            if (comparator.compare(fromElement, toElement) > 0) {
+                throw new IllegalArgumentException("fromElement > toElement");
+            }
+            return range(indexOf(fromElement), indexOf(toElement));
+        }
+
+        @Override
+        public SetView<E> headSet(E toElement) {
+            return range(0, indexOf(toElement));
+        }
+
+        @Override
+        public SetView<E> tailSet(E fromElement) {
+            return range(indexOf(fromElement), list.size());
+        }
+
+        SetView<E> range(int from, int to) {
+            return new SetView<>(list.subList(from, to), comparator);
+        }
+
+        /**
+         * @return the index of the first element, which is not less than the given one
+         */
+        int indexOf(E element) {
+            int index = Collections.binarySearch(list, element, comparator);
+            return index >= 0 ? index : -index - 1;
+        }
+    }
+
+    private static class MapView<K, V> extends AbstractMap<K, V> implements SortedMap<K, V> {
+
+        private final SetView<K> keys;
+        private final V value;
+
+        MapView(SetView<K> keys, V value) {
+            this.keys = keys;
+            this.value = value;
+        }
+
+        @Override
+        public Set<Entry<K, V>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<K, V>> iterator() {
+                    var iterator = keys.iterator();
+                    return new Iterator<>() {
+                        @Override
+                        public boolean hasNext() {
+                            return iterator.hasNext();
+                        }
+
+                        @Override
+                        public Entry<K, V> next() {
+                            return new AbstractMap.SimpleImmutableEntry<>(iterator.next(), value);
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return keys.size();
+                }
+            };
+        }
+
+        @Override
+        public Set<K> keySet() {
+            return keys;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return keys.contains(key);
+        }
+
+        @Override
+        public V get(Object key) {
+            return containsKey(key) ? value : null;
+        }
+
+        @Override
+        public Comparator<? super K> comparator() {
+            return keys.comparator();
+        }
+
+        @Override
+        public K firstKey() {
+            return keys.first();
+        }
+
+        @Override
+        public K lastKey() {
+            return keys.last();
+        }
+
+        @Override
+        public SortedMap<K, V> subMap(K fromKey, K toKey) {
+            return new MapView<>(keys.subSet(fromKey, toKey), value);
+        }
+
+        @Override
+        public SortedMap<K, V> headMap(K toKey) {
+            return new MapView<>(keys.headSet(toKey), value);
+        }
+
+        @Override
+        public SortedMap<K, V> tailMap(K fromKey) {
+            return new MapView<>(keys.tailSet(fromKey), value);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.iptiq.taskmanager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link TaskManager#addProcess(Process)} on a table that is already full, i.e. every call
+ * either replaces a running process or gets rejected, depending on the replacement strategy.
+ *
+ * The batch variant reports the time per admitted process, so that both are directly comparable.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AddProcessBenchmark {
+
+    private static final int BATCH_SIZE = 100;
+
+    @Benchmark
+    public Object addProcess(TaskManagerState state) {
+        var process = state.nextProcess();
+        try {
+            state.taskManager.addProcess(process);
+            return process;
+        } catch (CapacityFullException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public List<AdmissionResult> addProcesses(TaskManagerState state) {
+        var batch = new ArrayList<Process>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batch.add(state.nextProcess());
+        }
+        return state.taskManager.addProcesses(batch);
+    }
+}
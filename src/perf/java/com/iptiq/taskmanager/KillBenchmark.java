@@ -0,0 +1,68 @@
+package com.iptiq.taskmanager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static com.iptiq.taskmanager.TaskManagerState.PRIORITIES;
+import static com.iptiq.taskmanager.TaskManagerState.newProcess;
+
+/**
+ * Measures {@link TaskManager#kill(java.util.function.Predicate)} with each of the {@link Selectors}.
+ *
+ * In order to keep the table at a steady size, every benchmark re-admits the processes it has just killed.
+ * A thread only ever re-admits pids it has killed itself, so concurrent threads never collide on a pid,
+ * and the table never grows beyond its capacity (i.e. the replacement strategy is never consulted).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KillBenchmark {
+
+    @Benchmark
+    public List<Integer> killByPid(TaskManagerState state) {
+        var pid = ThreadLocalRandom.current().nextInt(state.capacity);
+        var killed = state.taskManager.kill(Selectors.byPID(pid));
+        readmit(state, killed);
+        return killed;
+    }
+
+    @Benchmark
+    public List<Integer> killByPriority(TaskManagerState state) {
+        var priority = ThreadLocalRandom.current().nextInt(PRIORITIES);
+        var killed = state.taskManager.kill(Selectors.byPriority(priority));
+        readmit(state, killed);
+        return killed;
+    }
+
+    @Benchmark
+    public List<Integer> killByPriorityRange(TaskManagerState state) {
+        var fromPriority = ThreadLocalRandom.current().nextInt(PRIORITIES - 10);
+        var killed = state.taskManager.kill(Selectors.byPriorityRange(fromPriority, fromPriority + 9));
+        readmit(state, killed);
+        return killed;
+    }
+
+    @Benchmark
+    public List<Integer> killAll(TaskManagerState state) {
+        var killed = state.taskManager.kill(Selectors.all());
+        readmit(state, killed);
+        return killed;
+    }
+
+    private static void readmit(TaskManagerState state, List<Integer> pids) {
+        for (int pid : pids) {
+            state.taskManager.addProcess(newProcess(pid));
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.iptiq.taskmanager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link TaskManager#listProcesses(ListOrder)} for each {@link ListOrder} on a full table,
+ * as well as fetching a page of 50 processes from the middle of the table.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ListProcessesBenchmark {
+
+    @Param({"BY_PID", "BY_PRIORITY", "BY_TIME_STARTED"})
+    public ListOrder listOrder;
+
+    @Benchmark
+    public List<Process> listProcesses(TaskManagerState state) {
+        return state.taskManager.listProcesses(listOrder);
+    }
+
+    @Benchmark
+    public List<Process> listPage(TaskManagerState state) {
+        return state.taskManager.listProcesses(listOrder, state.capacity / 2, 50);
+    }
+}
@@ -0,0 +1,366 @@
+package com.iptiq.taskmanager;
+
+import com.iptiq.taskmanager.event.LoggingEventListener;
+import com.iptiq.taskmanager.metrics.LatencyHistogram;
+import com.iptiq.taskmanager.trace.Trace;
+import com.iptiq.taskmanager.trace.TraceWriter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import static com.iptiq.taskmanager.Selectors.byPID;
+
+/**
+ * Puts a {@link TaskManager} under a realistic, multi-threaded load, as opposed to the microbenchmarks, which
+ * repeat a single operation. Reports the throughput and the latency percentiles of each operation, and writes
+ * them as JSON, one object per strategy.
+ *
+ * Accepts key=value options, besides those of the {@link Workload}:
+ * <ul>
+ *     <li>{@code strategy=DEFAULT,FIFO,PRIO} the strategies to run, one after the other</li>
+ *     <li>{@code capacity=100000} the capacity, to which the task manager is filled up before the run. The initial
+ *     processes are the first candidates of the threads to kill, so that there is room for additions even if the
+ *     strategy never replaces a process.</li>
+ *     <li>{@code threads=8}, {@code duration=30} and {@code warmup=5} seconds, the latter not being measured</li>
+ *     <li>{@code out=load-test.json} the file to write the results to</li>
+ *     <li>{@code record=load.trace} records the operations of the run, for a single strategy</li>
+ *     <li>{@code replay=incident.trace} replays a trace on a single thread instead, e.g. one recorded in
+ *     production by a {@link com.iptiq.taskmanager.trace.TraceRecorder}. {@code speed=1} keeps the pauses of
+ *     the trace, 2 halves them, and 0, the default, replays as fast as possible.</li>
+ * </ul>
+ * For example
+ * <pre>
+ * java -cp target/perf.jar com.iptiq.taskmanager.LoadTest strategy=FIFO,PRIO threads=16 pids=hotspot rate=50000 burst=200/800
+ * java -cp target/perf.jar com.iptiq.taskmanager.LoadTest strategy=PRIO replay=incident.trace
+ * </pre>
+ *
+ * Latencies are recorded into {@link LatencyHistogram}s, which keep every value within 6.25%, so the
+ * percentiles of millions of operations cost neither memory nor time to compute. They are measured from the time
+ * each operation is due, see {@link Workload}, and, when replaying at a speed, from the time of its record.
+ */
+public class LoadTest {
+
+    public static void main(String[] args) throws Exception {
+        var options = parse(args);
+        var strategies = options.getOrDefault("strategy", "DEFAULT,FIFO,PRIO").split(",");
+        var record = options.get("record");
+        if (record != null && strategies.length != 1) {
+            throw new IllegalArgumentException("record requires a single strategy");
+        }
+
+        var results = new ArrayList<Result>();
+        for (var name : strategies) {
+            var strategy = TaskManagerState.Strategy.valueOf(name.trim());
+            var result = options.containsKey("replay")
+                    ? replay(Trace.read(Path.of(options.get("replay"))), strategy, options)
+                    : run(new Workload(options), strategy, options, record == null ? null : Path.of(record));
+            System.out.println(result.summary());
+            results.add(result);
+        }
+
+        var out = Path.of(options.getOrDefault("out", "load-test.json"));
+        Files.writeString(out, toJson(results));
+        System.out.println("Results written to " + out.toAbsolutePath());
+    }
+
+    private static Result run(Workload workload, TaskManagerState.Strategy strategy, Map<String, String> options,
+                              Path record) throws Exception {
+        int capacity = Integer.parseInt(options.getOrDefault("capacity", "100000"));
+        int threads = Integer.parseInt(options.getOrDefault("threads", "8"));
+        long warmupNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(options.getOrDefault("warmup", "5")));
+        long durationNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(options.getOrDefault("duration", "30")));
+
+        var taskManager = new TaskManager(strategy.create(), capacity, Clock.systemDefaultZone());
+        taskManager.getEventPipeline().removeListener(new LoggingEventListener());
+        var writer = record == null ? null : new TraceWriter(record);
+        try {
+            // the pids of the initial processes lie above the range of the workload, so that they never collide.
+            // They are the first ones each thread kills, as otherwise nothing would make room for additions
+            int firstPid = workload.getPidRange();
+            for (int i = 0; i < capacity; i++) {
+                var process = TaskManagerState.newProcess(firstPid + i);
+                taskManager.addProcess(process);
+                if (writer != null) {
+                    writer.add(0, process.getPid(), process.getPriority());
+                }
+            }
+
+            var result = new Result(strategy.name(), "load", threads);
+            long start = System.nanoTime();
+            long measureFrom = start + warmupNanos;
+            long end = measureFrom + durationNanos;
+            var done = new CountDownLatch(threads);
+            for (int t = 0; t < threads; t++) {
+                var generator = workload.new Generator(t);
+                for (int i = t; i < capacity && i < threads * Workload.RECENT_PIDS; i += threads) {
+                    generator.remember(firstPid + i);
+                }
+                Thread.ofPlatform().name("load-" + t).start(() -> {
+                    try {
+                        long due;
+                        while ((due = start + generator.nextDue(System.nanoTime() - start)) < end) {
+                            long now;
+                            while ((now = System.nanoTime()) < due) {
+                                LockSupport.parkNanos(due - now);
+                            }
+                            issue(taskManager, workload, generator, due >= measureFrom ? result : null, writer,
+                                    due, start);
+                        }
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+            done.await();
+            result.elapsedNanos = durationNanos;
+            return result;
+        } finally {
+            if (writer != null) {
+                writer.close();
+            }
+        }
+    }
+
+    /**
+     * Issues the next operation of the generator, and records its latency since it has been due, unless warming up.
+     */
+    private static void issue(TaskManager taskManager, Workload workload, Workload.Generator generator,
+                              Result result, TraceWriter writer, long due, long start) {
+        long nanos = due - start;
+        switch (generator.nextOperation()) {
+            case ADD:
+                int pid = generator.nextPid();
+                int priority = generator.nextPriority();
+                trace(writer, w -> w.add(nanos, pid, priority));
+                if (add(taskManager, Process.builder().pid(pid).priority(priority).build(), result, due)) {
+                    generator.remember(pid);
+                }
+                break;
+            case KILL:
+                int victim = generator.pidToKill();
+                trace(writer, w -> w.kill(nanos, victim));
+                kill(taskManager, victim, result, due);
+                break;
+            default:
+                var listOrder = generator.nextListOrder();
+                trace(writer, w -> w.list(nanos, listOrder));
+                list(taskManager, listOrder, workload.getListLimit(), result, due);
+        }
+    }
+
+    /**
+     * Replays the trace on a single thread, in the order it has been recorded.
+     */
+    private static Result replay(Trace trace, TaskManagerState.Strategy strategy, Map<String, String> options) {
+        int capacity = Integer.parseInt(options.getOrDefault("capacity", "100000"));
+        double speed = Double.parseDouble(options.getOrDefault("speed", "0"));
+        int listLimit = Integer.parseInt(options.getOrDefault("listLimit", "100"));
+
+        var clock = Clock.systemDefaultZone();
+        var taskManager = new TaskManager(strategy.create(), capacity, clock);
+        taskManager.getEventPipeline().removeListener(new LoggingEventListener());
+        var result = new Result(strategy.name(), "replay", 1);
+        long startMillis = clock.millis();
+        long start = System.nanoTime();
+        for (int i = 0; i < trace.size(); i++) {
+            long due = System.nanoTime();
+            if (speed > 0) {
+                due = start + (long) (trace.getNanos(i) / speed);
+                long now;
+                while ((now = System.nanoTime()) < due) {
+                    LockSupport.parkNanos(due - now);
+                }
+            }
+
+            switch (trace.getOperation(i)) {
+                case ADD:
+                    add(taskManager, replayedProcess(trace, i, startMillis), result, due);
+                    break;
+                case KILL:
+                    kill(taskManager, trace.getPid(i), result, due);
+                    break;
+                default:
+                    list(taskManager, trace.getListOrder(i), listLimit, result, due);
+            }
+        }
+        result.elapsedNanos = System.nanoTime() - start;
+        return result;
+    }
+
+    /**
+     * @return the process of the recorded addition, with its deadline moved to the start of the replay
+     */
+    private static Process replayedProcess(Trace trace, int index, long startMillis) {
+        var process = Process.builder()
+                .pid(trace.getPid(index))
+                .priority(trace.getPriority(index))
+                .weight(trace.getWeight(index));
+        if (trace.getTtlMillis(index) != Process.NEVER) {
+            process.ttl(Duration.ofMillis(trace.getTtlMillis(index)));
+        }
+        if (trace.getDeadlineMillis(index) != Process.NEVER) {
+            process.deadline(Instant.ofEpochMilli(startMillis).plusMillis(trace.getDeadlineMillis(index)));
+        }
+        return process.build();
+    }
+
+    /**
+     * @param due the time the addition has been due, as per {@link System#nanoTime()}
+     * @return true if the process has been admitted
+     */
+    private static boolean add(TaskManager taskManager, Process process, Result result, long due) {
+        boolean admitted = false;
+        try {
+            var admission = taskManager.tryAddProcess(process);
+            admitted = admission.getStatus() != AdmissionResult.Status.REJECTED;
+            if (result != null) {
+                result.outcomes.get(admission.getStatus()).increment();
+            }
+        } catch (IllegalArgumentException e) {
+            // the pid is running already
+            if (result != null) {
+                result.duplicates.increment();
+            }
+        }
+        if (result != null) {
+            result.latencies.get(Workload.Operation.ADD).record(System.nanoTime() - due);
+        }
+        return admitted;
+    }
+
+    private static void kill(TaskManager taskManager, int pid, Result result, long due) {
+        int killed = taskManager.kill(byPID(pid)).size();
+        if (result != null) {
+            result.latencies.get(Workload.Operation.KILL).record(System.nanoTime() - due);
+            result.killed.add(killed);
+        }
+    }
+
+    private static void list(TaskManager taskManager, ListOrder listOrder, int limit, Result result, long due) {
+        taskManager.listProcesses(listOrder, 0, limit);
+        if (result != null) {
+            result.latencies.get(Workload.Operation.LIST).record(System.nanoTime() - due);
+        }
+    }
+
+    private interface TraceOperation {
+
+        void write(TraceWriter writer) throws IOException;
+    }
+
+    /**
+     * Appends to the trace, if recording. The threads share the writer, so the records are appended in the
+     * order in which the threads get hold of it, which may differ slightly from their timestamps.
+     */
+    private static void trace(TraceWriter writer, TraceOperation operation) {
+        if (writer == null) {
+            return;
+        }
+        synchronized (writer) {
+            try {
+                operation.write(writer);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    static Map<String, String> parse(String[] args) {
+        var options = new HashMap<String, String>();
+        for (var arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Expected key=value, but got " + arg);
+            }
+            options.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        return options;
+    }
+
+    private static String toJson(List<Result> results) {
+        var json = new StringBuilder("[\n");
+        for (int i = 0; i < results.size(); i++) {
+            json.append(results.get(i).toJson()).append(i < results.size() - 1 ? ",\n" : "\n");
+        }
+        return json.append("]\n").toString();
+    }
+
+    private static class Result {
+
+        private final String strategy;
+        private final String mode;
+        private final int threads;
+        private final Map<Workload.Operation, LatencyHistogram> latencies = new EnumMap<>(Workload.Operation.class);
+        private final Map<AdmissionResult.Status, LongAdder> outcomes = new EnumMap<>(AdmissionResult.Status.class);
+        private final LongAdder duplicates = new LongAdder();
+        private final LongAdder killed = new LongAdder();
+        private long elapsedNanos;
+
+        Result(String strategy, String mode, int threads) {
+            this.strategy = strategy;
+            this.mode = mode;
+            this.threads = threads;
+            for (var operation : Workload.Operation.values()) {
+                latencies.put(operation, new LatencyHistogram());
+            }
+            for (var status : AdmissionResult.Status.values()) {
+                outcomes.put(status, new LongAdder());
+            }
+        }
+
+        private double seconds() {
+            return elapsedNanos / 1e9;
+        }
+
+        String summary() {
+            var summary = new StringBuilder(String.format(Locale.ROOT, "%s (%s, %d threads, %.1fs)%n",
+                    strategy, mode, threads, seconds()));
+            for (var entry : latencies.entrySet()) {
+                var snapshot = entry.getValue().snapshot();
+                summary.append(String.format(Locale.ROOT, "  %-5s %12.0f ops/s  %s%n", entry.getKey(),
+                        snapshot.getCount() / seconds(), snapshot));
+            }
+            summary.append(String.format(Locale.ROOT, "  admitted=%d, replaced=%d, rejected=%d, duplicates=%d, killed=%d",
+                    outcomes.get(AdmissionResult.Status.ADMITTED).sum(),
+                    outcomes.get(AdmissionResult.Status.REPLACED).sum(),
+                    outcomes.get(AdmissionResult.Status.REJECTED).sum(), duplicates.sum(), killed.sum()));
+            return summary.toString();
+        }
+
+        String toJson() {
+            var json = new StringBuilder();
+            json.append(String.format(Locale.ROOT, "  {\"strategy\": \"%s\", \"mode\": \"%s\", \"threads\": %d, "
+                    + "\"seconds\": %.3f,%n", strategy, mode, threads, seconds()));
+            for (var entry : latencies.entrySet()) {
+                var snapshot = entry.getValue().snapshot();
+                json.append(String.format(Locale.ROOT, "   \"%s\": {\"count\": %d, \"throughput\": %.1f, "
+                                + "\"meanNanos\": %.1f, \"p50Nanos\": %d, \"p99Nanos\": %d, \"p999Nanos\": %d, "
+                                + "\"maxNanos\": %d},%n",
+                        entry.getKey().name().toLowerCase(Locale.ROOT), snapshot.getCount(),
+                        snapshot.getCount() / seconds(), snapshot.getMean(), snapshot.getValueAtPercentile(50),
+                        snapshot.getValueAtPercentile(99), snapshot.getValueAtPercentile(99.9), snapshot.getMax()));
+            }
+            json.append(String.format(Locale.ROOT, "   \"admitted\": %d, \"replaced\": %d, \"rejected\": %d, "
+                            + "\"duplicates\": %d, \"killed\": %d}",
+                    outcomes.get(AdmissionResult.Status.ADMITTED).sum(),
+                    outcomes.get(AdmissionResult.Status.REPLACED).sum(),
+                    outcomes.get(AdmissionResult.Status.REJECTED).sum(), duplicates.sum(), killed.sum()));
+            return json.toString();
+        }
+    }
+}
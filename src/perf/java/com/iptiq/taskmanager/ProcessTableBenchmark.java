@@ -0,0 +1,90 @@
+package com.iptiq.taskmanager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static com.iptiq.taskmanager.TaskManagerState.newProcess;
+
+/**
+ * Compares {@link ProcessTable} with the {@code HashMap<Integer, Process>} it has replaced.
+ *
+ * Run with {@code -prof gc} to see the allocation rate of each operation. Please, see
+ * {@link ProcessTableFootprint} for the memory held by both maps.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(1)
+public class ProcessTableBenchmark {
+
+    @Param({"100000", "1000000", "4000000"})
+    public int size;
+
+    private ProcessTable table;
+    private Map<Integer, Process> map;
+    private Process[] processes;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        var random = new Random(42);
+        table = new ProcessTable(size);
+        map = new HashMap<>(size);
+        processes = new Process[size];
+        for (int i = 0; i < size; i++) {
+            var process = newProcess(random.nextInt());
+            processes[i] = process;
+            table.put(process);
+            map.put(process.getPid(), process);
+        }
+    }
+
+    @Benchmark
+    public Process getProcessTable() {
+        return table.get(nextProcess().getPid());
+    }
+
+    @Benchmark
+    public Process getHashMap() {
+        return map.get(nextProcess().getPid());
+    }
+
+    @Benchmark
+    public Process removeAndPutProcessTable() {
+        var process = nextProcess();
+        table.remove(process.getPid());
+        return table.put(process);
+    }
+
+    @Benchmark
+    public Process removeAndPutHashMap() {
+        var process = nextProcess();
+        map.remove(process.getPid());
+        return map.put(process.getPid(), process);
+    }
+
+    private Process nextProcess() {
+        var process = processes[next];
+        next = next + 1 == processes.length ? 0 : next + 1;
+        return process;
+    }
+}
@@ -0,0 +1,51 @@
+package com.iptiq.taskmanager;
+
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import static com.iptiq.taskmanager.TaskManagerState.newProcess;
+
+/**
+ * Prints the heap held by a {@link ProcessTable} and by a {@code HashMap<Integer, Process>} with
+ * the same content, excluding the processes themselves. For comparison, it also prints the heap held by a
+ * whole {@link ProcessRegistry}, i.e. including the priority buckets and the sorted indexes.
+ *
+ * <pre>
+ * java -Xmx4g -Djol.magicFieldOffset=true -cp target/perf.jar com.iptiq.taskmanager.ProcessTableFootprint 100000 1000000
+ * </pre>
+ * The flag lets JOL walk into the comparators of the sorted indexes, which are lambdas.
+ */
+public class ProcessTableFootprint {
+
+    public static void main(String[] args) {
+        System.out.printf("%10s %16s %16s %16s %12s %12s %12s%n", "size", "ProcessTable", "HashMap",
+                "ProcessRegistry", "B/entry", "B/entry", "B/entry");
+        for (var arg : args) {
+            int size = Integer.parseInt(arg);
+            var random = new Random(42);
+            var processes = new Process[size];
+            var table = new ProcessTable(size);
+            var map = new HashMap<Integer, Process>(size);
+            var registry = new ProcessRegistry(size);
+            for (int i = 0; i < size; i++) {
+                var process = newProcess(random.nextInt());
+                processes[i] = process;
+                table.put(process);
+                map.put(process.getPid(), process);
+                if (!registry.contains(process.getPid())) {
+                    registry.add(process);
+                }
+            }
+
+            var processesLayout = GraphLayout.parseInstance((Object[]) processes);
+            long tableBytes = GraphLayout.parseInstance(table).subtract(processesLayout).totalSize();
+            long mapBytes = GraphLayout.parseInstance(map).subtract(processesLayout).totalSize();
+            long registryBytes = GraphLayout.parseInstance(registry).subtract(processesLayout).totalSize();
+            System.out.printf("%10d %16d %16d %16d %12.1f %12.1f %12.1f%n", size, tableBytes, mapBytes,
+                    registryBytes, (double) tableBytes / size, (double) mapBytes / size,
+                    (double) registryBytes / size);
+        }
+    }
+}
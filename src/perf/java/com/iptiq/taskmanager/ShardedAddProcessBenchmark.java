@@ -0,0 +1,62 @@
+package com.iptiq.taskmanager;
+
+import com.iptiq.taskmanager.event.LoggingEventListener;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Clock;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures {@link ShardedTaskManager#addProcess(Process)} and {@link ShardedTaskManager#kill} by pid, on a table
+ * that is half full, so that adding and killing keep the number of processes stable. Run it with several
+ * threads ({@code -t}), or via {@link ThreadSweep}, and compare with a single shard.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ShardedAddProcessBenchmark {
+
+    @Param({"1", "16", "64"})
+    public int shards;
+
+    @Param({"1000", "100000"})
+    public int capacity;
+
+    @Param({"FIFO", "PRIO"})
+    public TaskManagerState.Strategy strategy;
+
+    private ShardedTaskManager taskManager;
+    private final AtomicInteger nextPid = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void fill() {
+        taskManager = new ShardedTaskManager(strategy::create, shards, capacity, Clock.systemDefaultZone());
+        taskManager.getEventPipeline().removeListener(new LoggingEventListener());
+        for (int pid = 0; pid < capacity / 2; pid++) {
+            taskManager.addProcess(TaskManagerState.newProcess(pid));
+        }
+        nextPid.set(capacity / 2);
+    }
+
+    @Benchmark
+    public Object addAndKill() {
+        int pid = nextPid.getAndIncrement();
+        taskManager.addProcess(TaskManagerState.newProcess(pid));
+        return taskManager.kill(Selectors.byPID(pid - capacity / 2));
+    }
+}
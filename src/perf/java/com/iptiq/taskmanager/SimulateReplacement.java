@@ -0,0 +1,85 @@
+package com.iptiq.taskmanager;
+
+import com.iptiq.taskmanager.trace.Trace;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.function.Supplier;
+import java.util.concurrent.ForkJoinPool;
+
+import static java.util.stream.Collectors.joining;
+
+/**
+ * Replays a trace against the built-in strategies and several capacities via the {@link ReplacementSimulator},
+ * prints a table of the results, and writes them as JSON.
+ *
+ * Accepts key=value options:
+ * <ul>
+ *     <li>{@code trace=incident.trace} the trace, e.g. recorded by a {@link com.iptiq.taskmanager.trace.TraceRecorder}</li>
+ *     <li>{@code strategy=DEFAULT,FIFO,PRIO} and {@code capacity=1000,10000,100000} every combination is simulated</li>
+ *     <li>{@code parallelism=8} the number of simulations that run at once, by default one per processor</li>
+ *     <li>{@code out=simulation.json} the file to write the results to</li>
+ * </ul>
+ * <pre>
+ * java -cp target/perf.jar com.iptiq.taskmanager.SimulateReplacement trace=incident.trace capacity=5000,10000,20000
+ * </pre>
+ */
+public class SimulateReplacement {
+
+    public static void main(String[] args) throws Exception {
+        var options = LoadTest.parse(args);
+        if (!options.containsKey("trace")) {
+            throw new IllegalArgumentException("trace=<file> is required");
+        }
+        var strategies = new LinkedHashMap<String, Supplier<ReplacementStrategy>>();
+        for (var name : options.getOrDefault("strategy", "DEFAULT,FIFO,PRIO").split(",")) {
+            var strategy = TaskManagerState.Strategy.valueOf(name.trim());
+            strategies.put(strategy.name(), strategy::create);
+        }
+        int[] capacities = Arrays.stream(options.getOrDefault("capacity", "1000,10000,100000").split(","))
+                .mapToInt(capacity -> Integer.parseInt(capacity.trim()))
+                .toArray();
+        int parallelism = Integer.parseInt(options.getOrDefault("parallelism",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+
+        long start = System.nanoTime();
+        var trace = Trace.read(Path.of(options.get("trace")));
+        var pool = new ForkJoinPool(parallelism);
+        var results = new ReplacementSimulator(strategies, pool).simulate(trace, capacities);
+        pool.shutdown();
+        System.out.printf(Locale.ROOT, "%d operations, %d simulations in %.1fs%n", trace.size(), results.size(),
+                (System.nanoTime() - start) / 1e9);
+
+        System.out.printf("%-8s %10s %10s %10s %10s %12s %12s  %s%n", "strategy", "capacity", "rejected",
+                "evictions", "kills", "decision p50", "decision p99", "evictions by priority");
+        for (var result : results) {
+            System.out.printf(Locale.ROOT, "%-8s %10d %9.2f%% %10d %10d %10dns %10dns  %s%n", result.getStrategy(),
+                    result.getCapacity(), 100 * result.getRejectionRate(), result.getEvictions(), result.getKills(),
+                    result.getDecisionCost().getValueAtPercentile(50),
+                    result.getDecisionCost().getValueAtPercentile(99), result.getEvictionsByPriority());
+        }
+
+        var out = Path.of(options.getOrDefault("out", "simulation.json"));
+        Files.writeString(out, results.stream().map(SimulateReplacement::toJson).collect(joining(",\n", "[\n", "\n]\n")));
+        System.out.println("Results written to " + out.toAbsolutePath());
+    }
+
+    private static String toJson(SimulationResult result) {
+        var cost = result.getDecisionCost();
+        var byPriority = result.getEvictionsByPriority().entrySet().stream()
+                .map(entry -> "\"" + entry.getKey() + "\": " + entry.getValue())
+                .collect(joining(", ", "{", "}"));
+        return String.format(Locale.ROOT, "  {\"strategy\": \"%s\", \"capacity\": %d, \"additions\": %d, "
+                        + "\"admissions\": %d, \"replacements\": %d, \"rejections\": %d, \"rejectionRate\": %.6f, "
+                        + "\"duplicates\": %d, \"kills\": %d, \"evictions\": %d, \"evictionsByPriority\": %s, "
+                        + "\"decisions\": %d, \"decisionMeanNanos\": %.1f, \"decisionP50Nanos\": %d, "
+                        + "\"decisionP99Nanos\": %d, \"decisionMaxNanos\": %d}",
+                result.getStrategy(), result.getCapacity(), result.getAdditions(), result.getAdmissions(),
+                result.getReplacements(), result.getRejections(), result.getRejectionRate(), result.getDuplicates(),
+                result.getKills(), result.getEvictions(), byPriority, cost.getCount(), cost.getMean(),
+                cost.getValueAtPercentile(50), cost.getValueAtPercentile(99), cost.getMax());
+    }
+}
@@ -0,0 +1,55 @@
+package com.iptiq.taskmanager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures writing a snapshot of a full table, and restoring a task manager from it, i.e. the startup time
+ * for each capacity and replacement strategy.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class SnapshotBenchmark {
+
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void writeSnapshot(TaskManagerState state) throws IOException {
+        file = Files.createTempFile("taskmanager", ".snapshot");
+        state.taskManager.snapshot(file);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteSnapshot() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public void snapshot(TaskManagerState state) throws IOException {
+        state.taskManager.snapshot(file);
+    }
+
+    @Benchmark
+    public TaskManager restore(TaskManagerState state) throws IOException {
+        return TaskManager.restore(file, state.strategy.create());
+    }
+}
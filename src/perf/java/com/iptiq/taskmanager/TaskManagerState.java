@@ -0,0 +1,88 @@
+package com.iptiq.taskmanager;
+
+import com.iptiq.taskmanager.event.LoggingEventListener;
+import com.iptiq.taskmanager.replacement.DefaultReplacementStrategy;
+import com.iptiq.taskmanager.replacement.FifoReplacementStrategy;
+import com.iptiq.taskmanager.replacement.PrioBasedReplacementStrategy;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.Clock;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * A {@link TaskManager} shared by all benchmark threads, filled up to its capacity before each trial.
+ *
+ * Pids {@code 0 .. capacity - 1} are running when the measurement starts. Their priorities are spread
+ * over {@link #PRIORITIES} distinct values, so that selecting by priority hits roughly 1% of the table.
+ */
+@State(Scope.Benchmark)
+public class TaskManagerState {
+
+    static final int PRIORITIES = 100;
+
+    public enum Strategy {
+        DEFAULT(DefaultReplacementStrategy::new),
+        FIFO(FifoReplacementStrategy::new),
+        PRIO(PrioBasedReplacementStrategy::new);
+
+        private final Supplier<ReplacementStrategy> factory;
+
+        Strategy(Supplier<ReplacementStrategy> factory) {
+            this.factory = factory;
+        }
+
+        ReplacementStrategy create() {
+            return factory.get();
+        }
+    }
+
+    @Param({"10", "1000", "100000", "1000000"})
+    public int capacity;
+
+    @Param({"DEFAULT", "FIFO", "PRIO"})
+    public Strategy strategy;
+
+    TaskManager taskManager;
+
+    private final AtomicInteger nextPid = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void fill() {
+        taskManager = new TaskManager(strategy.create(), capacity, Clock.systemDefaultZone());
+        taskManager.getEventPipeline().removeListener(new LoggingEventListener());
+        for (int pid = 0; pid < capacity; pid++) {
+            taskManager.addProcess(newProcess(pid));
+        }
+        nextPid.set(capacity);
+    }
+
+    /**
+     * @return a process with a pid that has never been used within the current trial
+     */
+    Process nextProcess() {
+        return newProcess(nextPid.getAndIncrement());
+    }
+
+    static Process newProcess(int pid) {
+        return newProcess(pid, priorityOf(pid));
+    }
+
+    static Process newProcess(int pid, int priority) {
+        return Process.builder()
+                .pid(pid)
+                .priority(priority)
+                .build();
+    }
+
+    /**
+     * Scatters the priorities, so that neither of them correlates with the pid or the start time.
+     */
+    static int priorityOf(int pid) {
+        return Math.floorMod(pid * 0x9E3779B9, PRIORITIES);
+    }
+}
@@ -0,0 +1,35 @@
+package com.iptiq.taskmanager;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the selected benchmarks once for each thread count between 1 and 64, so that the cost
+ * of contention on the {@link TaskManager} monitor becomes visible.
+ *
+ * Accepts the regular JMH command line options, e.g.
+ * <pre>
+ * java -cp target/perf.jar com.iptiq.taskmanager.ThreadSweep KillBenchmark -p capacity=1000,100000
+ * </pre>
+ * The results for each thread count are written to {@code jmh-threads-<n>.json}.
+ */
+public class ThreadSweep {
+
+    private static final int[] THREADS = {1, 2, 4, 8, 16, 32, 64};
+
+    public static void main(String[] args) throws Exception {
+        var commandLine = new CommandLineOptions(args);
+
+        for (int threads : THREADS) {
+            var options = new OptionsBuilder()
+                    .parent(commandLine)
+                    .threads(threads)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result("jmh-threads-" + threads + ".json")
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.iptiq.taskmanager;
+
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * The operations a {@link LoadTest} issues, described by key=value options:
+ * <ul>
+ *     <li>{@code mix=add:70,kill:25,list:5} the share of each operation</li>
+ *     <li>{@code pids=uniform|hotspot} how pids are picked from {@code pidRange=1000000}. Hotspot sends 80% of the
+ *     additions to 20% of the pids, which makes for many attempts to add a pid that is running already.</li>
+ *     <li>{@code priorities=uniform|skewed} how priorities are picked from {@code priorityRange=10}. Skewed makes
+ *     low priorities more common than high ones, as with mostly batch work and a few interactive processes.</li>
+ *     <li>{@code rate=20000} the operations per second each thread issues, on a fixed schedule. 0, the default,
+ *     issues them as fast as possible, one after the other.</li>
+ *     <li>{@code burst=200/800} issue operations for 200ms, then pause for 800ms, rather than continuously</li>
+ *     <li>{@code listLimit=100} the page size of listings</li>
+ * </ul>
+ * Kills pick one of the pids the same thread has recently added successfully, so that most of them hit a running
+ * process.
+ *
+ * With a rate, every operation has the time it is due, and its latency is measured from then rather than from when
+ * it has actually been issued. Thus an operation that waits for a slow one before it is counted as slow as well,
+ * as it would be by a client, rather than omitted. Without a rate, there is no such time, and latencies are
+ * service times only.
+ */
+class Workload {
+
+    enum Operation {
+        ADD,
+        KILL,
+        LIST
+    }
+
+    static final int RECENT_PIDS = 1024;
+
+    private final int addShare;
+    private final int killShare;
+    private final int totalShare;
+    private final boolean hotspotPids;
+    private final int pidRange;
+    private final boolean skewedPriorities;
+    private final int priorityRange;
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final long pauseNanos;
+    private final int listLimit;
+
+    Workload(Map<String, String> options) {
+        var mix = parseMix(options.getOrDefault("mix", "add:70,kill:25,list:5"));
+        addShare = mix[0];
+        killShare = mix[1];
+        totalShare = mix[0] + mix[1] + mix[2];
+        hotspotPids = choice(options, "pids", "uniform", "hotspot");
+        pidRange = Integer.parseInt(options.getOrDefault("pidRange", "1000000"));
+        skewedPriorities = choice(options, "priorities", "uniform", "skewed");
+        priorityRange = Integer.parseInt(options.getOrDefault("priorityRange", "10"));
+        listLimit = Integer.parseInt(options.getOrDefault("listLimit", "100"));
+        long rate = Long.parseLong(options.getOrDefault("rate", "0"));
+        intervalNanos = rate > 0 ? Math.max(1, 1_000_000_000 / rate) : 0;
+
+        var burst = options.getOrDefault("burst", "").split("/");
+        burstNanos = burst.length == 2 ? Long.parseLong(burst[0]) * 1_000_000 : 0;
+        pauseNanos = burst.length == 2 ? Long.parseLong(burst[1]) * 1_000_000 : 0;
+        if (totalShare <= 0 || pidRange <= 0 || priorityRange <= 0 || listLimit < 0 || rate < 0) {
+            throw new IllegalArgumentException("Invalid workload " + options);
+        }
+    }
+
+    int getListLimit() {
+        return listLimit;
+    }
+
+    int getPidRange() {
+        return pidRange;
+    }
+
+    /**
+     * @return how long to pause before the next operation, given the time since the start of the run
+     */
+    long pauseNanos(long elapsedNanos) {
+        if (burstNanos == 0) {
+            return 0;
+        }
+        long phase = elapsedNanos % (burstNanos + pauseNanos);
+        return phase < burstNanos ? 0 : burstNanos + pauseNanos - phase;
+    }
+
+    /**
+     * The state of one thread issuing the workload, which is not thread-safe.
+     */
+    class Generator {
+
+        private final SplittableRandom random;
+        private final int[] recentPids = new int[RECENT_PIDS];
+        private int recentCount;
+        private long dueNanos;
+
+        Generator(long seed) {
+            this.random = new SplittableRandom(seed);
+        }
+
+        /**
+         * @return when the next operation is due, in nanoseconds since the start of the run, which is the given
+         *         time unless there is a rate. Either is moved past a pause between bursts.
+         */
+        long nextDue(long elapsedNanos) {
+            long due = intervalNanos == 0 ? Math.max(dueNanos, elapsedNanos) : dueNanos;
+            due += pauseNanos(due);
+            dueNanos = due + intervalNanos;
+            return due;
+        }
+
+        Operation nextOperation() {
+            int share = random.nextInt(totalShare);
+            if (share < addShare) {
+                return Operation.ADD;
+            }
+            return share < addShare + killShare && recentCount > 0 ? Operation.KILL : Operation.LIST;
+        }
+
+        int nextPid() {
+            int pid;
+            if (hotspotPids && random.nextInt(100) < 80) {
+                pid = random.nextInt(Math.max(1, pidRange / 5));
+            } else {
+                pid = random.nextInt(pidRange);
+            }
+            return pid;
+        }
+
+        /**
+         * Makes the pid a candidate to be killed, i.e. one of the recently added pids.
+         */
+        void remember(int pid) {
+            recentPids[recentCount++ % RECENT_PIDS] = pid;
+        }
+
+        int nextPriority() {
+            if (!skewedPriorities) {
+                return random.nextInt(priorityRange);
+            }
+            double u = random.nextDouble();
+            return (int) (u * u * priorityRange);
+        }
+
+        int pidToKill() {
+            return recentPids[random.nextInt(Math.min(recentCount, RECENT_PIDS))];
+        }
+
+        ListOrder nextListOrder() {
+            var orders = ListOrder.values();
+            return orders[random.nextInt(orders.length)];
+        }
+    }
+
+    private static int[] parseMix(String mix) {
+        var shares = new int[3];
+        for (var part : mix.split(",")) {
+            var keyValue = part.split(":");
+            shares[Operation.valueOf(keyValue[0].trim().toUpperCase()).ordinal()] = Integer.parseInt(keyValue[1].trim());
+        }
+        return shares;
+    }
+
+    private static boolean choice(Map<String, String> options, String key, String first, String second) {
+        var value = options.getOrDefault(key, first);
+        if (!value.equals(first) && !value.equals(second)) {
+            throw new IllegalArgumentException(key + " must be " + first + " or " + second);
+        }
+        return value.equals(second);
+    }
+}
@@ -0,0 +1,208 @@
+package com.iptiq.taskmanager;
+
+import com.iptiq.taskmanager.replacement.DefaultReplacementStrategy;
+import com.iptiq.taskmanager.replacement.FifoReplacementStrategy;
+import com.iptiq.taskmanager.replacement.PrioBasedReplacementStrategy;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+import static com.iptiq.taskmanager.ListOrder.BY_PID;
+import static com.iptiq.taskmanager.ListOrder.BY_PRIORITY;
+import static com.iptiq.taskmanager.ListOrder.BY_TIME_STARTED;
+import static com.iptiq.taskmanager.ProcessTestFactory.newProcess;
+import static com.iptiq.taskmanager.Selectors.byPID;
+import static com.iptiq.taskmanager.Selectors.byPriority;
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ColumnarTaskManagerTest {
+
+    @Test
+    public void testAddListAndKill() {
+        //given
+        var taskManager = new ColumnarTaskManager(new DefaultReplacementStrategy(), 10, Clock.systemUTC());
+        taskManager.addProcess(newProcess(3, 1));
+        taskManager.addProcess(newProcess(1, 2));
+        taskManager.addProcess(newProcess(2, 1));
+
+        //when
+        var byPid = pids(taskManager.listProcesses(BY_PID));
+        var byPriority = pids(taskManager.listProcesses(BY_PRIORITY));
+        var byTimeStarted = pids(taskManager.listProcesses(BY_TIME_STARTED));
+        var killed = taskManager.kill(byPriority(1));
+
+        //then
+        assertEquals(asList(1, 2, 3), byPid);
+        assertEquals(asList(2, 3, 1), byPriority);
+        assertEquals(asList(3, 1, 2), byTimeStarted);
+        assertEquals(asList(3, 2), killed);
+        assertEquals(asList(1), pids(taskManager.listProcesses(BY_PID)));
+        assertThrows(IllegalArgumentException.class, () -> taskManager.addProcess(newProcess(1)));
+    }
+
+    @Test
+    public void testReplacementOrderRunsOverColumns() {
+        //given
+        var fifo = new ColumnarTaskManager(new FifoReplacementStrategy(), 3, Clock.systemUTC());
+        var prio = new ColumnarTaskManager(new PrioBasedReplacementStrategy(), 3, Clock.systemUTC());
+        for (int pid = 1; pid <= 3; pid++) {
+            fifo.addProcess(newProcess(pid));
+            prio.addProcess(newProcess(pid, 4 - pid));
+        }
+
+        //when
+        fifo.addProcess(newProcess(4));
+        fifo.kill(byPID(3));
+        fifo.addProcess(newProcess(5));
+        fifo.addProcess(newProcess(6));
+        prio.addProcess(newProcess(4, 2));
+
+        //then
+        assertEquals(asList(4, 5, 6), pids(fifo.listProcesses(BY_TIME_STARTED)));
+        assertEquals(asList(1, 2, 4), pids(prio.listProcesses(BY_PID)));
+        assertThrows(CapacityFullException.class, () -> prio.addProcess(newProcess(5, 1)));
+    }
+
+    @Test
+    public void testStrategyWithoutOrderIsAskedWithProcesses() {
+        //given
+        var strategy = new ReplacementStrategy() {
+            @Override
+            public Optional<Process> choose(Collection<Process> processes, Process newProcess) {
+                return processes.stream().max(Comparator.comparingInt(Process::getPriority));
+            }
+        };
+        var taskManager = new ColumnarTaskManager(strategy, 2, Clock.systemUTC());
+        taskManager.addProcess(newProcess(1, 5));
+        taskManager.addProcess(newProcess(2, 1));
+
+        //when
+        taskManager.addProcess(newProcess(3, 3));
+
+        //then
+        assertEquals(asList(2, 3), pids(taskManager.listProcesses(BY_PID)));
+    }
+
+    @Test
+    public void testProcessesAreCopiedAndUnsupportedFieldsRejected() {
+        //given
+        var taskManager = new ColumnarTaskManager(new FifoReplacementStrategy(), 1, Clock.systemUTC());
+        var process = newProcess(1);
+
+        //when
+        taskManager.addProcess(process);
+        taskManager.addProcess(newProcess(2));
+
+        //then
+        assertFalse(process.hasStarted());
+        assertEquals(asList(2), pids(taskManager.listProcesses(BY_PID)));
+        assertThrows(IllegalArgumentException.class, () -> taskManager.addProcess(
+                Process.builder().pid(3).weight(2).build()));
+        assertThrows(IllegalArgumentException.class, () -> taskManager.addProcess(
+                Process.builder().pid(3).ttl(Duration.ofSeconds(1)).build()));
+        assertThrows(IllegalArgumentException.class, () -> taskManager.addProcess(
+                Process.builder().pid(3).deadline(Instant.now()).build()));
+        assertThrows(IllegalArgumentException.class, () -> taskManager.addProcess(
+                Process.builder().pid(3).task(() -> { }).build()));
+        assertEquals(asList(2), pids(taskManager.listProcesses(BY_PID)));
+    }
+
+    @Test
+    public void testTimeStartedIsInTheZoneOfTheClock() {
+        //given
+        var clock = Clock.fixed(Instant.EPOCH, ZoneId.of("Asia/Tokyo"));
+        var taskManager = new ColumnarTaskManager(new FifoReplacementStrategy(), 2, clock);
+        var started = new ArrayList<LocalDateTime>();
+        var selector = (Predicate<Process>) process -> started.add(process.getTimeStarted());
+
+        //when
+        taskManager.addProcess(newProcess(1));
+        taskManager.kill(selector.negate());
+
+        //then
+        var expected = LocalDateTime.of(1970, 1, 1, 9, 0);
+        assertEquals(expected, taskManager.listProcesses(BY_PID).get(0).getTimeStarted());
+        assertEquals(asList(expected), started);
+    }
+
+    @Test
+    public void testPagesAndKillsByPidMatchFullListing() {
+        //given
+        var random = new Random(7);
+        var taskManager = new ColumnarTaskManager(new DefaultReplacementStrategy(), 100, Clock.systemUTC());
+        for (int pid = 0; pid < 100; pid++) {
+            taskManager.addProcess(newProcess(pid * 37 % 101, random.nextInt(5)));
+        }
+
+        //when
+        var killed = taskManager.kill(Selectors.byPIDs(37, 74, 1000));
+
+        //then
+        assertEquals(asList(37, 74), killed);
+        for (var listOrder : ListOrder.values()) {
+            var all = taskManager.listProcesses(listOrder);
+            assertEquals(98, all.size());
+            for (int offset = 0; offset < 100; offset += 9) {
+                var expected = all.subList(Math.min(offset, all.size()), Math.min(offset + 9, all.size()));
+                assertEquals(pids(expected), pids(taskManager.listProcesses(listOrder, offset, 9)));
+            }
+        }
+    }
+
+    @Test
+    public void testMatchesTaskManagerUnderRandomOperations() {
+        //given
+        var random = new Random(42);
+        var clock = Clock.fixed(Clock.systemUTC().instant(), Clock.systemUTC().getZone());
+        var columnar = new ColumnarTaskManager(new PrioBasedReplacementStrategy(), 64, clock);
+        var reference = new TaskManager(new PrioBasedReplacementStrategy(), 64, clock);
+
+        //when
+        for (int i = 0; i < 5_000; i++) {
+            int pid = random.nextInt(200);
+            if (random.nextInt(4) == 0) {
+                assertEquals(reference.kill(byPID(pid)).size(), columnar.kill(byPID(pid)).size());
+            } else if (reference.listProcesses(BY_PID).stream().noneMatch(p -> p.getPid() == pid)) {
+                int priority = random.nextInt(10);
+                var expected = outcome(() -> reference.addProcess(newProcess(pid, priority)));
+                var actual = outcome(() -> columnar.addProcess(newProcess(pid, priority)));
+                assertEquals(expected, actual);
+            }
+        }
+
+        //then
+        var expected = new TreeMap<Integer, Integer>();
+        reference.listProcesses(BY_PID).forEach(p -> expected.put(p.getPid(), p.getPriority()));
+        var actual = new TreeMap<Integer, Integer>();
+        columnar.listProcesses(BY_PID).forEach(p -> actual.put(p.getPid(), p.getPriority()));
+        assertEquals(expected, actual);
+        assertEquals(pids(reference.listProcesses(BY_TIME_STARTED)), pids(columnar.listProcesses(BY_TIME_STARTED)));
+    }
+
+    private static String outcome(Runnable operation) {
+        try {
+            operation.run();
+            return "admitted";
+        } catch (CapacityFullException e) {
+            return "rejected";
+        }
+    }
+
+    private static List<Integer> pids(List<Process> processes) {
+        return processes.stream().map(Process::getPid).collect(toList());
+    }
+}
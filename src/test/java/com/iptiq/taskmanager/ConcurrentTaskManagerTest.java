@@ -0,0 +1,221 @@
+package com.iptiq.taskmanager;
+
+import com.iptiq.taskmanager.replacement.DefaultReplacementStrategy;
+import com.iptiq.taskmanager.replacement.FifoReplacementStrategy;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+import static com.iptiq.taskmanager.ListOrder.BY_PID;
+import static com.iptiq.taskmanager.ProcessTestFactory.newProcess;
+import static com.iptiq.taskmanager.ProcessTestFactory.newStartedProcess;
+import static com.iptiq.taskmanager.Selectors.all;
+import static com.iptiq.taskmanager.Selectors.byPID;
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConcurrentTaskManagerTest {
+
+    private static final int CAPACITY = 50;
+    private static final int THREADS = 8;
+    private static final int PROCESSES_PER_THREAD = 200;
+
+    @Test
+    public void testAddAndKillSingleProcess() {
+        //given
+        var taskManager = new ConcurrentTaskManager(new DefaultReplacementStrategy(), CAPACITY, Clock.systemUTC());
+        var process = newProcess(1);
+
+        //when
+        taskManager.addProcess(process);
+        var listed = taskManager.listProcesses(BY_PID);
+        var killed = taskManager.kill(byPID(1));
+
+        //then
+        assertEquals(asList(process), listed);
+        assertEquals(asList(1), killed);
+        assertTrue(process.isFinished());
+        assertTrue(taskManager.listProcesses(BY_PID).isEmpty());
+    }
+
+    @Test
+    public void testCannotAddStartedOrDuplicateProcess() {
+        //given
+        var taskManager = new ConcurrentTaskManager(new DefaultReplacementStrategy(), CAPACITY, Clock.systemUTC());
+        taskManager.addProcess(newProcess(1));
+
+        //when
+        assertThrows(IllegalArgumentException.class, () -> {
+            taskManager.addProcess(newStartedProcess(2, 2, 2));
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            taskManager.addProcess(newProcess(1));
+        });
+    }
+
+    @Test
+    public void testUnsupportedFieldsAreRejected() {
+        //given
+        var taskManager = new ConcurrentTaskManager(new DefaultReplacementStrategy(), CAPACITY, Clock.systemUTC());
+
+        //when
+        taskManager.addProcess(newProcess(1));
+
+        //then
+        assertThrows(IllegalArgumentException.class, () -> taskManager.addProcess(
+                Process.builder().pid(2).weight(2).build()));
+        assertThrows(IllegalArgumentException.class, () -> taskManager.addProcess(
+                Process.builder().pid(2).ttl(Duration.ofSeconds(1)).build()));
+        assertThrows(IllegalArgumentException.class, () -> taskManager.addProcess(
+                Process.builder().pid(2).deadline(Instant.now()).build()));
+        assertThrows(IllegalArgumentException.class, () -> taskManager.addProcess(
+                Process.builder().pid(2).task(() -> { }).build()));
+        assertEquals(asList(1), taskManager.listProcesses(BY_PID).stream().map(Process::getPid).collect(toList()));
+    }
+
+    @Test
+    public void testCapacityIsNeverExceededUnderConcurrentAdds() throws InterruptedException {
+        //given
+        var taskManager = new ConcurrentTaskManager(new DefaultReplacementStrategy(), CAPACITY, Clock.systemUTC());
+        var rejected = new AtomicInteger();
+
+        //when
+        runConcurrently(pid -> {
+            try {
+                taskManager.addProcess(newProcess(pid));
+            } catch (CapacityFullException e) {
+                rejected.incrementAndGet();
+            }
+        });
+
+        //then
+        assertEquals(CAPACITY, taskManager.listProcesses(BY_PID).size());
+        assertEquals(THREADS * PROCESSES_PER_THREAD - CAPACITY, rejected.get());
+    }
+
+    @Test
+    public void testReplacedProcessesAreKilledUnderConcurrentAdds() throws InterruptedException {
+        //given
+        var taskManager = new ConcurrentTaskManager(new FifoReplacementStrategy(), CAPACITY, Clock.systemUTC());
+        var added = new ConcurrentLinkedQueue<Process>();
+
+        //when
+        runConcurrently(pid -> {
+            var process = newProcess(pid);
+            taskManager.addProcess(process);
+            added.add(process);
+        });
+
+        //then
+        var running = taskManager.listProcesses(BY_PID);
+        assertEquals(CAPACITY, running.size());
+        running.forEach(p -> assertFalse(p.isFinished()));
+        assertEquals(THREADS * PROCESSES_PER_THREAD - CAPACITY, added.stream().filter(Process::isFinished).count());
+    }
+
+    @Test
+    public void testConcurrentDuplicatesEvictNothing() throws InterruptedException {
+        //given
+        var taskManager = new ConcurrentTaskManager(new FifoReplacementStrategy(), CAPACITY, Clock.systemUTC());
+        var initial = new ArrayList<Process>();
+        for (int pid = 0; pid < CAPACITY; pid++) {
+            var process = newProcess(THREADS * PROCESSES_PER_THREAD + pid);
+            taskManager.addProcess(process);
+            initial.add(process);
+        }
+        var added = new AtomicInteger();
+        var duplicates = new AtomicInteger();
+
+        //when
+        // every thread adds the same pids
+        runConcurrently(pid -> {
+            try {
+                taskManager.addProcess(newProcess(pid % CAPACITY));
+                added.incrementAndGet();
+            } catch (IllegalArgumentException e) {
+                duplicates.incrementAndGet();
+            }
+        });
+
+        //then
+        // each pid has been added once, and has replaced exactly one of the initial processes
+        assertEquals(CAPACITY, added.get());
+        assertEquals(THREADS * PROCESSES_PER_THREAD - CAPACITY, duplicates.get());
+        initial.forEach(p -> assertTrue(p.isFinished()));
+        var pids = taskManager.listProcesses(BY_PID).stream()
+                .map(Process::getPid)
+                .collect(toList());
+        assertEquals(IntStream.range(0, CAPACITY).boxed().collect(toList()), pids);
+    }
+
+    @Test
+    public void testStrategyIndexStaysConsistentUnderConcurrentKills() throws InterruptedException {
+        //given
+        var taskManager = new ConcurrentTaskManager(new FifoReplacementStrategy(), CAPACITY, Clock.systemUTC());
+
+        //when
+        runConcurrently(pid -> {
+            taskManager.addProcess(newProcess(pid));
+            taskManager.kill(byPID(pid - 3));
+        });
+        taskManager.kill(all());
+
+        // pids increase along with the start time, so FIFO order is well-defined even on a coarse clock
+        var firstPid = THREADS * PROCESSES_PER_THREAD;
+        var processes = new ArrayList<Process>();
+        for (int pid = firstPid; pid <= firstPid + CAPACITY; pid++) {
+            var process = newProcess(pid);
+            taskManager.addProcess(process);
+            processes.add(process);
+        }
+
+        //then
+        assertTrue(processes.get(0).isFinished());
+        var pids = taskManager.listProcesses(BY_PID).stream()
+                .map(Process::getPid)
+                .collect(toList());
+        assertEquals(CAPACITY, pids.size());
+        assertFalse(pids.contains(firstPid));
+    }
+
+    /**
+     * Invokes the action concurrently from {@link #THREADS} threads, each with its own range of pids.
+     */
+    private static void runConcurrently(IntConsumer action) throws InterruptedException {
+        var start = new CountDownLatch(1);
+        var errors = new ConcurrentLinkedQueue<Throwable>();
+        List<Thread> threads = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            int firstPid = t * PROCESSES_PER_THREAD;
+            var thread = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int pid = firstPid; pid < firstPid + PROCESSES_PER_THREAD; pid++) {
+                        action.accept(pid);
+                    }
+                } catch (Throwable e) {
+                    errors.add(e);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        start.countDown();
+        for (var thread : threads) {
+            thread.join();
+        }
+        assertTrue(errors.isEmpty(), () -> "Unexpected errors: " + errors);
+    }
+}
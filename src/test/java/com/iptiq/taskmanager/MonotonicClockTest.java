@@ -0,0 +1,53 @@
+package com.iptiq.taskmanager;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MonotonicClockTest {
+
+    @Test
+    public void testSystemClockIsAnchoredToWallClock() {
+        //given
+        long before = System.currentTimeMillis();
+        var clock = new MonotonicClock(Clock.systemDefaultZone());
+
+        //when
+        long first = clock.nanos();
+        long second = clock.nanos();
+
+        //then
+        assertTrue(first <= second);
+        assertTrue(Math.abs(first / 1_000_000 - before) < 1000);
+    }
+
+    @Test
+    public void testFixedClockIsFollowed() {
+        //given
+        var clock = new MonotonicClock(Clock.fixed(Instant.ofEpochSecond(42), ZoneId.systemDefault()));
+
+        //when
+        long nanos = clock.nanos();
+
+        //then
+        assertEquals(42_000_000_000L, nanos);
+    }
+
+    @Test
+    public void testSequenceNumbersIncrease() {
+        //given
+        var clock = new MonotonicClock(Clock.systemUTC());
+
+        //when
+        long first = clock.nextSequence();
+        long second = clock.nextSequence();
+
+        //then
+        assertEquals(1, first);
+        assertEquals(2, second);
+    }
+}
@@ -0,0 +1,194 @@
+package com.iptiq.taskmanager;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static com.iptiq.taskmanager.ProcessTestFactory.newStartedProcess;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ProcessRegistryTest {
+
+    @Test
+    public void testIndexedSelectorsMatchTheirPredicates() {
+        //given
+        var random = new Random(3);
+        var registry = new ProcessRegistry(1000);
+        for (int pid = 0; pid < 1000; pid++) {
+            registry.add(newStartedProcess(pid, random.nextInt(20), pid));
+        }
+        for (int pid = 0; pid < 1000; pid += 7) {
+            registry.remove(registry.byPid(pid).get(0));
+        }
+
+        //then
+        for (var selector : List.of(
+                Selectors.all(),
+                Selectors.byPID(1),
+                Selectors.byPID(7),
+                Selectors.byPriority(5),
+                Selectors.byPriority(42),
+                Selectors.byPriorityRange(3, 11),
+                Selectors.byPriorityRange(11, 3),
+                Selectors.byPIDs(3, 7, 8, 8, 2000),
+                Selectors.startedBefore(Instant.ofEpochSecond(100)),
+                Selectors.startedAfter(Instant.ofEpochSecond(900)),
+                Selectors.startedBetween(Instant.ofEpochSecond(300), Instant.ofEpochSecond(310)),
+                Selectors.startedBetween(Instant.ofEpochSecond(310), Instant.ofEpochSecond(300)),
+                Selectors.and(Selectors.byPriorityRange(0, 2), Selectors.startedBefore(Instant.ofEpochSecond(500))),
+                Selectors.and(Selectors.byPriority(4), process -> process.getPid() % 2 == 0),
+                Selectors.or(Selectors.byPIDs(1, 2, 3), Selectors.byPriority(5), Selectors.byPID(2)),
+                Selectors.or(Selectors.byPriority(5), process -> process.getPid() < 10),
+                Selectors.not(Selectors.byPriorityRange(1, 19)),
+                Selectors.and(Selectors.not(Selectors.byPriority(3)), Selectors.or(Selectors.byPriority(3),
+                        Selectors.startedAfter(Instant.ofEpochSecond(990)))))) {
+            assertSelects(registry, selector);
+        }
+    }
+
+    @Test
+    public void testTiesAreListedByPidWithAndWithoutSelector() {
+        //given
+        var registry = new ProcessRegistry(100);
+        for (int pid : new int[] {57, 3, 91, 12, 40, 8, 77, 25}) {
+            registry.add(newStartedProcess(pid, pid % 2, 0));
+        }
+
+        //when
+        var unfiltered = registry.list(ListOrder.BY_PRIORITY, 1, 6);
+        var filtered = registry.list(ListOrder.BY_PRIORITY, Selectors.byPriorityRange(0, 1), 1, 6);
+
+        //then
+        assertEquals(List.of(12, 40, 3, 25, 57, 77), pids(unfiltered));
+        assertEquals(pids(unfiltered), pids(filtered));
+        assertEquals(pids(registry.list(ListOrder.BY_TIME_STARTED, 0, 8)),
+                pids(registry.list(ListOrder.BY_TIME_STARTED, Selectors.byPriorityRange(0, 1), 0, 8)));
+    }
+
+    @Test
+    public void testPriorityOrderIsMaintainedAcrossRemovals() {
+        //given
+        var registry = new ProcessRegistry(100);
+        var processes = new ArrayList<Process>();
+        for (int pid : new int[] {57, 3, 91, 12, 40, 8, 77, 25}) {
+            var process = newStartedProcess(pid, pid % 3, 0);
+            processes.add(process);
+            registry.add(process);
+        }
+
+        //when
+        registry.remove(processes.get(3));
+        registry.remove(processes.get(6));
+
+        //then
+        assertEquals(List.of(3, 57, 25, 40, 91, 8), pids(registry.list(ListOrder.BY_PRIORITY, 0, 10)));
+        assertEquals(List.of(25, 40, 91), pids(registry.list(ListOrder.BY_PRIORITY, 2, 3)));
+    }
+
+    @Test
+    public void testConjunctionVisitsOnlyTheMostSelectiveIndex() {
+        //given
+        var registry = new ProcessRegistry(1000);
+        for (int pid = 0; pid < 1000; pid++) {
+            registry.add(newStartedProcess(pid, pid % 10, pid));
+        }
+        var tested = new AtomicInteger();
+        Predicate<Process> counting = process -> tested.incrementAndGet() > 0;
+
+        //when
+        var lowPriorityAndEarly = registry.select(Selectors.and(counting,
+                Selectors.byPriorityRange(0, 2), Selectors.startedBefore(Instant.ofEpochSecond(50))));
+        int testedEarly = tested.getAndSet(0);
+        var lowPriorityAndLate = registry.select(Selectors.and(counting,
+                Selectors.startedAfter(Instant.ofEpochSecond(0)), Selectors.byPriority(7)));
+        int testedLate = tested.get();
+
+        //then
+        assertEquals(15, lowPriorityAndEarly.size());
+        // the 50 processes started before 50s, rather than the 300 processes of priority 0 to 2
+        assertEquals(50, testedEarly);
+        assertEquals(100, lowPriorityAndLate.size());
+        assertEquals(100, testedLate);
+    }
+
+    @Test
+    public void testListingFiltersBySelector() {
+        //given
+        var registry = new ProcessRegistry(100);
+        for (int pid = 0; pid < 100; pid++) {
+            registry.add(newStartedProcess(pid, pid % 5, 100 - pid));
+        }
+
+        //when
+        var page = registry.list(ListOrder.BY_TIME_STARTED, Selectors.byPriority(1), 2, 3);
+
+        //then
+        assertEquals(List.of(86, 81, 76), page.stream().map(Process::getPid).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testListingFollowsTheOrder() {
+        //given
+        var random = new Random(5);
+        var registry = new ProcessRegistry(500);
+        for (int pid = 0; pid < 500; pid++) {
+            registry.add(newStartedProcess(pid * 7919 % 500, random.nextInt(10), random.nextInt(100)));
+        }
+
+        //then
+        for (var listOrder : ListOrder.values()) {
+            var sorted = new ArrayList<>(registry.values());
+            sorted.sort(listOrder.getComparator());
+
+            var listed = registry.list(listOrder, 0, Integer.MAX_VALUE);
+            assertEquals(sorted.size(), listed.size());
+            for (int i = 0; i < sorted.size(); i++) {
+                assertEquals(0, listOrder.getComparator().compare(sorted.get(i), listed.get(i)));
+            }
+
+            var page = registry.list(listOrder, 123, 45);
+            assertEquals(listed.subList(123, 168), page);
+        }
+    }
+
+    @Test
+    public void testAddAllBuildsTheSameIndexes() {
+        //given
+        var random = new Random(9);
+        var processes = new ArrayList<Process>();
+        for (int pid = 0; pid < 500; pid++) {
+            processes.add(newStartedProcess(pid * 7919 % 500, random.nextInt(10), random.nextInt(100)));
+        }
+        var added = new ProcessRegistry(500);
+        processes.forEach(added::add);
+
+        //when
+        var bulk = new ProcessRegistry(500);
+        bulk.addAll(processes);
+
+        //then
+        for (var listOrder : ListOrder.values()) {
+            assertEquals(added.list(listOrder, 0, Integer.MAX_VALUE), bulk.list(listOrder, 0, Integer.MAX_VALUE));
+        }
+        assertEquals(added.byPriority(3, 5).size(), bulk.byPriority(3, 5).size());
+    }
+
+    private static List<Integer> pids(List<Process> processes) {
+        return processes.stream().map(Process::getPid).collect(Collectors.toList());
+    }
+
+    private static void assertSelects(ProcessRegistry registry, Predicate<Process> selector) {
+        var selected = registry.select(selector);
+        var scanned = registry.scan(selector);
+
+        assertEquals(scanned.size(), selected.size());
+        assertEquals(new HashSet<>(scanned), new HashSet<>(selected));
+    }
+}
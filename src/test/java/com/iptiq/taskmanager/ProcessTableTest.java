@@ -0,0 +1,147 @@
+package com.iptiq.taskmanager;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Random;
+
+import static com.iptiq.taskmanager.ProcessTestFactory.newProcess;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProcessTableTest {
+
+    @Test
+    public void testPutGetRemove() {
+        //given
+        var table = new ProcessTable();
+        var process = newProcess(42);
+
+        //when
+        var previous = table.put(process);
+
+        //then
+        assertNull(previous);
+        assertSame(process, table.get(42));
+        assertTrue(table.containsKey(42));
+        assertFalse(table.containsKey(43));
+        assertSame(process, table.remove(42));
+        assertNull(table.remove(42));
+        assertTrue(table.isEmpty());
+    }
+
+    @Test
+    public void testGrowsBeyondExpectedSize() {
+        //given
+        var table = new ProcessTable(2);
+
+        //when
+        for (int pid = -500; pid < 500; pid++) {
+            table.put(newProcess(pid));
+        }
+
+        //then
+        assertEquals(1000, table.size());
+        for (int pid = -500; pid < 500; pid++) {
+            assertEquals(pid, table.get(pid).getPid());
+        }
+    }
+
+    @Test
+    public void testBehavesLikeHashMapUnderRandomOperations() {
+        //given
+        var random = new Random(7);
+        var table = new ProcessTable(64);
+        var expected = new HashMap<Integer, Process>();
+
+        //when
+        for (int i = 0; i < 100_000; i++) {
+            // a narrow range of pids makes for long clusters, and many removals within them
+            int pid = random.nextInt(256) * 1024;
+            if (random.nextBoolean()) {
+                var process = newProcess(pid);
+                assertSame(expected.put(pid, process), table.put(process));
+            } else {
+                assertSame(expected.remove(pid), table.remove(pid));
+            }
+
+            //then
+            assertEquals(expected.size(), table.size());
+        }
+        for (var entry : expected.entrySet()) {
+            assertSame(entry.getValue(), table.get(entry.getKey()));
+        }
+        assertEquals(new HashSet<>(expected.values()), new HashSet<>(table.values()));
+    }
+
+    @Test
+    public void testRemoveIfVisitsEveryEntry() {
+        //given
+        var random = new Random(11);
+        var table = new ProcessTable(16);
+        var expected = new HashMap<Integer, Process>();
+        for (int i = 0; i < 5_000; i++) {
+            int pid = random.nextInt();
+            var process = newProcess(pid);
+            table.put(process);
+            expected.put(pid, process);
+        }
+
+        //when
+        var removed = table.removeIf(p -> p.getPid() % 3 == 0);
+
+        //then
+        var expectedRemoved = new HashSet<Process>();
+        expected.values().removeIf(p -> p.getPid() % 3 == 0 && expectedRemoved.add(p));
+        assertEquals(expectedRemoved, new HashSet<>(removed));
+        assertEquals(expectedRemoved.size(), removed.size());
+        assertEquals(new HashSet<>(expected.values()), new HashSet<>(table.values()));
+        for (var pid : expected.keySet()) {
+            assertTrue(table.containsKey(pid));
+        }
+    }
+
+    @Test
+    public void testRemoveAll() {
+        //given
+        var table = new ProcessTable(10);
+        for (int pid = 0; pid < 10; pid++) {
+            table.put(newProcess(pid));
+        }
+
+        //when
+        var removed = table.removeIf(p -> true);
+
+        //then
+        assertEquals(10, removed.size());
+        assertTrue(table.isEmpty());
+        assertFalse(table.values().iterator().hasNext());
+    }
+
+    @Test
+    public void testOperationsWhileGrowing() {
+        //given
+        var table = new ProcessTable(512);
+        for (int pid = 0; pid < 512; pid++) {
+            table.put(newProcess(pid));
+        }
+
+        //when
+        table.put(newProcess(512));
+        var replaced = table.put(newProcess(7));
+        var removed = table.remove(8);
+        var removedIf = table.removeIf(process -> process.getPid() % 2 == 1);
+
+        //then
+        assertEquals(7, replaced.getPid());
+        assertEquals(8, removed.getPid());
+        assertEquals(256, removedIf.size());
+        assertEquals(256, table.size());
+        var values = new HashSet<Integer>();
+        table.values().forEach(process -> values.add(process.getPid()));
+        assertEquals(256, values.size());
+        for (int pid = 0; pid <= 512; pid += 2) {
+            assertEquals(pid != 8, table.containsKey(pid));
+        }
+    }
+}
@@ -1,11 +1,9 @@
 package com.iptiq.taskmanager;
 
-import java.time.Instant;
-import java.time.LocalDateTime;
-import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import static java.util.stream.IntStream.rangeClosed;
 
@@ -42,17 +40,10 @@ public class ProcessTestFactory {
         return Process.builder()
                 .pid(pid)
                 .priority(priority)
-                .timeStarted(time(startTime))
+                .startNanos(TimeUnit.SECONDS.toNanos(startTime))
+                .startSequence(pid)
                 .state(Process.State.RUNNING)
                 .build();
     }
 
-    private static LocalDateTime time(int time) {
-        return Instant
-                .ofEpochSecond(time)
-                .atZone(ZoneId.systemDefault())
-                .toLocalDateTime();
-    }
-
-
 }
@@ -0,0 +1,266 @@
+package com.iptiq.taskmanager;
+
+import com.iptiq.taskmanager.replacement.FifoReplacementStrategy;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static com.iptiq.taskmanager.ListOrder.BY_PID;
+import static com.iptiq.taskmanager.ProcessTestFactory.newProcess;
+import static com.iptiq.taskmanager.Selectors.byPID;
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProcessWatchTest {
+
+    @Test
+    public void testSnapshotIsFollowedByChanges() throws InterruptedException {
+        //given
+        var taskManager = new TaskManager(new FifoReplacementStrategy());
+        taskManager.addProcess(newProcess(2));
+        taskManager.addProcess(newProcess(1));
+        var subscriber = new QueueSubscriber();
+        taskManager.watch().subscribe(subscriber);
+
+        //when
+        subscriber.request(1);
+        var snapshot = subscriber.next();
+        taskManager.addProcess(newProcess(3));
+        taskManager.kill(byPID(1));
+        subscriber.request(1);
+        var changes = subscriber.next();
+
+        //then
+        assertTrue(snapshot.isSnapshot());
+        assertEquals(asList(1, 2), snapshot.getProcesses().stream().map(Process::getPid).collect(toList()));
+        assertFalse(changes.isSnapshot());
+        assertEquals(asList("KILLED 1", "STARTED 3"), describe(changes));
+    }
+
+    @Test
+    public void testUpdatesReplayToTheCurrentTable() throws InterruptedException {
+        //given
+        var taskManager = new TaskManager(new FifoReplacementStrategy());
+        taskManager.addProcess(newProcess(100));
+        var subscriber = new QueueSubscriber();
+        taskManager.watch().subscribe(subscriber);
+        subscriber.request(Long.MAX_VALUE);
+
+        //when
+        for (int pid = 1; pid <= 50; pid++) {
+            taskManager.addProcess(newProcess(pid));
+            if (pid % 7 == 0) {
+                taskManager.kill(byPID(pid - 1));
+            }
+        }
+
+        //then
+        var expected = taskManager.listProcesses(BY_PID).stream().map(Process::getPid).collect(toSet());
+        var replayed = new TreeMap<Integer, Process>();
+        while (!replayed.keySet().equals(expected)) {
+            var update = subscriber.next();
+            if (update.isSnapshot()) {
+                replayed.clear();
+                update.getProcesses().forEach(process -> replayed.put(process.getPid(), process));
+            }
+            for (var change : update.getChanges()) {
+                if (change.isRemoval()) {
+                    assertSame(change.getProcess(), replayed.remove(change.getProcess().getPid()));
+                } else {
+                    assertNull(replayed.put(change.getProcess().getPid(), change.getProcess()));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testChangesAreCoalescedWithoutDemand() throws InterruptedException {
+        //given
+        var taskManager = new TaskManager(new FifoReplacementStrategy());
+        taskManager.addProcess(newProcess(1));
+        var subscriber = new QueueSubscriber();
+        taskManager.watch().subscribe(subscriber);
+        subscriber.request(1);
+        subscriber.next();
+
+        //when
+        taskManager.addProcess(newProcess(2));
+        taskManager.kill(byPID(2));
+        taskManager.kill(byPID(1));
+        taskManager.addProcess(newProcess(1));
+        taskManager.addProcess(newProcess(3));
+        subscriber.request(1);
+
+        //then
+        assertEquals(asList("KILLED 1", "STARTED 1", "STARTED 3"), describe(subscriber.next()));
+        assertNull(subscriber.poll());
+    }
+
+    @Test
+    public void testLongBacklogIsReplacedBySnapshot() throws InterruptedException {
+        //given
+        var taskManager = new TaskManager(new FifoReplacementStrategy());
+        var subscriber = new QueueSubscriber();
+        taskManager.watch().subscribe(subscriber);
+        subscriber.request(1);
+        subscriber.next();
+
+        //when
+        for (int pid = 1; pid <= 100; pid++) {
+            taskManager.addProcess(newProcess(pid));
+        }
+        subscriber.request(2);
+
+        //then
+        var update = subscriber.next();
+        assertTrue(update.isSnapshot());
+        assertEquals(10, update.getProcesses().size());
+        assertNull(subscriber.poll());
+    }
+
+    @Test
+    public void testCancelledSubscriberReceivesNothing() throws InterruptedException {
+        //given
+        var taskManager = new TaskManager(new FifoReplacementStrategy());
+        var subscriber = new QueueSubscriber();
+        taskManager.watch().subscribe(subscriber);
+        subscriber.request(1);
+        subscriber.next();
+
+        //when
+        subscriber.subscription.cancel();
+        taskManager.addProcess(newProcess(1));
+        subscriber.request(1);
+
+        //then
+        assertNull(subscriber.poll());
+    }
+
+    @Test
+    public void testBacklogLimitFollowsCapacity() throws InterruptedException {
+        //given
+        var taskManager = new TaskManager(new FifoReplacementStrategy());
+        taskManager.setCapacity(100);
+        var subscriber = new QueueSubscriber();
+        taskManager.watch().subscribe(subscriber);
+        subscriber.request(1);
+        subscriber.next();
+
+        //when
+        for (int pid = 1; pid <= 20; pid++) {
+            taskManager.addProcess(newProcess(pid));
+        }
+        subscriber.request(1);
+        var update = subscriber.next();
+
+        //then
+        assertFalse(update.isSnapshot());
+        assertEquals(20, update.getChanges().size());
+    }
+
+    @Test
+    public void testInvalidDemandIsSignalledAfterTheUpdateInFlight() throws InterruptedException {
+        //given
+        var taskManager = new TaskManager(new FifoReplacementStrategy());
+        var signals = new CopyOnWriteArrayList<String>();
+        var delivering = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var failed = new CountDownLatch(1);
+        var subscriptions = new LinkedBlockingQueue<Flow.Subscription>();
+        taskManager.watch().subscribe(new Flow.Subscriber<ProcessTableUpdate>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscriptions.add(subscription);
+            }
+
+            @Override
+            public void onNext(ProcessTableUpdate item) {
+                signals.add("onNext");
+                delivering.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                signals.add("onNext returned");
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                signals.add("onError " + throwable.getClass().getSimpleName());
+                failed.countDown();
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+        var subscription = subscriptions.take();
+        subscription.request(1);
+        assertTrue(delivering.await(5, TimeUnit.SECONDS));
+
+        //when
+        subscription.request(0);
+        var beforeReturn = List.copyOf(signals);
+        release.countDown();
+
+        //then
+        assertTrue(failed.await(5, TimeUnit.SECONDS));
+        assertEquals(asList("onNext"), beforeReturn);
+        assertEquals(asList("onNext", "onNext returned", "onError IllegalArgumentException"), signals);
+    }
+
+    private static List<String> describe(ProcessTableUpdate update) {
+        return update.getChanges().stream()
+                .map(change -> change.getType() + " " + change.getProcess().getPid())
+                .collect(toList());
+    }
+
+    private static class QueueSubscriber implements Flow.Subscriber<ProcessTableUpdate> {
+
+        private final BlockingQueue<ProcessTableUpdate> updates = new LinkedBlockingQueue<>();
+        private volatile Flow.Subscription subscription;
+
+        void request(long n) {
+            subscription.request(n);
+        }
+
+        ProcessTableUpdate next() throws InterruptedException {
+            var update = updates.poll(5, TimeUnit.SECONDS);
+            assertNotNull(update);
+            return update;
+        }
+
+        ProcessTableUpdate poll() throws InterruptedException {
+            return updates.poll(100, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(ProcessTableUpdate item) {
+            updates.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            throw new AssertionError(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+}
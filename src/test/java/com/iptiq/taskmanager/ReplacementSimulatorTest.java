@@ -0,0 +1,88 @@
+package com.iptiq.taskmanager;
+
+import com.iptiq.taskmanager.replacement.DefaultReplacementStrategy;
+import com.iptiq.taskmanager.replacement.FifoReplacementStrategy;
+import com.iptiq.taskmanager.replacement.PrioBasedReplacementStrategy;
+import com.iptiq.taskmanager.trace.Trace;
+import com.iptiq.taskmanager.trace.TraceWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReplacementSimulatorTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testSimulatesEachStrategyAndCapacity() throws IOException {
+        //given
+        var file = directory.resolve("trace");
+        try (var writer = new TraceWriter(file)) {
+            writer.add(10, 1, 1);
+            writer.add(20, 2, 5);
+            writer.add(30, 3, 3);
+            writer.add(40, 2, 5);
+            writer.add(50, 4, 1);
+            writer.list(55, ListOrder.BY_PID);
+            writer.kill(60, 4);
+        }
+        var strategies = new LinkedHashMap<String, Supplier<ReplacementStrategy>>();
+        strategies.put("FIFO", FifoReplacementStrategy::new);
+        strategies.put("PRIO", PrioBasedReplacementStrategy::new);
+        strategies.put("DEFAULT", DefaultReplacementStrategy::new);
+        var simulator = new ReplacementSimulator(strategies, new ForkJoinPool(2));
+
+        //when
+        var results = simulator.simulate(Trace.read(file), 2, 10);
+
+        //then
+        assertEquals(6, results.size());
+        var fifo = results.get(0);
+        assertEquals("FIFO", fifo.getStrategy());
+        assertEquals(2, fifo.getCapacity());
+        assertEquals(4, fifo.getAdditions());
+        assertEquals(1, fifo.getDuplicates());
+        assertEquals(2, fifo.getReplacements());
+        assertEquals(Map.of(1, 1L, 5, 1L), fifo.getEvictionsByPriority());
+        assertEquals(1, fifo.getKills());
+        assertEquals(2, fifo.getDecisionCost().getCount());
+
+        var prio = results.get(2);
+        assertEquals("PRIO", prio.getStrategy());
+        assertEquals(1, prio.getRejections());
+        assertEquals(Map.of(1, 1L), prio.getEvictionsByPriority());
+        assertEquals(0, prio.getKills());
+
+        var defaultStrategy = results.get(4);
+        assertEquals(0.5, defaultStrategy.getRejectionRate());
+        assertEquals(0, defaultStrategy.getEvictions());
+
+        for (var unbounded : results.stream().filter(result -> result.getCapacity() == 10).collect(toList())) {
+            assertEquals(0, unbounded.getRejections());
+            assertEquals(0, unbounded.getEvictions());
+            assertEquals(1, unbounded.getKills());
+        }
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        //given
+        var simulator = new ReplacementSimulator(Map.of("FIFO", FifoReplacementStrategy::new),
+                ForkJoinPool.commonPool());
+
+        //then
+        assertThrows(IllegalArgumentException.class, () -> new ReplacementSimulator(Map.of(),
+                ForkJoinPool.commonPool()));
+        assertThrows(IllegalArgumentException.class, () -> simulator.simulate(null, 10));
+    }
+}
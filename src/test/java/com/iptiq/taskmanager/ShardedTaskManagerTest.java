@@ -0,0 +1,282 @@
+package com.iptiq.taskmanager;
+
+import com.iptiq.taskmanager.replacement.DefaultReplacementStrategy;
+import com.iptiq.taskmanager.replacement.FifoReplacementStrategy;
+import com.iptiq.taskmanager.replacement.PrioBasedReplacementStrategy;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+import static com.iptiq.taskmanager.ListOrder.*;
+import static com.iptiq.taskmanager.ProcessTestFactory.newProcess;
+import static com.iptiq.taskmanager.Selectors.all;
+import static com.iptiq.taskmanager.Selectors.byPID;
+import static com.iptiq.taskmanager.Selectors.byPriority;
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.IntStream.rangeClosed;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShardedTaskManagerTest {
+
+    private static final int CAPACITY = 50;
+    private static final int SHARDS = 8;
+    private static final int THREADS = 8;
+    private static final int PROCESSES_PER_THREAD = 200;
+
+    @Test
+    public void testCapacityIsGlobal() {
+        //given
+        var taskManager = new ShardedTaskManager(DefaultReplacementStrategy::new, SHARDS, CAPACITY, Clock.systemUTC());
+        rangeClosed(1, CAPACITY).forEach(pid -> taskManager.addProcess(newProcess(pid)));
+
+        //when
+        assertThrows(CapacityFullException.class, () -> {
+            taskManager.addProcess(newProcess(CAPACITY + 1));
+        });
+
+        //then
+        assertEquals(CAPACITY, taskManager.listProcesses(BY_PID).size());
+        assertEquals(CAPACITY, taskManager.getMetrics().getLive());
+    }
+
+    @Test
+    public void testCannotAddDuplicateProcess() {
+        //given
+        var taskManager = new ShardedTaskManager(DefaultReplacementStrategy::new, SHARDS, CAPACITY, Clock.systemUTC());
+        taskManager.addProcess(newProcess(1));
+
+        //when
+        assertThrows(IllegalArgumentException.class, () -> {
+            taskManager.addProcess(newProcess(1));
+        });
+    }
+
+    @Test
+    public void testUnsupportedFieldsAreRejected() {
+        //given
+        var taskManager = new ShardedTaskManager(DefaultReplacementStrategy::new, SHARDS, CAPACITY, Clock.systemUTC());
+
+        //when
+        taskManager.addProcess(newProcess(1));
+
+        //then
+        assertThrows(IllegalArgumentException.class, () -> taskManager.addProcess(
+                Process.builder().pid(2).weight(2).build()));
+        assertThrows(IllegalArgumentException.class, () -> taskManager.addProcess(
+                Process.builder().pid(2).ttl(Duration.ofSeconds(1)).build()));
+        assertThrows(IllegalArgumentException.class, () -> taskManager.addProcess(
+                Process.builder().pid(2).deadline(Instant.now()).build()));
+        assertThrows(IllegalArgumentException.class, () -> taskManager.addProcess(
+                Process.builder().pid(2).task(() -> { }).build()));
+        assertEquals(asList(1), taskManager.listProcesses(BY_PID).stream().map(Process::getPid).collect(toList()));
+    }
+
+    @Test
+    public void testFifoReplacesTheGloballyOldestProcess() {
+        //given
+        var taskManager = new ShardedTaskManager(FifoReplacementStrategy::new, SHARDS, CAPACITY, Clock.systemUTC());
+        var processes = new ArrayList<Process>();
+        for (int pid = 1; pid <= CAPACITY; pid++) {
+            var process = newProcess(pid * 31);
+            taskManager.addProcess(process);
+            processes.add(process);
+        }
+
+        //when
+        taskManager.addProcess(newProcess(1));
+        taskManager.addProcess(newProcess(2));
+
+        //then
+        assertTrue(processes.get(0).isFinished());
+        assertTrue(processes.get(1).isFinished());
+        assertEquals(CAPACITY - 2, processes.stream().filter(p -> !p.isFinished()).count());
+    }
+
+    @Test
+    public void testPrioBasedReplacesTheGloballyLowestPriority() {
+        //given
+        var taskManager = new ShardedTaskManager(PrioBasedReplacementStrategy::new, SHARDS, 4, Clock.systemUTC());
+        var processes = asList(newProcess(1, 5), newProcess(2, 3), newProcess(3, 7), newProcess(4, 3));
+        processes.forEach(taskManager::addProcess);
+
+        //when
+        taskManager.addProcess(newProcess(5, 4));
+        assertThrows(CapacityFullException.class, () -> {
+            taskManager.addProcess(newProcess(6, 3));
+        });
+
+        //then
+        assertTrue(processes.get(1).isFinished());
+        var pids = taskManager.listProcesses(BY_PRIORITY).stream().map(Process::getPid).collect(toList());
+        assertEquals(asList(4, 5, 1, 3), pids);
+    }
+
+    @Test
+    public void testListingMergesShardsInOrder() {
+        //given
+        var random = new Random(13);
+        var taskManager = new ShardedTaskManager(DefaultReplacementStrategy::new, SHARDS, 500, Clock.systemUTC());
+        for (int i = 0; i < 500; i++) {
+            taskManager.addProcess(newProcess(i * 7919 % 500, random.nextInt(20)));
+        }
+
+        //then
+        for (var listOrder : ListOrder.values()) {
+            var listed = taskManager.listProcesses(listOrder);
+            var sorted = new ArrayList<>(listed);
+            sorted.sort(listOrder.getComparator());
+            assertEquals(500, listed.size());
+            for (int i = 0; i < sorted.size(); i++) {
+                assertEquals(0, listOrder.getComparator().compare(sorted.get(i), listed.get(i)));
+            }
+
+            assertEquals(listed.subList(123, 168), taskManager.listProcesses(listOrder, 123, 45));
+        }
+    }
+
+    @Test
+    public void testTiesAreMergedByPid() {
+        //given
+        var taskManager = new ShardedTaskManager(DefaultReplacementStrategy::new, SHARDS, CAPACITY, Clock.systemUTC());
+        var random = new Random(5);
+        var pids = new ArrayList<Integer>();
+        rangeClosed(1, 40).forEach(pids::add);
+        Collections.shuffle(pids, random);
+
+        //when
+        for (int pid : pids) {
+            taskManager.addProcess(Process.builder().pid(pid).priority(pid % 2).build());
+        }
+
+        //then
+        var expected = new ArrayList<Integer>();
+        rangeClosed(1, 20).forEach(i -> expected.add(2 * i));
+        rangeClosed(1, 20).forEach(i -> expected.add(2 * i - 1));
+        assertEquals(expected, taskManager.listProcesses(BY_PRIORITY).stream().map(Process::getPid).collect(toList()));
+        assertEquals(expected.subList(15, 25), taskManager.listProcesses(BY_PRIORITY, 15, 10).stream()
+                .map(Process::getPid).collect(toList()));
+    }
+
+    @Test
+    public void testKillReleasesCapacity() {
+        //given
+        var taskManager = new ShardedTaskManager(DefaultReplacementStrategy::new, SHARDS, CAPACITY, Clock.systemUTC());
+        rangeClosed(1, CAPACITY).forEach(pid -> taskManager.addProcess(newProcess(pid, pid % 2)));
+
+        //when
+        var killed = taskManager.kill(byPriority(0));
+        taskManager.kill(byPID(1));
+
+        //then
+        assertEquals(CAPACITY / 2, killed.size());
+        assertEquals(CAPACITY / 2 - 1, taskManager.listProcesses(BY_PID).size());
+        rangeClosed(CAPACITY + 1, CAPACITY + CAPACITY / 2 + 1).forEach(pid -> taskManager.addProcess(newProcess(pid)));
+    }
+
+    @Test
+    public void testReplacedProcessesAreKilledUnderConcurrentAdds() throws InterruptedException {
+        //given
+        var taskManager = new ShardedTaskManager(FifoReplacementStrategy::new, SHARDS, CAPACITY, Clock.systemUTC());
+        var added = new ConcurrentLinkedQueue<Process>();
+        var rejected = new AtomicInteger();
+
+        //when
+        runConcurrently(pid -> {
+            var process = newProcess(pid);
+            try {
+                taskManager.addProcess(process);
+                added.add(process);
+            } catch (CapacityFullException e) {
+                rejected.incrementAndGet();
+            }
+            if (pid % 10 == 0) {
+                taskManager.kill(byPID(pid - 5));
+            }
+        });
+        taskManager.kill(all());
+
+        //then
+        assertEquals(0, rejected.get());
+        assertTrue(added.stream().allMatch(Process::isFinished));
+        assertTrue(taskManager.listProcesses(BY_PID).isEmpty());
+        rangeClosed(1, CAPACITY).forEach(pid -> taskManager.addProcess(newProcess(-pid)));
+        assertEquals(CAPACITY, taskManager.listProcesses(BY_TIME_STARTED).size());
+    }
+
+    @Test
+    public void testConcurrentDuplicatesEvictNothing() throws InterruptedException {
+        //given
+        var taskManager = new ShardedTaskManager(FifoReplacementStrategy::new, SHARDS, CAPACITY, Clock.systemUTC());
+        var initial = new ArrayList<Process>();
+        for (int pid = 0; pid < CAPACITY; pid++) {
+            var process = newProcess(THREADS * PROCESSES_PER_THREAD + pid);
+            taskManager.addProcess(process);
+            initial.add(process);
+        }
+        var added = new AtomicInteger();
+        var duplicates = new AtomicInteger();
+
+        //when
+        // every thread adds the same pids
+        runConcurrently(pid -> {
+            try {
+                taskManager.addProcess(newProcess(pid % CAPACITY));
+                added.incrementAndGet();
+            } catch (IllegalArgumentException e) {
+                duplicates.incrementAndGet();
+            }
+        });
+
+        //then
+        // each pid has been added once, and has replaced exactly one of the initial processes
+        assertEquals(CAPACITY, added.get());
+        assertEquals(THREADS * PROCESSES_PER_THREAD - CAPACITY, duplicates.get());
+        assertTrue(initial.stream().allMatch(Process::isFinished));
+        var pids = taskManager.listProcesses(BY_PID).stream()
+                .map(Process::getPid)
+                .collect(toList());
+        assertEquals(rangeClosed(0, CAPACITY - 1).boxed().collect(toList()), pids);
+    }
+
+    /**
+     * Invokes the action concurrently from {@link #THREADS} threads, each with its own range of pids.
+     */
+    private static void runConcurrently(IntConsumer action) throws InterruptedException {
+        var start = new CountDownLatch(1);
+        var errors = new ConcurrentLinkedQueue<Throwable>();
+        List<Thread> threads = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            int firstPid = t * PROCESSES_PER_THREAD;
+            var thread = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int pid = firstPid; pid < firstPid + PROCESSES_PER_THREAD; pid++) {
+                        action.accept(pid);
+                    }
+                } catch (Throwable e) {
+                    errors.add(e);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        start.countDown();
+        for (var thread : threads) {
+            thread.join();
+        }
+        assertTrue(errors.isEmpty(), () -> "Unexpected errors: " + errors);
+    }
+}
@@ -1,20 +1,47 @@
 package com.iptiq.taskmanager;
 
+import com.iptiq.taskmanager.event.ProcessEvent;
+import com.iptiq.taskmanager.event.LoggingEventListener;
+import com.iptiq.taskmanager.persistence.Journal;
+import com.iptiq.taskmanager.persistence.Snapshot;
 import com.iptiq.taskmanager.replacement.DefaultReplacementStrategy;
 import com.iptiq.taskmanager.replacement.FifoReplacementStrategy;
+import com.iptiq.taskmanager.replacement.PrioBasedReplacementStrategy;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
+import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+import static com.iptiq.taskmanager.AdmissionResult.Status.*;
 import static com.iptiq.taskmanager.ListOrder.*;
 import static com.iptiq.taskmanager.ProcessTestFactory.newProcess;
 import static com.iptiq.taskmanager.ProcessTestFactory.newStartedProcess;
 import static com.iptiq.taskmanager.Selectors.all;
+import static com.iptiq.taskmanager.Selectors.byPID;
 import static com.iptiq.taskmanager.Selectors.byPriority;
+import static com.iptiq.taskmanager.Selectors.byPriorityRange;
 import static java.util.Arrays.asList;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.IntStream.rangeClosed;
 import static org.junit.jupiter.api.Assertions.*;
@@ -94,6 +121,31 @@ public class TaskManagerTest {
         assertEquals(asList(95, 96, 97, 98, 99), sortedPids);
     }
 
+    @Test
+    public void testLowestPriorityIsReplacedWhenPrioBased() {
+        //given
+        var taskManager = new TaskManager(new PrioBasedReplacementStrategy(), CAPACITY, increasingClock());
+        taskManager.addProcess(newProcess(1, 5));
+        taskManager.addProcess(newProcess(2, 3));
+        taskManager.addProcess(newProcess(3, 3));
+        taskManager.addProcess(newProcess(4, 1));
+        taskManager.addProcess(newProcess(5, 4));
+        taskManager.kill(Selectors.byPID(4));
+        taskManager.addProcess(newProcess(6, 2));
+
+        //when
+        taskManager.addProcess(newProcess(7, 3));
+
+        //then
+        var pids = taskManager.listProcesses(BY_PID).stream()
+                .map(p -> p.getPid())
+                .collect(toList());
+        assertEquals(asList(1, 2, 3, 5, 7), pids);
+        assertThrows(CapacityFullException.class, () -> {
+            taskManager.addProcess(newProcess(8, 3));
+        });
+    }
+
     @Test
     public void testReplacedProcessIsKilled() {
         //given
@@ -110,6 +162,80 @@ public class TaskManagerTest {
         assertFalse(list.get(1).isFinished());
     }
 
+    @Test
+    public void testAddProcessesReportsResultPerProcess() {
+        //given
+        var taskManager = newFifoTaskManager();
+        var running = rangeClosed(1, CAPACITY - 2)
+                .mapToObj(pid -> newProcess(pid))
+                .collect(toList());
+        running.forEach(p -> taskManager.addProcess(p));
+
+        //when
+        var results = taskManager.addProcesses(asList(
+                newProcess(10),
+                newProcess(1),
+                newStartedProcess(11, 11, 11),
+                newProcess(12),
+                newProcess(12),
+                newProcess(13),
+                newProcess(14)));
+
+        //then
+        assertEquals(asList(ADMITTED, REJECTED, REJECTED, ADMITTED, REJECTED, REPLACED, REPLACED),
+                results.stream().map(AdmissionResult::getStatus).collect(toList()));
+        assertEquals(asList(10, 1, 11, 12, 12, 13, 14),
+                results.stream().map(AdmissionResult::getPid).collect(toList()));
+        assertEquals(1, results.get(5).getReplacedPid().getAsInt());
+        assertEquals(2, results.get(6).getReplacedPid().getAsInt());
+        assertTrue(running.get(0).isFinished());
+        assertTrue(running.get(1).isFinished());
+        var pids = taskManager.listProcesses(BY_PID).stream()
+                .map(p -> p.getPid())
+                .collect(toList());
+        assertEquals(asList(3, 10, 12, 13, 14), pids);
+    }
+
+    @Test
+    public void testAddProcessesNeverReplacesProcessesOfTheSameBatch() {
+        //given
+        var taskManager = newFifoTaskManager();
+
+        //when
+        var results = taskManager.addProcesses(rangeClosed(1, CAPACITY + 2)
+                .mapToObj(pid -> newProcess(pid))
+                .collect(toList()));
+
+        //then
+        assertEquals(CAPACITY, results.stream().filter(AdmissionResult::isAdmitted).count());
+        assertEquals(REJECTED, results.get(CAPACITY).getStatus());
+        assertEquals(REJECTED, results.get(CAPACITY + 1).getStatus());
+    }
+
+    @Test
+    public void testAddProcessesWhenPrioBased() {
+        //given
+        var taskManager = new TaskManager(new PrioBasedReplacementStrategy(), 3, increasingClock());
+        taskManager.addProcess(newProcess(1, 1));
+        taskManager.addProcess(newProcess(2, 2));
+        taskManager.addProcess(newProcess(3, 3));
+
+        //when
+        var results = taskManager.addProcesses(asList(
+                newProcess(10, 2),
+                newProcess(11, 1),
+                newProcess(12, 5),
+                newProcess(13, 5)));
+
+        //then
+        assertEquals(asList(REPLACED, REJECTED, REPLACED, REPLACED),
+                results.stream().map(AdmissionResult::getStatus).collect(toList()));
+        assertEquals(asList(1, 2, 3), asList(
+                results.get(0).getReplacedPid().getAsInt(),
+                results.get(2).getReplacedPid().getAsInt(),
+                results.get(3).getReplacedPid().getAsInt()));
+    }
+
     @Test
     public void testListByPid() {
         //given
@@ -173,6 +299,86 @@ public class TaskManagerTest {
         assertEquals(asList(3, 10, 1, 2), sortedPids);
     }
 
+    @Test
+    public void testTimeStartedIsInTheZoneOfTheClock(@TempDir Path directory) throws IOException {
+        //given
+        var clock = Clock.fixed(Instant.EPOCH, ZoneId.of("Asia/Tokyo"));
+        var file = directory.resolve("journal");
+        var process = newProcess(1);
+
+        //when
+        try (var journal = Journal.open(file)) {
+            new TaskManager(new FifoReplacementStrategy(), 3, clock, journal).addProcess(process);
+        }
+
+        //then
+        var expected = LocalDateTime.of(1970, 1, 1, 9, 0);
+        assertEquals(expected, process.getTimeStarted());
+        try (var journal = Journal.open(file)) {
+            var restored = new TaskManager(new FifoReplacementStrategy(), 3, clock, journal);
+            assertEquals(expected, restored.listProcesses(BY_PID).get(0).getTimeStarted());
+        }
+    }
+
+    @Test
+    public void testStartOrderSurvivesClockGoingBackwards() {
+        //given
+        var instants = new ArrayList<>(asList(Instant.ofEpochSecond(10), Instant.ofEpochSecond(5),
+                Instant.ofEpochSecond(5), Instant.ofEpochSecond(20)));
+        var clock = new Clock() {
+            @Override
+            public ZoneId getZone() {
+                return ZoneId.systemDefault();
+            }
+
+            @Override
+            public Clock withZone(ZoneId zone) {
+                return this;
+            }
+
+            @Override
+            public Instant instant() {
+                return instants.remove(0);
+            }
+        };
+        var taskManager = new TaskManager(new FifoReplacementStrategy(), 3, clock);
+        // the timestamps of published events would read the clock, too
+        taskManager.getEventPipeline().removeListener(new LoggingEventListener());
+        var processes = asList(newProcess(3), newProcess(1), newProcess(2), newProcess(4));
+
+        //when
+        processes.forEach(taskManager::addProcess);
+
+        //then
+        assertEquals(processes.subList(1, 4), taskManager.listProcesses(BY_TIME_STARTED));
+        assertEquals(Instant.ofEpochSecond(10), processes.get(2).getTimeStarted().atZone(ZoneId.systemDefault()).toInstant());
+        assertEquals(Instant.ofEpochSecond(20), processes.get(3).getTimeStarted().atZone(ZoneId.systemDefault()).toInstant());
+    }
+
+    @Test
+    public void testListPage() {
+        //given
+        var taskManager = newTaskManager();
+        var list = asList(
+                newProcess(3, 10),
+                newProcess(10, 3),
+                newProcess(1, 2),
+                newProcess(2, 1));
+        list.forEach(p -> taskManager.addProcess(p));
+
+        //when
+        var byPid = taskManager.listProcesses(BY_PID, 1, 2);
+        var byPriority = taskManager.listProcesses(BY_PRIORITY, 2, 5);
+        var beyondEnd = taskManager.listProcesses(BY_TIME_STARTED, 4, 1);
+
+        // then
+        assertEquals(asList(2, 3), byPid.stream().map(p -> p.getPid()).collect(toList()));
+        assertEquals(asList(10, 3), byPriority.stream().map(p -> p.getPid()).collect(toList()));
+        assertTrue(beyondEnd.isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> {
+            taskManager.listProcesses(BY_PID, -1, 1);
+        });
+    }
 
     @Test
     public void testKillByPid() {
@@ -236,12 +442,1032 @@ public class TaskManagerTest {
         assertEquals(2, taskManager.listProcesses(BY_PID).size());
     }
 
-    private TaskManager newTaskManager() {
-        return new TaskManager(new DefaultReplacementStrategy(), CAPACITY, increasingClock());
+    @Test
+    public void testKillByPriorityRange() {
+        //given
+        var taskManager = newTaskManager();
+        var list = asList(
+                newProcess(3, 1),
+                newProcess(10, 2),
+                newProcess(1, 4),
+                newProcess(2, 3),
+                newProcess(4, 5));
+        list.forEach(p -> taskManager.addProcess(p));
+
+        //when
+        var killed = taskManager.kill(byPriorityRange(2, 4));
+
+        // then
+        Collections.sort(killed);
+        assertEquals(asList(1, 2, 10), killed);
+        var remainingPids = taskManager.listProcesses(BY_PID).stream()
+                .map(p -> p.getPid())
+                .collect(toList());
+        assertEquals(asList(3, 4), remainingPids);
     }
 
-    private TaskManager newFifoTaskManager() {
-        return new TaskManager(new FifoReplacementStrategy(), CAPACITY, increasingClock());
+    @Test
+    public void testKillByCustomPredicate() {
+        //given
+        var taskManager = newTaskManager();
+        var list = asList(
+                newProcess(3),
+                newProcess(10),
+                newProcess(1),
+                newProcess(2));
+        list.forEach(p -> taskManager.addProcess(p));
+
+        //when
+        var killed = taskManager.kill(p -> p.getPid() % 2 == 0);
+
+        // then
+        Collections.sort(killed);
+        assertEquals(asList(2, 10), killed);
+        assertEquals(2, taskManager.listProcesses(BY_PID).size());
+    }
+
+    @Test
+    public void testKillUnknownPid() {
+        //given
+        var taskManager = newTaskManager();
+        taskManager.addProcess(newProcess(1));
+
+        //when
+        var killed = taskManager.kill(Selectors.byPID(2));
+
+        // then
+        assertTrue(killed.isEmpty());
+        assertEquals(1, taskManager.listProcesses(BY_PID).size());
+    }
+
+    @Test
+    public void testLifecycleEventsArePublished() {
+        //given
+        var taskManager = new TaskManager(new FifoReplacementStrategy(), 2, increasingClock());
+        var events = new ArrayList<String>();
+        taskManager.getEventPipeline().addListener((event, endOfBatch) -> {
+            events.add(event.getType() + ":" + event.getPid());
+        });
+
+        //when
+        taskManager.addProcess(newProcess(1));
+        taskManager.addProcess(newProcess(2));
+        taskManager.addProcess(newProcess(3));
+        taskManager.kill(Selectors.byPID(2));
+        taskManager.getEventPipeline().close();
+
+        //then
+        assertEquals(asList("STARTED:1", "STARTED:2", "EVICTED:1", "STARTED:3", "KILLED:2"), events);
+    }
+
+    @Test
+    public void testRejectionEventIsPublished() {
+        //given
+        var taskManager = new TaskManager(new DefaultReplacementStrategy(), 1, increasingClock());
+        var events = new ArrayList<ProcessEvent.Type>();
+        taskManager.getEventPipeline().addListener((event, endOfBatch) -> events.add(event.getType()));
+        taskManager.addProcess(newProcess(1));
+
+        //when
+        assertThrows(CapacityFullException.class, () -> {
+            taskManager.addProcess(newProcess(2));
+        });
+        taskManager.getEventPipeline().close();
+
+        //then
+        assertEquals(asList(ProcessEvent.Type.STARTED, ProcessEvent.Type.REJECTED), events);
+    }
+
+    @Test
+    public void testMetricsCountOperations() {
+        //given
+        var taskManager = new TaskManager(new FifoReplacementStrategy(), 2, increasingClock());
+
+        //when
+        rangeClosed(1, 3).forEach(pid -> taskManager.addProcess(newProcess(pid)));
+        taskManager.kill(Selectors.byPID(3));
+        taskManager.kill(p -> p.getPid() == 2);
+        taskManager.listProcesses(BY_PID);
+
+        //then
+        var metrics = taskManager.getMetrics().snapshot();
+        assertEquals("FifoReplacementStrategy", metrics.getReplacementStrategy());
+        assertEquals(2, metrics.getCapacity());
+        assertEquals(0, metrics.getLive());
+        assertEquals(3, metrics.getAdmissions());
+        assertEquals(0, metrics.getRejections());
+        assertEquals(1, metrics.getEvictions());
+        assertEquals(2, metrics.getKills());
+        assertEquals(Map.of("pid", 1L, "custom", 1L), metrics.getKillsBySelector());
+        assertEquals(3, metrics.getAddProcessLatency().getCount());
+        assertEquals(2, metrics.getKillLatency().getCount());
+        assertEquals(1, metrics.getListProcessesLatency().getCount());
+        assertEquals(1, metrics.getChooseLatency().getCount());
+        assertEquals(6, metrics.getLockWait().getCount());
+    }
+
+    @Test
+    public void testMetricsCountRejections() {
+        //given
+        var taskManager = new TaskManager(new DefaultReplacementStrategy(), 1, increasingClock());
+        taskManager.addProcess(newProcess(1));
+
+        //when
+        assertThrows(CapacityFullException.class, () -> {
+            taskManager.addProcess(newProcess(2));
+        });
+        taskManager.addProcesses(asList(newProcess(3), newProcess(4)));
+
+        //then
+        var metrics = taskManager.getMetrics();
+        assertEquals(1, metrics.getAdmissions());
+        assertEquals(3, metrics.getRejections());
+        assertEquals(1, metrics.getLive());
+    }
+
+    @Test
+    public void testProcessesAreRestoredFromJournal(@TempDir Path directory) throws IOException {
+        //given
+        var file = directory.resolve("journal");
+        try (var journal = Journal.open(file)) {
+            var taskManager = new TaskManager(new PrioBasedReplacementStrategy(), 3, increasingClock(), journal);
+            taskManager.addProcess(newProcess(1, 5));
+            taskManager.addProcess(newProcess(2, 1));
+            taskManager.addProcess(newProcess(3, 1));
+            taskManager.addProcess(newProcess(4, 9));
+            taskManager.kill(Selectors.byPID(1));
+        }
+
+        //when
+        try (var journal = Journal.open(file)) {
+            var restored = new TaskManager(new PrioBasedReplacementStrategy(), 3, increasingClock(), journal);
+
+            //then
+            var pids = restored.listProcesses(BY_TIME_STARTED).stream().map(Process::getPid).collect(toList());
+            assertEquals(asList(3, 4), pids);
+            assertTrue(restored.listProcesses(BY_PID).stream().allMatch(Process::hasStarted));
+
+            restored.addProcess(newProcess(5, 2));
+            restored.addProcess(newProcess(6, 2));
+            pids = restored.listProcesses(BY_TIME_STARTED).stream().map(Process::getPid).collect(toList());
+            assertEquals(asList(4, 5, 6), pids);
+        }
+    }
+
+    @Test
+    public void testSnapshotAndRestore(@TempDir Path directory) throws IOException {
+        //given
+        var file = directory.resolve("snapshot");
+        var taskManager = new TaskManager(new FifoReplacementStrategy(), 3, increasingClock());
+        rangeClosed(1, 4).forEach(pid -> taskManager.addProcess(newProcess(pid)));
+
+        //when
+        taskManager.snapshot(file);
+        var restored = TaskManager.restore(file, new FifoReplacementStrategy());
+
+        //then
+        var pids = restored.listProcesses(BY_TIME_STARTED).stream().map(Process::getPid).collect(toList());
+        assertEquals(asList(2, 3, 4), pids);
+        assertEquals(3, restored.getMetrics().getCapacity());
+
+        restored.addProcess(newProcess(5));
+        pids = restored.listProcesses(BY_TIME_STARTED).stream().map(Process::getPid).collect(toList());
+        assertEquals(asList(3, 4, 5), pids);
+    }
+
+    @Test
+    public void testCompletedTaskFreesItsSlot() throws InterruptedException {
+        //given
+        var taskManager = new TaskManager(new DefaultReplacementStrategy(), 1, increasingClock());
+        var finished = new CountDownLatch(1);
+        taskManager.getEventPipeline().addListener((event, endOfBatch) -> {
+            if (event.getType() == ProcessEvent.Type.FINISHED) {
+                finished.countDown();
+            }
+        });
+        var process = Process.builder().pid(1).priority(1).task(() -> { }).build();
+
+        //when
+        taskManager.addProcess(process);
+
+        //then
+        assertTrue(finished.await(5, SECONDS));
+        assertTrue(process.isFinished());
+        assertTrue(taskManager.listProcesses(BY_PID).isEmpty());
+        taskManager.addProcess(newProcess(2));
+    }
+
+    @Test
+    public void testKillInterruptsTask() throws InterruptedException {
+        //given
+        var taskManager = newTaskManager();
+        var started = new CountDownLatch(1);
+        var interrupted = new CountDownLatch(1);
+        taskManager.addProcess(Process.builder().pid(1).priority(1).task(() -> {
+            started.countDown();
+            try {
+                new CountDownLatch(1).await();
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+        }).build());
+        assertTrue(started.await(5, SECONDS));
+
+        //when
+        var killed = taskManager.kill(byPID(1));
+
+        //then
+        assertEquals(asList(1), killed);
+        assertTrue(interrupted.await(5, SECONDS));
+        assertTrue(taskManager.listProcesses(BY_PID).isEmpty());
+    }
+
+    @Test
+    public void testBlockingTasksRunConcurrently() throws InterruptedException {
+        //given
+        int tasks = 10_000;
+        var taskManager = new TaskManager(new DefaultReplacementStrategy(), tasks, Clock.systemUTC());
+        var started = new CountDownLatch(tasks);
+        var release = new CountDownLatch(1);
+
+        //when
+        for (int pid = 1; pid <= tasks; pid++) {
+            taskManager.addProcess(Process.builder().pid(pid).priority(1).task(() -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }).build());
+        }
+
+        //then
+        assertTrue(started.await(30, SECONDS));
+        assertEquals(tasks, taskManager.listProcesses(BY_PID).size());
+        release.countDown();
+        // the processes are removed right after their tasks return, events might be dropped under this load
+        long deadline = System.nanoTime() + SECONDS.toNanos(30);
+        while (!taskManager.listProcesses(BY_PID).isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(taskManager.listProcesses(BY_PID).isEmpty());
+    }
+
+    @Test
+    public void testCompletedTaskIsNeitherInterruptedNorCancelled() throws InterruptedException {
+        //given
+        var completed = new CountDownLatch(1);
+        var cancelled = new boolean[1];
+        var interrupted = new boolean[1];
+        var executor = new ThreadPoolExecutor(1, 1, 0, SECONDS, new LinkedBlockingQueue<>()) {
+            @Override
+            protected void afterExecute(Runnable task, Throwable failure) {
+                cancelled[0] = ((Future<?>) task).isCancelled();
+                interrupted[0] = Thread.currentThread().isInterrupted();
+                completed.countDown();
+            }
+        };
+        var taskManager = new TaskManager(new DefaultReplacementStrategy(), executor);
+
+        //when
+        taskManager.addProcess(Process.builder().pid(1).priority(1).task(() -> { }).build());
+
+        //then
+        assertTrue(completed.await(5, SECONDS));
+        assertFalse(cancelled[0]);
+        assertFalse(interrupted[0]);
+        assertTrue(taskManager.listProcesses(BY_PID).isEmpty());
+        executor.shutdown();
+    }
+
+    @Test
+    public void testFailedTaskIsCounted() throws InterruptedException {
+        //given
+        var taskManager = new TaskManager(new DefaultReplacementStrategy(), 1, increasingClock());
+        var finished = new CountDownLatch(1);
+        taskManager.getEventPipeline().addListener((event, endOfBatch) -> {
+            if (event.getType() == ProcessEvent.Type.FINISHED) {
+                finished.countDown();
+            }
+        });
+
+        //when
+        taskManager.addProcess(Process.builder().pid(1).priority(1).task(() -> {
+            throw new IllegalStateException("failed");
+        }).build());
+
+        //then
+        assertTrue(finished.await(5, SECONDS));
+        assertEquals(1, taskManager.getMetrics().getTaskFailures());
+        assertEquals(1, taskManager.getMetrics().snapshot().getTaskFailures());
+        assertTrue(taskManager.listProcesses(BY_PID).isEmpty());
+    }
+
+    @Test
+    public void testTaskRunsOnGivenExecutor() throws InterruptedException {
+        //given
+        var executor = Executors.newSingleThreadExecutor(task -> new Thread(task, "custom"));
+        var taskManager = new TaskManager(new DefaultReplacementStrategy(), executor);
+        var threadName = new String[1];
+        var ran = new CountDownLatch(1);
+
+        //when
+        taskManager.addProcess(Process.builder().pid(1).priority(1).task(() -> {
+            threadName[0] = Thread.currentThread().getName();
+            ran.countDown();
+        }).build());
+
+        //then
+        assertTrue(ran.await(5, SECONDS));
+        assertEquals("custom", threadName[0]);
+        executor.shutdown();
+    }
+
+    @Test
+    public void testTryAddProcessRejectsWithoutThrowing() {
+        //given
+        var taskManager = new TaskManager(new DefaultReplacementStrategy(), 1, increasingClock());
+        taskManager.addProcess(newProcess(1));
+
+        //when
+        var result = taskManager.tryAddProcess(newProcess(2));
+
+        //then
+        assertEquals(REJECTED, result.getStatus());
+        assertEquals(2, result.getPid());
+        assertEquals(1, taskManager.getMetrics().getRejections());
+    }
+
+    @Test
+    public void testCapacityFullExceptionHasNoStackTrace() {
+        //given
+        var taskManager = new TaskManager(new DefaultReplacementStrategy(), 1, increasingClock());
+        taskManager.addProcess(newProcess(1));
+
+        //when
+        var exception = assertThrows(CapacityFullException.class, () -> {
+            taskManager.addProcess(newProcess(2));
+        });
+
+        //then
+        assertEquals(0, exception.getStackTrace().length);
+    }
+
+    @Test
+    public void testWaitingProcessesAreAdmittedByPriorityOnKill() throws Exception {
+        //given
+        var taskManager = new TaskManager(new DefaultReplacementStrategy(), 3, increasingClock());
+        for (int pid = 1; pid <= 3; pid++) {
+            assertEquals(ADMITTED, taskManager.addProcessAsync(newProcess(pid)).get().getStatus());
+        }
+        var low = taskManager.addProcessAsync(newProcess(11, 1));
+        var high = taskManager.addProcessAsync(newProcess(12, 5));
+        var highLater = taskManager.addProcessAsync(newProcess(13, 5));
+        assertFalse(low.isDone() || high.isDone() || highLater.isDone());
+
+        //when
+        taskManager.kill(byPID(1));
+
+        //then
+        assertEquals(ADMITTED, high.get(0, SECONDS).getStatus());
+        assertFalse(highLater.isDone());
+
+        taskManager.kill(byPID(2));
+        assertEquals(ADMITTED, highLater.get(0, SECONDS).getStatus());
+        assertFalse(low.isDone());
+        assertEquals(asList(3, 12, 13), taskManager.listProcesses(BY_PID).stream().map(Process::getPid).collect(toList()));
+    }
+
+    @Test
+    public void testWaitingProcessTimesOut() {
+        //given
+        var taskManager = new TaskManager(new DefaultReplacementStrategy(), 1, increasingClock());
+        taskManager.addProcess(newProcess(1));
+        var process = newProcess(2);
+
+        //when
+        var admission = taskManager.addProcessAsync(process, 50, TimeUnit.MILLISECONDS);
+
+        //then
+        var exception = assertThrows(ExecutionException.class, () -> admission.get(5, SECONDS));
+        assertTrue(exception.getCause() instanceof TimeoutException);
+        taskManager.kill(byPID(1));
+        assertFalse(process.hasStarted());
+        assertTrue(taskManager.listProcesses(BY_PID).isEmpty());
+    }
+
+    @Test
+    public void testCancelledProcessIsWithdrawn() {
+        //given
+        var taskManager = new TaskManager(new DefaultReplacementStrategy(), 1, increasingClock());
+        taskManager.addProcess(newProcess(1));
+        var process = newProcess(2);
+        var admission = taskManager.addProcessAsync(process);
+
+        //when
+        assertTrue(admission.cancel(false));
+
+        //then
+        assertThrows(CancellationException.class, admission::join);
+        taskManager.kill(byPID(1));
+        assertFalse(process.hasStarted());
+        assertTrue(taskManager.listProcesses(BY_PID).isEmpty());
+    }
+
+    @Test
+    public void testFullWaitQueueKeepsHighestPriorities() {
+        //given
+        var taskManager = new TaskManager(new DefaultReplacementStrategy(), 1, increasingClock());
+        taskManager.addProcess(newProcess(1));
+        var low = taskManager.addProcessAsync(newProcess(2, 1));
+
+        //when
+        var high = taskManager.addProcessAsync(newProcess(3, 3));
+        var middle = taskManager.addProcessAsync(newProcess(4, 2));
+
+        //then
+        assertEquals(REJECTED, low.join().getStatus());
+        assertEquals(REJECTED, middle.join().getStatus());
+        assertFalse(high.isDone());
+        taskManager.kill(byPID(1));
+        assertEquals(ADMITTED, high.join().getStatus());
+    }
+
+    @Test
+    public void testHeavyProcessReplacesSeveralProcesses() {
+        //given
+        var taskManager = new TaskManager(new FifoReplacementStrategy(), 10, increasingClock());
+        rangeClosed(1, 5).forEach(pid -> taskManager.addProcess(newWeightedProcess(pid, 1, 2)));
+
+        //when
+        var result = taskManager.tryAddProcess(newWeightedProcess(6, 1, 5));
+
+        //then
+        assertEquals(REPLACED, result.getStatus());
+        assertEquals(asList(1, 2, 3), result.getReplacedPids());
+        assertEquals(asList(4, 5, 6), taskManager.listProcesses(BY_PID).stream().map(Process::getPid).collect(toList()));
+        assertEquals(9, taskManager.getMetrics().getUsed());
+        assertEquals(3, taskManager.getMetrics().getLive());
+    }
+
+    @Test
+    public void testHeavyProcessIsRejectedWithoutEnoughWeightToReplace() {
+        //given
+        var taskManager = new TaskManager(new PrioBasedReplacementStrategy(), 10, increasingClock());
+        taskManager.addProcess(newWeightedProcess(1, 1, 4));
+        taskManager.addProcess(newWeightedProcess(2, 9, 6));
+
+        //when
+        assertThrows(CapacityFullException.class, () -> {
+            taskManager.addProcess(newWeightedProcess(3, 5, 6));
+        });
+
+        //then
+        assertEquals(asList(1, 2), taskManager.listProcesses(BY_PID).stream().map(Process::getPid).collect(toList()));
+        assertEquals(10, taskManager.getMetrics().getUsed());
+    }
+
+    @Test
+    public void testProcessHeavierThanCapacityIsInvalid() {
+        //given
+        var taskManager = new TaskManager(new FifoReplacementStrategy(), 10, increasingClock());
+
+        //when
+        assertThrows(IllegalArgumentException.class, () -> {
+            taskManager.addProcess(newWeightedProcess(1, 1, 11));
+        });
+    }
+
+    @Test
+    public void testWeightedBatchNeverReplacesItself() {
+        //given
+        var taskManager = new TaskManager(new FifoReplacementStrategy(), 4, increasingClock());
+        taskManager.addProcess(newWeightedProcess(1, 1, 2));
+        taskManager.addProcess(newWeightedProcess(2, 1, 2));
+
+        //when
+        var results = taskManager.addProcesses(asList(newWeightedProcess(3, 1, 2), newWeightedProcess(4, 1, 3)));
+
+        //then
+        assertEquals(REPLACED, results.get(0).getStatus());
+        assertEquals(asList(1), results.get(0).getReplacedPids());
+        assertEquals(REJECTED, results.get(1).getStatus());
+        assertEquals(asList(2, 3), taskManager.listProcesses(BY_PID).stream().map(Process::getPid).collect(toList()));
+        assertEquals(4, taskManager.getMetrics().getUsed());
+    }
+
+    @Test
+    public void testWeightsAreRestoredFromJournal(@TempDir Path directory) throws IOException {
+        //given
+        var file = directory.resolve("journal");
+        try (var journal = Journal.open(file)) {
+            var taskManager = new TaskManager(new FifoReplacementStrategy(), 10, increasingClock(), journal);
+            taskManager.addProcess(newWeightedProcess(1, 1, 3));
+            taskManager.addProcess(newWeightedProcess(2, 1, 6));
+        }
+
+        //when
+        try (var journal = Journal.open(file)) {
+            var restored = new TaskManager(new FifoReplacementStrategy(), 10, increasingClock(), journal);
+
+            //then
+            assertEquals(9, restored.getMetrics().getUsed());
+            assertEquals(REPLACED, restored.tryAddProcess(newWeightedProcess(3, 1, 2)).getStatus());
+            assertEquals(asList(2, 3), restored.listProcesses(BY_PID).stream().map(Process::getPid).collect(toList()));
+        }
+    }
+
+    @Test
+    public void testGrownCapacityIsRestoredFromJournal(@TempDir Path directory) throws IOException {
+        //given
+        var file = directory.resolve("journal");
+        try (var journal = Journal.open(file, 4)) {
+            var taskManager = new TaskManager(new FifoReplacementStrategy(), 10, increasingClock(), journal);
+            taskManager.setCapacity(100);
+            for (int pid = 1; pid <= 20; pid++) {
+                taskManager.addProcess(newProcess(pid));
+            }
+        }
+
+        //when
+        try (var journal = Journal.open(file)) {
+            var restored = new TaskManager(new FifoReplacementStrategy(), 10, increasingClock(), journal);
+
+            //then
+            assertEquals(100, restored.getMetrics().getCapacity());
+            assertEquals(20, restored.listProcesses(BY_PID).size());
+            assertEquals(ADMITTED, restored.tryAddProcess(newProcess(21)).getStatus());
+        }
+    }
+
+    @Test
+    public void testWeightBeyondJournalIsRejectedBeforeReplacing(@TempDir Path directory) throws IOException {
+        //given
+        try (var journal = Journal.open(directory.resolve("journal"))) {
+            var taskManager = new TaskManager(new FifoReplacementStrategy(), Journal.MAX_WEIGHT + 1, increasingClock(),
+                    journal);
+            taskManager.addProcess(newWeightedProcess(1, 1, Journal.MAX_WEIGHT));
+            var heavy = newWeightedProcess(2, 1, Journal.MAX_WEIGHT + 1);
+
+            //when
+            assertThrows(IllegalArgumentException.class, () -> taskManager.addProcess(heavy));
+            var results = taskManager.addProcesses(asList(heavy));
+
+            //then
+            assertEquals(REJECTED, results.get(0).getStatus());
+            assertFalse(heavy.hasStarted());
+            assertEquals(asList(1), taskManager.listProcesses(BY_PID).stream().map(Process::getPid).collect(toList()));
+        }
+    }
+
+    @Test
+    public void testKillReservesJournalForAdmittedWaiters(@TempDir Path directory) throws Exception {
+        //given
+        try (var journal = Journal.open(directory.resolve("journal"), 4)) {
+            var taskManager = new TaskManager(new DefaultReplacementStrategy(), 4, increasingClock(), journal);
+            taskManager.addProcess(newWeightedProcess(1, 1, 4));
+            var waiting = new ArrayList<CompletableFuture<AdmissionResult>>();
+            for (int pid = 2; pid <= 4; pid++) {
+                waiting.add(taskManager.addProcessAsync(newProcess(pid)));
+            }
+
+            //when
+            taskManager.kill(byPID(1));
+
+            //then
+            for (var admission : waiting) {
+                assertEquals(ADMITTED, admission.get(1, SECONDS).getStatus());
+            }
+            assertEquals(asList(2, 3, 4), journal.replay().stream().map(record -> record.getPid()).sorted().collect(toList()));
+        }
+    }
+
+    @Test
+    public void testFinishReservesJournalForAdmittedWaiters(@TempDir Path directory) throws Exception {
+        //given
+        try (var journal = Journal.open(directory.resolve("journal"), 4)) {
+            var taskManager = new TaskManager(new DefaultReplacementStrategy(), 4, increasingClock(), journal);
+            var release = new CountDownLatch(1);
+            taskManager.addProcess(Process.builder().pid(1).priority(1).weight(4).task(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }).build());
+            var waiting = new ArrayList<CompletableFuture<AdmissionResult>>();
+            for (int pid = 2; pid <= 4; pid++) {
+                waiting.add(taskManager.addProcessAsync(newProcess(pid)));
+            }
+
+            //when
+            release.countDown();
+
+            //then
+            for (var admission : waiting) {
+                assertEquals(ADMITTED, admission.get(1, SECONDS).getStatus());
+            }
+            assertEquals(asList(2, 3, 4), journal.replay().stream().map(record -> record.getPid()).sorted().collect(toList()));
+        }
+    }
+
+    @Test
+    public void testWeightsAreRestoredFromSnapshot(@TempDir Path directory) throws IOException {
+        //given
+        var file = directory.resolve("snapshot");
+        var taskManager = new TaskManager(new FifoReplacementStrategy(), 10, increasingClock());
+        taskManager.addProcess(newWeightedProcess(1, 1, 3));
+        taskManager.addProcess(newWeightedProcess(2, 1, 6));
+
+        //when
+        taskManager.snapshot(file);
+        var restored = TaskManager.restore(file, new FifoReplacementStrategy());
+
+        //then
+        assertEquals(9, restored.getMetrics().getUsed());
+        assertEquals(asList(3, 6), restored.listProcesses(BY_PID).stream().map(Process::getWeight).collect(toList()));
+    }
+
+    @Test
+    public void testProcessExpiresAfterTtl() {
+        //given
+        var clock = new ManualClock();
+        var taskManager = new TaskManager(new FifoReplacementStrategy(), 3, clock);
+        var expiring = Process.builder().pid(1).priority(1).ttl(Duration.ofSeconds(10)).build();
+        taskManager.addProcess(expiring);
+        taskManager.addProcess(newProcess(2));
+
+        //when
+        clock.advance(Duration.ofSeconds(9));
+        var beforeTtl = taskManager.listProcesses(BY_PID);
+        clock.advance(Duration.ofSeconds(1));
+        var afterTtl = taskManager.listProcesses(BY_PID);
+
+        //then
+        assertEquals(asList(1, 2), beforeTtl.stream().map(Process::getPid).collect(toList()));
+        assertEquals(asList(2), afterTtl.stream().map(Process::getPid).collect(toList()));
+        assertTrue(expiring.isFinished());
+        assertEquals(Map.of("expired", 1L), taskManager.getMetrics().getKillsBySelector());
+    }
+
+    @Test
+    public void testTtlSurvivesRestartFromJournal(@TempDir Path directory) throws IOException {
+        //given
+        var clock = new ManualClock();
+        var file = directory.resolve("journal");
+        try (var journal = Journal.open(file)) {
+            var taskManager = new TaskManager(new FifoReplacementStrategy(), 3, clock, journal);
+            taskManager.addProcess(Process.builder().pid(1).priority(1).ttl(Duration.ofSeconds(10)).build());
+            taskManager.addProcess(newProcess(2));
+        }
+
+        //when
+        clock.advance(Duration.ofSeconds(9));
+        try (var journal = Journal.open(file)) {
+            var restored = new TaskManager(new FifoReplacementStrategy(), 3, clock, journal);
+            var beforeTtl = restored.listProcesses(BY_PID);
+            clock.advance(Duration.ofSeconds(1));
+            var afterTtl = restored.listProcesses(BY_PID);
+
+            //then
+            assertEquals(asList(1, 2), beforeTtl.stream().map(Process::getPid).collect(toList()));
+            assertEquals(asList(2), afterTtl.stream().map(Process::getPid).collect(toList()));
+        }
+    }
+
+    @Test
+    public void testExpiryReservesJournalForAdmittedWaiters(@TempDir Path directory) throws Exception {
+        //given
+        var clock = new ManualClock();
+        try (var journal = Journal.open(directory.resolve("journal"), 4)) {
+            var taskManager = new TaskManager(new DefaultReplacementStrategy(), 2, clock, journal);
+            taskManager.addProcess(Process.builder().pid(1).priority(1).ttl(Duration.ofSeconds(10)).build());
+            taskManager.addProcess(Process.builder().pid(2).priority(1).ttl(Duration.ofSeconds(10)).build());
+            var first = taskManager.addProcessAsync(newProcess(3));
+            var second = taskManager.addProcessAsync(newProcess(4));
+
+            //when
+            clock.advance(Duration.ofSeconds(10));
+            var expired = taskManager.expireProcesses();
+
+            //then
+            assertEquals(asList(1, 2), expired.stream().sorted().collect(toList()));
+            assertEquals(ADMITTED, first.get(1, SECONDS).getStatus());
+            assertEquals(ADMITTED, second.get(1, SECONDS).getStatus());
+            assertEquals(asList(3, 4), journal.replay().stream().map(record -> record.getPid()).sorted().collect(toList()));
+        }
+    }
+
+    @Test
+    public void testDeadlineSurvivesRestoreFromSnapshot(@TempDir Path directory) throws IOException {
+        //given
+        var clock = new ManualClock();
+        var file = directory.resolve("snapshot");
+        var taskManager = new TaskManager(new FifoReplacementStrategy(), 3, clock);
+        var deadline = clock.instant().plusSeconds(10);
+        taskManager.addProcess(Process.builder().pid(1).priority(1).deadline(deadline).build());
+        taskManager.addProcess(newProcess(2));
+        taskManager.snapshot(file);
+
+        //when
+        var restored = TaskManager.restore(Snapshot.read(file), new FifoReplacementStrategy(), clock);
+        var beforeDeadline = restored.listProcesses(BY_PID);
+        clock.advance(Duration.ofSeconds(10));
+        var afterDeadline = restored.listProcesses(BY_PID);
+
+        //then
+        assertEquals(deadline.toEpochMilli(), beforeDeadline.get(0).getExpiresAt());
+        assertEquals(asList(2), afterDeadline.stream().map(Process::getPid).collect(toList()));
+        assertEquals(Map.of("expired", 1L), restored.getMetrics().getKillsBySelector());
+    }
+
+    @Test
+    public void testExpiredProcessesAreKilledInOneBatch() {
+        //given
+        var clock = new ManualClock();
+        var taskManager = new TaskManager(new FifoReplacementStrategy(), 10, clock);
+        var deadline = clock.instant().plusSeconds(60);
+        taskManager.addProcess(Process.builder().pid(1).priority(1).deadline(deadline).build());
+        taskManager.addProcess(Process.builder().pid(2).priority(1).ttl(Duration.ofSeconds(30)).build());
+        // the deadline comes before the end of the ttl
+        taskManager.addProcess(Process.builder().pid(3).priority(1).ttl(Duration.ofHours(1)).deadline(deadline).build());
+        taskManager.addProcess(Process.builder().pid(4).priority(1).ttl(Duration.ofSeconds(90)).build());
+
+        //when
+        clock.advance(Duration.ofMinutes(1));
+        var expired = taskManager.expireProcesses();
+
+        //then
+        assertEquals(asList(1, 2, 3), expired.stream().sorted().collect(toList()));
+        assertEquals(asList(4), taskManager.listProcesses(BY_PID).stream().map(Process::getPid).collect(toList()));
+        assertEquals(List.of(), taskManager.expireProcesses());
+    }
+
+    @Test
+    public void testKilledProcessNoLongerExpires() {
+        //given
+        var clock = new ManualClock();
+        var taskManager = new TaskManager(new FifoReplacementStrategy(), 3, clock);
+        taskManager.addProcess(Process.builder().pid(1).priority(1).ttl(Duration.ofSeconds(10)).build());
+        taskManager.kill(byPID(1));
+        var successor = newProcess(1);
+        taskManager.addProcess(successor);
+
+        //when
+        clock.advance(Duration.ofSeconds(10));
+        var expired = taskManager.expireProcesses();
+
+        //then
+        assertEquals(List.of(), expired);
+        assertFalse(successor.isFinished());
+    }
+
+    @Test
+    public void testExpiryAdmitsWaitingProcess() throws Exception {
+        //given
+        var clock = new ManualClock();
+        var taskManager = new TaskManager(new DefaultReplacementStrategy(), 1, clock);
+        taskManager.addProcess(Process.builder().pid(1).priority(1).ttl(Duration.ofSeconds(5)).build());
+        var admission = taskManager.addProcessAsync(newProcess(2));
+
+        //when
+        clock.advance(Duration.ofSeconds(5));
+        taskManager.expireProcesses();
+
+        //then
+        assertEquals(ADMITTED, admission.get(1, SECONDS).getStatus());
+        assertEquals(asList(2), taskManager.listProcesses(BY_PID).stream().map(Process::getPid).collect(toList()));
+    }
+
+    @Test
+    public void testNonPositiveTtlIsInvalid() {
+        //given
+        var taskManager = newTaskManager();
+        var process = Process.builder().pid(1).priority(1).ttl(Duration.ZERO).build();
+
+        //when
+        //then
+        assertThrows(IllegalArgumentException.class, () -> taskManager.addProcess(process));
+        assertEquals(REJECTED, taskManager.addProcesses(List.of(process)).get(0).getStatus());
+    }
+
+    @Test
+    public void testViewIsImmutableSnapshot() {
+        //given
+        var taskManager = newFifoTaskManager();
+        taskManager.addProcess(newProcess(2, 1));
+        taskManager.addProcess(newProcess(1, 3));
+        var view = taskManager.view();
+
+        //when
+        taskManager.addProcess(newProcess(3, 2));
+        taskManager.kill(byPID(1));
+        var later = taskManager.view();
+
+        //then
+        assertEquals(asList(1, 2), view.listProcesses(BY_PID).stream().map(Process::getPid).collect(toList()));
+        assertEquals(asList(2, 3), later.listProcesses(BY_PID).stream().map(Process::getPid).collect(toList()));
+        assertEquals(asList(2, 3), later.listProcesses(BY_PRIORITY).stream().map(Process::getPid).collect(toList()));
+        assertEquals(asList(3), later.listProcesses(BY_TIME_STARTED, 1, 5).stream().map(Process::getPid).collect(toList()));
+        assertEquals(view.getVersion() + 2, later.getVersion());
+    }
+
+    @Test
+    public void testViewShowsOperationsAsAWhole() {
+        //given
+        var taskManager = new TaskManager(new FifoReplacementStrategy(), 10, increasingClock());
+        var version = taskManager.view().getVersion();
+
+        //when
+        taskManager.addProcesses(rangeClosed(1, 6).mapToObj(pid -> newProcess(pid, 1)).collect(toList()));
+        var added = taskManager.view();
+        taskManager.kill(byPriority(1));
+        var killed = taskManager.view();
+        taskManager.kill(byPID(42));
+
+        //then
+        assertEquals(version + 1, added.getVersion());
+        assertEquals(6, added.size());
+        assertEquals(version + 2, killed.getVersion());
+        assertEquals(0, killed.size());
+        // nothing has been killed, so there is no new version
+        assertSame(killed, taskManager.view());
+    }
+
+    @Test
+    public void testViewIsReadWhileProcessesChange() throws Exception {
+        //given
+        var taskManager = new TaskManager(new FifoReplacementStrategy(), 100, increasingClock());
+        taskManager.view();
+        var reader = Executors.newSingleThreadExecutor();
+
+        //when
+        var reading = reader.submit(() -> {
+            long lastVersion = -1;
+            while (lastVersion < 1000) {
+                var view = taskManager.view();
+                var pids = view.listProcesses(BY_PID).stream().map(Process::getPid).collect(toList());
+                assertTrue(view.getVersion() >= lastVersion);
+                assertEquals(view.size(), pids.size());
+                assertEquals(pids.stream().sorted().collect(toList()), pids);
+                assertTrue(pids.size() <= 100);
+                lastVersion = view.getVersion();
+            }
+            return null;
+        });
+        for (int pid = 0; pid < 1000; pid++) {
+            taskManager.addProcess(newProcess(pid));
+        }
+
+        //then
+        reading.get(10, SECONDS);
+        reader.shutdown();
+        assertEquals(100, taskManager.view().size());
+    }
+
+    @Test
+    public void testKillAndListByQuery() {
+        //given
+        var clock = new ManualClock();
+        var taskManager = new TaskManager(new FifoReplacementStrategy(), 10, clock);
+        for (int pid = 1; pid <= 6; pid++) {
+            taskManager.addProcess(newProcess(pid, pid));
+            clock.advance(Duration.ofSeconds(1));
+        }
+        var query = Selectors.and(byPriorityRange(Integer.MIN_VALUE, 4),
+                Selectors.startedBefore(clock.instant().minusSeconds(3)));
+
+        //when
+        var listed = taskManager.listProcesses(BY_PRIORITY, query);
+        var killed = taskManager.kill(query);
+
+        //then
+        assertEquals(asList(1, 2, 3), listed.stream().map(Process::getPid).collect(toList()));
+        assertEquals(asList(1, 2, 3), killed.stream().sorted().collect(toList()));
+        assertEquals(asList(6, 5), taskManager.listProcesses(BY_PID, Selectors.not(byPriority(4)), 0, 5).stream()
+                .map(Process::getPid).sorted(Collections.reverseOrder()).collect(toList()));
+        assertEquals(Map.of("query", 3L), taskManager.getMetrics().getKillsBySelector());
+    }
+
+    @Test
+    public void testGrowingCapacityAdmitsWaitingProcesses() throws Exception {
+        //given
+        var taskManager = new TaskManager(new DefaultReplacementStrategy(), 2, increasingClock());
+        taskManager.addProcess(newProcess(1));
+        taskManager.addProcess(newProcess(2));
+        var waiting = taskManager.addProcessAsync(newProcess(3));
+
+        //when
+        var evicted = taskManager.setCapacity(1_000);
+        for (int pid = 4; pid <= 1_000; pid++) {
+            taskManager.addProcess(newProcess(pid));
+        }
+
+        //then
+        assertTrue(evicted.isEmpty());
+        assertEquals(ADMITTED, waiting.get(0, SECONDS).getStatus());
+        assertEquals(1_000, taskManager.listProcesses(BY_PID).size());
+        assertEquals(1_000, taskManager.getCapacity());
+    }
+
+    @Test
+    public void testShrinkingCapacityEvictsSurplusInOneBatch() {
+        //given
+        var taskManager = new TaskManager(new PrioBasedReplacementStrategy(), 10, increasingClock());
+        for (int pid = 1; pid <= 6; pid++) {
+            taskManager.addProcess(newProcess(pid, 7 - pid));
+        }
+
+        //when
+        var evicted = taskManager.setCapacity(3);
+
+        //then
+        assertEquals(asList(6, 5, 4), evicted);
+        assertEquals(asList(1, 2, 3), taskManager.listProcesses(BY_PID).stream().map(Process::getPid).collect(toList()));
+        assertEquals(3, taskManager.getMetrics().getEvictions());
+        assertEquals(3, taskManager.getCapacity());
+    }
+
+    @Test
+    public void testCapacityChangesAreCounted() throws Exception {
+        //given
+        var taskManager = new TaskManager(new PrioBasedReplacementStrategy(), 4, increasingClock());
+        for (int pid = 1; pid <= 4; pid++) {
+            taskManager.addProcess(newProcess(pid, 5 - pid));
+        }
+
+        //when
+        taskManager.setCapacity(2);
+        var waiting = taskManager.addProcessAsync(newProcess(5, 1));
+        taskManager.setCapacity(3);
+
+        //then
+        assertEquals(ADMITTED, waiting.get(0, SECONDS).getStatus());
+        var metrics = taskManager.getMetrics().snapshot();
+        assertEquals(Map.of("capacity", 2L), metrics.getKillsBySelector());
+        assertEquals(2, metrics.getKills());
+        assertEquals(2, metrics.getEvictions());
+        assertEquals(5, metrics.getAdmissions());
+        assertEquals(3, metrics.getLive());
+    }
+
+    @Test
+    public void testCapacityIsNotShrunkIfStrategyEvictsNothing() {
+        //given
+        var taskManager = new TaskManager(new DefaultReplacementStrategy(), 5, increasingClock());
+        for (int pid = 1; pid <= 3; pid++) {
+            taskManager.addProcess(newProcess(pid));
+        }
+
+        //when
+        assertThrows(IllegalStateException.class, () -> taskManager.setCapacity(2));
+        var evicted = taskManager.setCapacity(3);
+
+        //then
+        assertTrue(evicted.isEmpty());
+        assertEquals(3, taskManager.getCapacity());
+        assertEquals(3, taskManager.listProcesses(BY_PID).size());
+        assertThrows(CapacityFullException.class, () -> taskManager.addProcess(newProcess(4)));
+    }
+
+    private static Process newWeightedProcess(int pid, int priority, int weight) {
+        return Process.builder().pid(pid).priority(priority).weight(weight).build();
+    }
+
+    private TaskManager newTaskManager() {
+        return new TaskManager(new DefaultReplacementStrategy(), CAPACITY, increasingClock());
+    }
+
+    private TaskManager newFifoTaskManager() {
+        return new TaskManager(new FifoReplacementStrategy(), CAPACITY, increasingClock());
+    }
+
+    /**
+     * A clock that only moves when told to.
+     */
+    private static class ManualClock extends Clock {
+
+        private Instant instant = Instant.ofEpochSecond(1_000_000);
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneId.systemDefault();
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
     }
 
     /**
@@ -0,0 +1,130 @@
+package com.iptiq.taskmanager;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static java.util.Arrays.asList;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TimingWheelTest {
+
+    @Test
+    public void testValuesAreDueAtTheirDeadline() {
+        //given
+        var wheel = new TimingWheel<String>(1000);
+        wheel.schedule(1070, "b");
+        wheel.schedule(1005, "a");
+        wheel.schedule(1_000_000, "c");
+
+        //when
+        var early = wheel.advance(1004);
+        var first = wheel.advance(1100);
+        var second = wheel.advance(999_999);
+        var third = wheel.advance(1_000_000);
+
+        //then
+        assertEquals(List.of(), early);
+        assertEquals(asList("a", "b"), first);
+        assertEquals(List.of(), second);
+        assertEquals(List.of("c"), third);
+        assertTrue(wheel.isEmpty());
+    }
+
+    @Test
+    public void testPastDeadlineIsDueOnNextAdvance() {
+        //given
+        var wheel = new TimingWheel<String>(500);
+        wheel.advance(1000);
+
+        //when
+        wheel.schedule(10, "late");
+
+        //then
+        assertEquals(List.of("late"), wheel.advance(1000));
+    }
+
+    @Test
+    public void testCancelledTimeoutIsNeverDue() {
+        //given
+        var wheel = new TimingWheel<String>(0);
+        var cancelled = wheel.schedule(100_000, "cancelled");
+        wheel.schedule(100_000, "kept");
+
+        //when
+        boolean first = cancelled.cancel();
+        boolean second = cancelled.cancel();
+
+        //then
+        assertTrue(first);
+        assertFalse(second);
+        assertEquals(1, wheel.size());
+        assertEquals(List.of("kept"), wheel.advance(Long.MAX_VALUE - 1));
+    }
+
+    @Test
+    public void testIdleTimeIsSkipped() {
+        //given
+        var wheel = new TimingWheel<Integer>(System.currentTimeMillis());
+        long year = 365L * 24 * 3600 * 1000;
+        wheel.schedule(System.currentTimeMillis() + 100 * year, 1);
+
+        //when
+        long start = System.nanoTime();
+        var due = wheel.advance(System.currentTimeMillis() + 200 * year);
+        long elapsed = System.nanoTime() - start;
+
+        //then
+        assertEquals(List.of(1), due);
+        // stepping through each millisecond would take hours
+        assertTrue(elapsed < 1_000_000_000L);
+    }
+
+    @Test
+    public void testBehavesLikeSortedMapUnderRandomOperations() {
+        //given
+        var random = new Random(11);
+        var wheel = new TimingWheel<Integer>(0);
+        var expected = new TreeMap<Long, List<Integer>>();
+        var timeouts = new ArrayList<TimingWheel.Timeout<Integer>>();
+        var keys = new HashMap<TimingWheel.Timeout<Integer>, Long>();
+        long now = 0;
+
+        //when
+        for (int i = 0; i < 100_000; i++) {
+            int operation = random.nextInt(10);
+            if (operation < 5) {
+                // deadlines from the past up to far beyond the lowest levels
+                long deadline = now - 10 + (long) (Math.pow(random.nextDouble(), 4) * (1L << 30));
+                var timeout = wheel.schedule(deadline, i);
+                timeouts.add(timeout);
+                keys.put(timeout, Math.max(deadline, now));
+                expected.computeIfAbsent(Math.max(deadline, now), d -> new ArrayList<>()).add(i);
+            } else if (operation < 7 && !timeouts.isEmpty()) {
+                var timeout = timeouts.remove(random.nextInt(timeouts.size()));
+                if (timeout.cancel()) {
+                    expected.get(keys.get(timeout)).remove(timeout.getValue());
+                }
+            } else {
+                now += random.nextInt(1 << random.nextInt(24));
+                var due = new ArrayList<Integer>();
+                for (var values : expected.headMap(now, true).values()) {
+                    due.addAll(values);
+                }
+                expected.headMap(now, true).clear();
+
+                var actual = wheel.advance(now);
+                actual.sort(null);
+                due.sort(null);
+                assertEquals(due, actual);
+            }
+        }
+
+        //then
+        assertEquals(expected.values().stream().mapToInt(List::size).sum(), wheel.size());
+    }
+}
@@ -0,0 +1,168 @@
+package com.iptiq.taskmanager.event;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static com.iptiq.taskmanager.ProcessTestFactory.newProcess;
+import static com.iptiq.taskmanager.event.ProcessEvent.Type.KILLED;
+import static com.iptiq.taskmanager.event.ProcessEvent.Type.STARTED;
+import static java.util.Arrays.asList;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EventPipelineTest {
+
+    private final Clock clock = Clock.systemUTC();
+
+    @Test
+    public void testEventsAreDeliveredInOrder() {
+        //given
+        var pipeline = new EventPipeline(16);
+        var pids = Collections.synchronizedList(new ArrayList<Integer>());
+        var batchEnds = new AtomicInteger();
+        pipeline.addListener((event, endOfBatch) -> {
+            pids.add(event.getPid());
+            if (endOfBatch) {
+                batchEnds.incrementAndGet();
+            }
+        });
+
+        //when
+        for (int pid = 0; pid < 100; pid++) {
+            assertTrue(pipeline.publish(STARTED, newProcess(pid), clock));
+            if (pid % 10 == 9) {
+                pipeline.flush();
+            }
+        }
+        pipeline.close();
+
+        //then
+        var expected = new ArrayList<Integer>();
+        for (int pid = 0; pid < 100; pid++) {
+            expected.add(pid);
+        }
+        assertEquals(expected, pids);
+        assertTrue(batchEnds.get() >= 10);
+        assertEquals(0, pipeline.getDroppedCount());
+    }
+
+    @Test
+    public void testEventsAreDroppedWhenBufferIsFull() throws InterruptedException {
+        //given
+        var pipeline = new EventPipeline(4);
+        var blocked = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var delivered = new AtomicInteger();
+        pipeline.addListener((event, endOfBatch) -> {
+            blocked.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            delivered.incrementAndGet();
+        });
+
+        //when
+        pipeline.publish(STARTED, newProcess(0), clock);
+        blocked.await();
+        var published = new ArrayList<Boolean>();
+        for (int pid = 1; pid <= 6; pid++) {
+            published.add(pipeline.publish(STARTED, newProcess(pid), clock));
+        }
+        release.countDown();
+        pipeline.close();
+
+        //then
+        // the first event is held by the blocked listener, thus only three more fit into the buffer
+        assertEquals(asList(true, true, true, false, false, false), published);
+        assertEquals(3, pipeline.getDroppedCount());
+        assertEquals(4, delivered.get());
+    }
+
+    @Test
+    public void testConcurrentPublishersLoseNoEvents() throws InterruptedException {
+        //given
+        int threads = 4;
+        int eventsPerThread = 10_000;
+        var pipeline = new EventPipeline(1 << 16);
+        var seen = new AtomicIntegerArray(threads * eventsPerThread);
+        pipeline.addListener((event, endOfBatch) -> seen.incrementAndGet(event.getPid()));
+
+        //when
+        List<Thread> publishers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int firstPid = t * eventsPerThread;
+            var thread = new Thread(() -> {
+                for (int pid = firstPid; pid < firstPid + eventsPerThread; pid++) {
+                    pipeline.publish(KILLED, newProcess(pid), clock);
+                }
+            });
+            thread.start();
+            publishers.add(thread);
+        }
+        for (var thread : publishers) {
+            thread.join();
+        }
+        pipeline.close();
+
+        //then
+        assertEquals(0, pipeline.getDroppedCount());
+        for (int pid = 0; pid < threads * eventsPerThread; pid++) {
+            assertEquals(1, seen.get(pid));
+        }
+    }
+
+    @Test
+    public void testEventsAreDeliveredAfterConsumerHasGoneIdle() throws InterruptedException {
+        //given
+        var pipeline = new EventPipeline(16);
+        var pids = Collections.synchronizedList(new ArrayList<Integer>());
+        pipeline.addListener((event, endOfBatch) -> pids.add(event.getPid()));
+        pipeline.publish(STARTED, newProcess(1), clock);
+        pipeline.flush();
+
+        //when
+        // long enough for the consumer thread to stop
+        Thread.sleep(1_500);
+        pipeline.publish(KILLED, newProcess(1), clock);
+        pipeline.flush();
+
+        //then
+        assertEquals(asList(1, 1), pids);
+        pipeline.close();
+    }
+
+    @Test
+    public void testNothingIsPublishedWithoutListeners() {
+        //given
+        var pipeline = new EventPipeline(1);
+
+        //when
+        for (int pid = 0; pid < 10; pid++) {
+            assertTrue(pipeline.publish(STARTED, newProcess(pid), clock));
+        }
+
+        //then
+        assertEquals(0, pipeline.getDroppedCount());
+    }
+
+    @Test
+    public void testBufferIsSizedFromCapacity() {
+        //when
+        var small = EventPipeline.forCapacity(3);
+        var medium = EventPipeline.forCapacity(100);
+        var large = EventPipeline.forCapacity(1_000_000);
+
+        //then
+        assertEquals(EventPipeline.MIN_BUFFER_SIZE, small.getBufferSize());
+        assertEquals(512, medium.getBufferSize());
+        assertEquals(EventPipeline.DEFAULT_BUFFER_SIZE, large.getBufferSize());
+    }
+}
@@ -0,0 +1,144 @@
+package com.iptiq.taskmanager.federation;
+
+import com.iptiq.taskmanager.CapacityFullException;
+import com.iptiq.taskmanager.TaskManager;
+import com.iptiq.taskmanager.replacement.DefaultReplacementStrategy;
+import com.iptiq.taskmanager.replacement.PrioBasedReplacementStrategy;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.iptiq.taskmanager.ListOrder.BY_PID;
+import static com.iptiq.taskmanager.ProcessTestFactory.newProcess;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.IntStream.rangeClosed;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FederationNodeTest {
+
+    private static final int CAPACITY = 10;
+
+    private final Transport transport = new LoopbackTransport();
+
+    @Test
+    public void testProcessIsPlacedLocallyWhileThereIsCapacity() {
+        //given
+        var a = defaultNode("a");
+        defaultNode("b");
+
+        //when
+        var placedOn = a.addProcess(newProcess(1));
+
+        //then
+        assertEquals("a", placedOn);
+        assertEquals(List.of(1), pids(a));
+    }
+
+    @Test
+    public void testFullNodePlacesProcessOnLeastLoadedPeer() {
+        //given
+        var a = defaultNode("a");
+        var b = defaultNode("b");
+        var c = defaultNode("c");
+        fill(a, 1, CAPACITY, 1);
+        fill(b, 101, 105, 1);
+        fill(c, 201, 203, 1);
+
+        //when
+        var placedOn = a.addProcess(newProcess(1000));
+
+        //then
+        assertEquals("c", placedOn);
+        assertTrue(pids(c).contains(1000));
+        assertEquals(CAPACITY, pids(a).size());
+        assertEquals(5, pids(b).size());
+    }
+
+    @Test
+    public void testFullFederationReplacesBestVictim() {
+        //given
+        var a = prioNode("a");
+        var b = prioNode("b");
+        var c = prioNode("c");
+        fill(a, 1, CAPACITY, 3);
+        fill(b, 101, 100 + CAPACITY, 1);
+        fill(c, 201, 200 + CAPACITY, 2);
+
+        //when
+        var placedOn = c.addProcess(newProcess(1000, 5));
+
+        //then
+        assertEquals("b", placedOn);
+        assertTrue(pids(b).contains(1000));
+        assertFalse(pids(b).contains(101));
+        assertEquals(CAPACITY, pids(a).size());
+        assertEquals(CAPACITY, pids(c).size());
+    }
+
+    @Test
+    public void testFullFederationWithoutVictimRejects() {
+        //given
+        var a = defaultNode("a");
+        var b = defaultNode("b");
+        fill(a, 1, CAPACITY, 1);
+        fill(b, 101, 100 + CAPACITY, 1);
+
+        //when
+        assertThrows(CapacityFullException.class, () -> {
+            a.addProcess(newProcess(1000));
+        });
+
+        //then
+        assertFalse(pids(a).contains(1000));
+        assertFalse(pids(b).contains(1000));
+    }
+
+    @Test
+    public void testUnavailablePeerIsLeftOut() {
+        //given
+        var a = defaultNode("a");
+        var b = defaultNode("b");
+        var c = defaultNode("c");
+        fill(a, 1, CAPACITY, 1);
+        fill(c, 201, 205, 1);
+        transport.register("d", new NodeHandler() {
+            @Override
+            public NodeSummary summarize(int pid, int priority, int weight) {
+                throw new NodeUnavailableException("d is down");
+            }
+
+            @Override
+            public void admit(int pid, int priority, int weight) {
+                throw new NodeUnavailableException("d is down");
+            }
+        });
+        b.close();
+
+        //when
+        var placedOn = a.addProcess(newProcess(1000));
+
+        //then
+        assertEquals("c", placedOn);
+        assertEquals(List.of("a", "c", "d"), transport.peers("x"));
+    }
+
+    private FederationNode defaultNode(String nodeId) {
+        return FederationNode.join(nodeId, new TaskManager(new DefaultReplacementStrategy()),
+                new DefaultReplacementStrategy(), transport);
+    }
+
+    private FederationNode prioNode(String nodeId) {
+        return FederationNode.join(nodeId, new TaskManager(new PrioBasedReplacementStrategy()),
+                new PrioBasedReplacementStrategy(), transport);
+    }
+
+    private static void fill(FederationNode node, int fromPid, int toPid, int priority) {
+        rangeClosed(fromPid, toPid).forEach(pid -> node.getTaskManager().addProcess(newProcess(pid, priority)));
+    }
+
+    private static List<Integer> pids(FederationNode node) {
+        return node.getTaskManager().listProcesses(BY_PID).stream()
+                .map(process -> process.getPid())
+                .collect(toList());
+    }
+}
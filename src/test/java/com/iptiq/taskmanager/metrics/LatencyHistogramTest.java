@@ -0,0 +1,112 @@
+package com.iptiq.taskmanager.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testEmptyHistogram() {
+        //given
+        var histogram = new LatencyHistogram();
+
+        //when
+        var snapshot = histogram.snapshot();
+
+        //then
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0, snapshot.getValueAtPercentile(99));
+        assertEquals(0, snapshot.getMean());
+    }
+
+    @Test
+    public void testBucketsCoverEveryValue() {
+        for (long value = 0; value < 100_000; value++) {
+            int bucket = LatencyHistogram.bucket(value);
+            assertTrue(value <= LatencyHistogram.highestValue(bucket));
+            assertTrue(bucket == 0 || LatencyHistogram.highestValue(bucket - 1) < value);
+        }
+        assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucket(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testPercentilesAreWithinRelativeError() {
+        //given
+        var histogram = new LatencyHistogram();
+
+        //when
+        for (long value = 1; value <= 10_000; value++) {
+            histogram.record(value * 1000);
+        }
+
+        //then
+        var snapshot = histogram.snapshot();
+        assertEquals(10_000, snapshot.getCount());
+        assertEquals(10_000_000, snapshot.getMax());
+        assertEquals(5_000_500, snapshot.getMean(), 0.1);
+        assertEquals(5_000_000, snapshot.getValueAtPercentile(50), 5_000_000 / 16);
+        assertEquals(9_900_000, snapshot.getValueAtPercentile(99), 9_900_000 / 16);
+        assertEquals(10_000_000, snapshot.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void testConcurrentRecordingLosesNothing() {
+        //given
+        var histogram = new LatencyHistogram();
+        var executor = Executors.newFixedThreadPool(4);
+
+        //when
+        var futures = new ArrayList<CompletableFuture<Void>>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(CompletableFuture.runAsync(() -> {
+                for (int value = 0; value < 100_000; value++) {
+                    histogram.record(value);
+                }
+            }, executor));
+        }
+        futures.forEach(CompletableFuture::join);
+        executor.shutdown();
+
+        //then
+        assertEquals(400_000, histogram.snapshot().getCount());
+    }
+
+    @Test
+    public void testMerge() {
+        //given
+        var first = new LatencyHistogram();
+        var second = new LatencyHistogram();
+        first.record(10);
+        second.record(20);
+        second.record(30);
+
+        //when
+        var merged = first.snapshot().merge(second.snapshot());
+
+        //then
+        assertEquals(3, merged.getCount());
+        assertEquals(30, merged.getMax());
+        assertEquals(20, merged.getMean(), 0.001);
+    }
+
+    @Test
+    public void testStripesAreAllocatedOnFirstRecord() {
+        //given
+        var histogram = new LatencyHistogram();
+        assertEquals(0, histogram.allocatedStripes());
+
+        //when
+        for (int i = 0; i < 1000; i++) {
+            histogram.record(i);
+        }
+
+        //then
+        assertEquals(1, histogram.allocatedStripes());
+        assertEquals(1000, histogram.snapshot().getCount());
+    }
+}
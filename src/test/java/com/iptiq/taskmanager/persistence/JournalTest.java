@@ -0,0 +1,144 @@
+package com.iptiq.taskmanager.persistence;
+
+import com.iptiq.taskmanager.Process;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+
+import static com.iptiq.taskmanager.ProcessTestFactory.newStartedProcess;
+import static com.iptiq.taskmanager.event.ProcessEvent.Type.*;
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testReplayReturnsRunningProcesses() throws IOException {
+        //given
+        var file = directory.resolve("journal");
+        var processes = startedProcesses(4);
+        try (var journal = Journal.open(file)) {
+            processes.forEach(process -> journal.append(STARTED, process));
+            journal.append(KILLED, processes.get(1));
+            journal.append(EVICTED, processes.get(2));
+        }
+
+        //when
+        List<ProcessRecord> records;
+        try (var journal = Journal.open(file)) {
+            records = journal.replay();
+        }
+
+        //then
+        assertEquals(List.of(record(processes.get(0)), record(processes.get(3))), records);
+    }
+
+    @Test
+    public void testTornRecordIsDiscarded() throws IOException {
+        //given
+        var file = directory.resolve("journal");
+        var processes = startedProcesses(3);
+        try (var journal = Journal.open(file)) {
+            processes.forEach(process -> journal.append(STARTED, process));
+        }
+        try (var raw = new RandomAccessFile(file.toFile(), "rw")) {
+            // corrupt the priority of the second record
+            raw.seek(Journal.HEADER_SIZE + Journal.RECORD_SIZE + 8);
+            raw.writeInt(12345);
+        }
+
+        //when
+        try (var journal = Journal.open(file)) {
+            journal.append(STARTED, processes.get(2));
+
+            //then
+            assertEquals(List.of(record(processes.get(0)), record(processes.get(2))), journal.replay());
+        }
+        try (var journal = Journal.open(file)) {
+            assertEquals(List.of(record(processes.get(0)), record(processes.get(2))), journal.replay());
+        }
+    }
+
+    @Test
+    public void testCompactionKeepsRunningProcessesAndGrows() throws IOException {
+        //given
+        var file = directory.resolve("journal");
+        var processes = startedProcesses(6);
+        try (var journal = Journal.open(file, 4)) {
+            for (int i = 0; i < 4; i++) {
+                journal.append(STARTED, processes.get(i));
+            }
+
+            //when
+            journal.reserve(2, processes.subList(0, 4));
+            journal.append(STARTED, processes.get(4));
+            journal.append(KILLED, processes.get(0));
+
+            //then
+            assertEquals(16 - 6, journal.remaining());
+        }
+        try (var journal = Journal.open(file)) {
+            var expected = processes.subList(1, 5).stream().map(JournalTest::record).collect(toList());
+            assertEquals(expected, journal.replay());
+        }
+        assertFalse(Files.exists(directory.resolve("journal.compact")));
+    }
+
+    @Test
+    public void testConcurrentSyncs() throws IOException {
+        //given
+        var file = directory.resolve("journal");
+        var processes = startedProcesses(1000);
+        var executor = Executors.newFixedThreadPool(4);
+
+        try (var journal = Journal.open(file)) {
+            //when
+            var futures = new ArrayList<CompletableFuture<Void>>();
+            for (var process : processes) {
+                synchronized (journal) {
+                    journal.append(STARTED, process);
+                }
+                futures.add(CompletableFuture.runAsync(journal::sync, executor));
+            }
+            futures.forEach(CompletableFuture::join);
+            executor.shutdown();
+
+            //then
+            assertEquals(1000, journal.replay().size());
+        }
+    }
+
+    @Test
+    public void testRejectsForeignFile() throws IOException {
+        //given
+        var file = directory.resolve("journal");
+        Files.write(file, new byte[64]);
+
+        //when
+        assertThrows(IOException.class, () -> Journal.open(file));
+    }
+
+    private static List<Process> startedProcesses(int count) {
+        var processes = new ArrayList<Process>();
+        for (int pid = 1; pid <= count; pid++) {
+            processes.add(newStartedProcess(pid, pid, pid));
+        }
+        return processes;
+    }
+
+    private static ProcessRecord record(Process process) {
+        return new ProcessRecord(process.getPid(), process.getPriority(), process.getWeight(), process.getStartNanos(),
+                process.getStartSequence(), process.getExpiresAt());
+    }
+}
@@ -0,0 +1,77 @@
+package com.iptiq.taskmanager.persistence;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static com.iptiq.taskmanager.ProcessTestFactory.newStartedProcess;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        //given
+        var file = directory.resolve("snapshot");
+        // large enough to span several chunks per column, and odd to misalign the long columns
+        int size = 20_001;
+        var snapshot = new Snapshot(30_000, size);
+        for (int i = 0; i < size; i++) {
+            snapshot.set(i, newStartedProcess(i * 3, i % 7, i));
+        }
+
+        //when
+        snapshot.write(file);
+        var read = Snapshot.read(file);
+
+        //then
+        assertEquals(30_000, read.getCapacity());
+        assertEquals(size, read.size());
+        for (int i = 0; i < size; i++) {
+            assertEquals(snapshot.getPid(i), read.getPid(i));
+            assertEquals(snapshot.getPriority(i), read.getPriority(i));
+            assertEquals(snapshot.getStartNanos(i), read.getStartNanos(i));
+            assertEquals(snapshot.getStartSequence(i), read.getStartSequence(i));
+            assertTrue(read.isRunning(i));
+        }
+        assertFalse(Files.exists(directory.resolve("snapshot.tmp")));
+    }
+
+    @Test
+    public void testEmptySnapshot() throws IOException {
+        //given
+        var file = directory.resolve("snapshot");
+
+        //when
+        new Snapshot(10, 0).write(file);
+
+        //then
+        var read = Snapshot.read(file);
+        assertEquals(10, read.getCapacity());
+        assertEquals(0, read.size());
+    }
+
+    @Test
+    public void testTruncatedSnapshotIsRejected() throws IOException {
+        //given
+        var file = directory.resolve("snapshot");
+        var snapshot = new Snapshot(10, 2);
+        snapshot.set(0, newStartedProcess(1, 1, 1));
+        snapshot.set(1, newStartedProcess(2, 2, 2));
+        snapshot.write(file);
+        try (var channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 1);
+        }
+
+        //when
+        assertThrows(IOException.class, () -> Snapshot.read(file));
+    }
+}
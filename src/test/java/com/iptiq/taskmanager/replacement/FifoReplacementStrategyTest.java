@@ -2,6 +2,7 @@ package com.iptiq.taskmanager.replacement;
 
 import com.iptiq.taskmanager.Process;
 import com.iptiq.taskmanager.ReplacementStrategy;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
@@ -11,6 +12,8 @@ import java.util.stream.Stream;
 
 import static com.iptiq.taskmanager.ProcessTestFactory.newProcess;
 import static com.iptiq.taskmanager.ProcessTestFactory.startedProcesses;
+import static java.util.Collections.emptyList;
+import static java.util.stream.Collectors.toList;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -29,6 +32,37 @@ public class FifoReplacementStrategyTest {
         assertEquals(expectedPidToKill, result.get().getPid());
     }
 
+    @Test
+    public void testVictimsAreTakenFromIndexUntilWeightIsFreed() {
+        //given
+        var processes = startedProcesses(7, 12, 10, 19, 3);
+        processes.forEach(strategy::onProcessAdded);
+
+        //when
+        var victims = strategy.chooseVictims(emptyList(), newProcess(0), 3);
+
+        //then
+        assertEquals(List.of(3, 7, 10), victims.stream().map(Process::getPid).collect(toList()));
+        assertTrue(strategy.chooseVictims(emptyList(), newProcess(0), 6).isEmpty());
+    }
+
+    @Test
+    public void testIndexFollowsLifecycleCallbacks() {
+        //given
+        var processes = startedProcesses(7, 12, 10, 19, 3);
+        processes.forEach(strategy::onProcessAdded);
+
+        //when
+        processes.stream()
+                .filter(p -> p.getPid() == 3 || p.getPid() == 7)
+                .forEach(strategy::onProcessRemoved);
+        var result = strategy.choose(emptyList(), newProcess(0));
+
+        //then
+        assertTrue(result.isPresent());
+        assertEquals(10, result.get().getPid());
+    }
+
     private static Stream<Arguments> provideTestParams() {
         return Stream.of(
                 Arguments.of(startedProcesses(1, 2, 3), 1),
@@ -2,15 +2,19 @@ package com.iptiq.taskmanager.replacement;
 
 import com.iptiq.taskmanager.Process;
 import com.iptiq.taskmanager.ReplacementStrategy;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static com.iptiq.taskmanager.ProcessTestFactory.*;
+import static java.util.Collections.emptyList;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -39,6 +43,62 @@ public class PrioBasedReplacementStrategyTest {
         assertTrue(result.isEmpty());
     }
 
+    @Test
+    public void testIndexFollowsLifecycleCallbacks() {
+        //given
+        var processes = Arrays.asList(
+                newStartedProcess(1, 2, 1000),
+                newStartedProcess(2, 5, 1000),
+                newStartedProcess(3, 2, 500),
+                newStartedProcess(4, 7, 100));
+        processes.forEach(strategy::onProcessAdded);
+
+        //when
+        strategy.onProcessRemoved(processes.get(2));
+        var replaced = strategy.choose(emptyList(), newProcess(3));
+        var notReplaced = strategy.choose(emptyList(), newProcess(2));
+
+        //then
+        assertTrue(replaced.isPresent());
+        assertEquals(1, replaced.get().getPid());
+        assertTrue(notReplaced.isEmpty());
+    }
+
+    @Test
+    public void testRestoredIndexFollowsLifecycleCallbacks() {
+        //given
+        var processes = Arrays.asList(
+                newStartedProcess(1, 2, 1000),
+                newStartedProcess(2, 5, 1000),
+                newStartedProcess(3, 2, 500),
+                newStartedProcess(4, 7, 100));
+        strategy.onProcessesRestored(processes);
+
+        //when
+        strategy.onProcessRemoved(processes.get(2));
+        strategy.onProcessAdded(newStartedProcess(5, 1, 2000));
+        var replaced = strategy.choose(emptyList(), newProcess(3));
+
+        //then
+        assertTrue(replaced.isPresent());
+        assertEquals(5, replaced.get().getPid());
+    }
+
+    @Test
+    public void testChooseAllTakesEachVictimOnce() {
+        //given
+        var processes = Arrays.asList(
+                newStartedProcess(1, 2, 1000),
+                newStartedProcess(2, 5, 1000),
+                newStartedProcess(3, 2, 500));
+
+        //when
+        var victims = strategy.chooseAll(processes, Arrays.asList(newProcess(4), newProcess(2), newProcess(4), newProcess(4)));
+
+        //then
+        assertEquals(Arrays.asList(Optional.of(3), Optional.empty(), Optional.of(1), Optional.empty()),
+                victims.stream().map(v -> v.map(Process::getPid)).collect(Collectors.toList()));
+    }
 
     private static Stream<Arguments> provideFoundParams() {
         var testList1 = Arrays.asList(
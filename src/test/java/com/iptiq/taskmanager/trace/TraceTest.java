@@ -0,0 +1,161 @@
+package com.iptiq.taskmanager.trace;
+
+import com.iptiq.taskmanager.CapacityFullException;
+import com.iptiq.taskmanager.Process;
+import com.iptiq.taskmanager.TaskManager;
+import com.iptiq.taskmanager.replacement.DefaultReplacementStrategy;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+
+import static com.iptiq.taskmanager.ListOrder.BY_PRIORITY;
+import static com.iptiq.taskmanager.ProcessTestFactory.newProcess;
+import static com.iptiq.taskmanager.Selectors.byPID;
+import static com.iptiq.taskmanager.trace.Trace.Operation.ADD;
+import static com.iptiq.taskmanager.trace.Trace.Operation.KILL;
+import static com.iptiq.taskmanager.trace.Trace.Operation.LIST;
+import static java.util.Arrays.asList;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TraceTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        //given
+        var file = directory.resolve("trace");
+        // large enough to span several chunks
+        int size = 10_001;
+
+        //when
+        try (var writer = new TraceWriter(file)) {
+            for (int i = 0; i < size; i++) {
+                switch (i % 3) {
+                    case 0:
+                        writer.add(i * 10L, i, i % 7, 1 + i % 3, i, i % 2 == 0 ? Process.NEVER : -i);
+                        break;
+                    case 1:
+                        writer.kill(i * 10L, i - 1);
+                        break;
+                    default:
+                        writer.list(i * 10L, BY_PRIORITY);
+                }
+            }
+        }
+        var trace = Trace.read(file);
+
+        //then
+        assertEquals(size, trace.size());
+        for (int i = 0; i < size; i++) {
+            assertEquals(i * 10L, trace.getNanos(i));
+            switch (i % 3) {
+                case 0:
+                    assertEquals(ADD, trace.getOperation(i));
+                    assertEquals(i, trace.getPid(i));
+                    assertEquals(i % 7, trace.getPriority(i));
+                    assertEquals(1 + i % 3, trace.getWeight(i));
+                    assertEquals(i, trace.getTtlMillis(i));
+                    assertEquals(i % 2 == 0 ? Process.NEVER : -i, trace.getDeadlineMillis(i));
+                    break;
+                case 1:
+                    assertEquals(KILL, trace.getOperation(i));
+                    assertEquals(i - 1, trace.getPid(i));
+                    break;
+                default:
+                    assertEquals(LIST, trace.getOperation(i));
+                    assertEquals(BY_PRIORITY, trace.getListOrder(i));
+            }
+        }
+    }
+
+    @Test
+    public void testRecorderTracesWeightTtlAndDeadline() throws IOException {
+        //given
+        var file = directory.resolve("trace");
+        var taskManager = new TaskManager(new DefaultReplacementStrategy());
+        var recorder = new TraceRecorder(file);
+        taskManager.getEventPipeline().addListener(recorder);
+
+        //when
+        var before = Instant.now();
+        taskManager.addProcess(newProcess(1));
+        var after = Instant.now();
+        taskManager.addProcess(Process.builder().pid(2).priority(1).weight(3).ttl(Duration.ofSeconds(5))
+                .deadline(before.plusSeconds(60)).build());
+        taskManager.getEventPipeline().flush();
+        recorder.close();
+
+        //then
+        var trace = Trace.read(file);
+        assertEquals(2, trace.size());
+        assertEquals(1, trace.getWeight(0));
+        assertEquals(Process.NEVER, trace.getTtlMillis(0));
+        assertEquals(Process.NEVER, trace.getDeadlineMillis(0));
+        assertEquals(3, trace.getWeight(1));
+        assertEquals(5_000, trace.getTtlMillis(1));
+        // the deadline is relative to the first event, which has happened between before and after
+        long deadline = trace.getDeadlineMillis(1);
+        assertTrue(deadline <= 60_000 && deadline >= 60_000 - Duration.between(before, after).toMillis() - 1);
+    }
+
+    @Test
+    public void testIncompleteRecordIsIgnored() throws IOException {
+        //given
+        var file = directory.resolve("trace");
+        try (var writer = new TraceWriter(file)) {
+            writer.add(0, 1, 1);
+            writer.add(5, 2, 2);
+        }
+
+        //when
+        try (var channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(Trace.HEADER_SIZE + Trace.RECORD_SIZE + 3);
+        }
+
+        //then
+        var trace = Trace.read(file);
+        assertEquals(1, trace.size());
+        assertEquals(1, trace.getPid(0));
+    }
+
+    @Test
+    public void testRecorderTracesAdmissionsAndKills() throws IOException {
+        //given
+        var file = directory.resolve("trace");
+        var taskManager = new TaskManager(new DefaultReplacementStrategy());
+        var recorder = new TraceRecorder(file);
+        taskManager.getEventPipeline().addListener(recorder);
+
+        //when
+        for (int pid = 1; pid <= 11; pid++) {
+            try {
+                taskManager.addProcess(newProcess(pid));
+            } catch (CapacityFullException e) {
+                // rejected processes are recorded as well
+            }
+        }
+        taskManager.kill(byPID(3));
+        taskManager.getEventPipeline().flush();
+        recorder.close();
+
+        //then
+        var trace = Trace.read(file);
+        var operations = new ArrayList<String>();
+        for (int i = 0; i < trace.size(); i++) {
+            operations.add(trace.getOperation(i) + " " + trace.getPid(i));
+        }
+        assertEquals(12, operations.size());
+        assertEquals(asList("ADD 1", "ADD 10", "ADD 11", "KILL 3"), asList(operations.get(0), operations.get(9),
+                operations.get(10), operations.get(11)));
+        assertEquals(11, trace.getPriority(10));
+    }
+}
@@ -0,0 +1,91 @@
+package com.iptiq.taskmanager.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static java.util.Arrays.asList;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PersistentSortedSetTest {
+
+    @Test
+    public void testUpdatesLeaveThePreviousSetUnchanged() {
+        //given
+        var empty = PersistentSortedSet.<Integer>empty(Comparator.naturalOrder());
+        var set = empty.with(3).with(1).with(2);
+
+        //when
+        var withFour = set.with(4);
+        var withoutOne = set.without(1);
+
+        //then
+        assertEquals(asList(1, 2, 3), toList(set));
+        assertEquals(asList(1, 2, 3, 4), toList(withFour));
+        assertEquals(asList(2, 3), toList(withoutOne));
+        assertTrue(empty.isEmpty());
+        assertSame(set, set.with(2));
+        assertSame(set, set.without(5));
+    }
+
+    @Test
+    public void testSliceAndGetByIndex() {
+        //given
+        var sorted = new ArrayList<Integer>();
+        for (int i = 0; i < 1000; i++) {
+            sorted.add(2 * i);
+        }
+        var set = PersistentSortedSet.ofSorted(sorted, Comparator.<Integer>naturalOrder());
+
+        //when
+        var page = set.slice(500, 3);
+
+        //then
+        assertEquals(asList(1000, 1002, 1004), page);
+        assertEquals(1998, set.get(999));
+        assertEquals(List.of(), set.slice(1000, 10));
+        assertEquals(asList(1996, 1998), set.slice(998, 10));
+        assertTrue(set.contains(10));
+        assertFalse(set.contains(11));
+    }
+
+    @Test
+    public void testBehavesLikeTreeSetUnderRandomOperations() {
+        //given
+        var random = new Random(3);
+        var set = PersistentSortedSet.<Integer>empty(Comparator.naturalOrder());
+        var expected = new TreeSet<Integer>();
+
+        //when
+        for (int i = 0; i < 50_000; i++) {
+            int element = random.nextInt(2000);
+            if (random.nextBoolean()) {
+                set = set.with(element);
+                expected.add(element);
+            } else {
+                set = set.without(element);
+                expected.remove(element);
+            }
+
+            if (i % 1000 == 0) {
+                int offset = random.nextInt(expected.size() + 1);
+                assertEquals(new ArrayList<>(expected).subList(offset, Math.min(expected.size(), offset + 20)),
+                        set.slice(offset, 20));
+            }
+        }
+
+        //then
+        assertEquals(expected.size(), set.size());
+        assertEquals(new ArrayList<>(expected), toList(set));
+    }
+
+    private static List<Integer> toList(PersistentSortedSet<Integer> set) {
+        var list = new ArrayList<Integer>();
+        set.forEach(list::add);
+        return list;
+    }
+}
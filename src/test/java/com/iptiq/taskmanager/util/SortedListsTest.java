@@ -0,0 +1,59 @@
+package com.iptiq.taskmanager.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static java.util.Arrays.asList;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SortedListsTest {
+
+    @Test
+    public void testSetViewBehavesLikeTreeSet() {
+        //given
+        var sorted = asList(1, 3, 5, 7, 9);
+        var view = SortedLists.asSortedSet(sorted, Comparator.<Integer>naturalOrder());
+        var expected = new TreeSet<>(sorted);
+
+        //then
+        assertEquals(expected, view);
+        assertEquals(expected.subSet(2, 7), view.subSet(2, 7));
+        assertEquals(expected.headSet(5), view.headSet(5));
+        assertEquals(expected.tailSet(4), view.tailSet(4));
+        assertEquals(expected.subSet(3, 9).headSet(5), view.subSet(3, 9).headSet(5));
+        assertTrue(view.contains(7));
+        assertFalse(view.contains(8));
+        assertEquals(Integer.valueOf(1), view.first());
+        assertEquals(Integer.valueOf(9), view.last());
+        assertThrows(NoSuchElementException.class, () -> view.headSet(0).first());
+        assertThrows(IllegalArgumentException.class, () -> view.subSet(7, 2));
+        assertThrows(UnsupportedOperationException.class, () -> view.add(4));
+    }
+
+    @Test
+    public void testTreeCollectionsAreBuiltFromViews() {
+        //given
+        var sorted = new ArrayList<Integer>();
+        for (int i = 0; i < 1000; i++) {
+            sorted.add(2 * i);
+        }
+        Comparator<Integer> order = Comparator.naturalOrder();
+
+        //when
+        var set = new TreeSet<>(SortedLists.asSortedSet(sorted, order));
+        var map = new TreeMap<>(SortedLists.asSortedMap(sorted, order, "x"));
+
+        //then
+        assertEquals(sorted, new ArrayList<>(set));
+        assertEquals(sorted, new ArrayList<>(map.keySet()));
+        assertEquals(List.of(10, 12, 14), new ArrayList<>(map.subMap(10, 16).keySet()));
+        assertEquals("x", map.get(1998));
+        assertSame(order, set.comparator());
+    }
+}